@@ -0,0 +1,85 @@
+package com.example.android.newsfeed;
+
+import java.util.Arrays;
+
+/**
+ * Timeout adapting to the latencies observed for recent requests.
+ * <p>
+ * The timeout is a multiple of the 95th percentile of the last latencies, so it follows a fast
+ * network down and a slow one up, within fixed bounds. Until enough latencies are known, the
+ * upper bound is used.
+ * <p>
+ * Thread-safe.
+ */
+public class AdaptiveTimeout {
+
+    /**
+     * Number of latencies remembered.
+     */
+    private static final int WINDOW_SIZE = 64;
+
+    /**
+     * Number of latencies needed before adapting.
+     */
+    private static final int MIN_SAMPLES = 8;
+
+    /**
+     * Percentile the timeout is based on.
+     */
+    private static final double PERCENTILE = 0.95;
+
+    /**
+     * Headroom given over the percentile.
+     */
+    private static final int PERCENTILE_MULTIPLIER = 3;
+
+    // Declare ring of latencies, guarded by this
+    private final long[] latenciesMillis = new long[WINDOW_SIZE];
+    private int sampleCount;
+    private int nextSample;
+
+    /**
+     * Record the latency of a request.
+     * <p>
+     * Requests that timed out should be recorded with the timeout they had, so the timeout grows
+     * when the network slows down.
+     *
+     * @param latencyMillis Latency, in milliseconds.
+     */
+    public synchronized void record(long latencyMillis) {
+        latenciesMillis[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % WINDOW_SIZE;
+        sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+    }
+
+    /**
+     * Get a percentile of the recorded latencies.
+     *
+     * @param percentile Percentile, between 0 and 1.
+     * @return Latency at that percentile, in milliseconds, or -1 if too few latencies are known.
+     */
+    public synchronized long percentileMillis(double percentile) {
+        if (sampleCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sortedLatencies = Arrays.copyOf(latenciesMillis, sampleCount);
+        Arrays.sort(sortedLatencies);
+        int index = (int) Math.ceil(percentile * sampleCount) - 1;
+        return sortedLatencies[Math.max(0, Math.min(index, sampleCount - 1))];
+    }
+
+    /**
+     * Get the timeout for the next request.
+     *
+     * @param minMillis Lower bound of the timeout, in milliseconds.
+     * @param maxMillis Upper bound of the timeout, used until enough latencies are known.
+     * @return Timeout, in milliseconds.
+     */
+    public int timeoutMillis(int minMillis, int maxMillis) {
+        long percentileMillis = percentileMillis(PERCENTILE);
+        if (percentileMillis < 0) {
+            return maxMillis;
+        }
+        return (int) Math.max(minMillis, Math.min(maxMillis, percentileMillis * PERCENTILE_MULTIPLIER));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.android.newsfeed;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * News source answering each query with the provider it's addressed to: The Guardian's API for
+ * search queries, and the feed reader for the address of any other feed.
+ * <p>
+ * Combined with {@link NewsFanOut}, queries to all providers run in parallel and are merged into
+ * a single feed, whatever the format each provider answers in.
+ */
+public class AggregatingNewsSource implements NewsSource {
+
+    /**
+     * Prefix of the URLs of queries to The Guardian's API.
+     */
+    private final String guardianQueryUrlPrefix;
+
+    private final NewsSource guardianSource;
+    private final NewsSource feedSource;
+
+    /**
+     * Instantiate a source.
+     *
+     * @param guardianQueryUrlPrefix Prefix of the URLs of queries to The Guardian's API.
+     * @param guardianSource         Source answering queries to The Guardian's API.
+     * @param feedSource             Source reading RSS and Atom feeds, answering any other query.
+     */
+    public AggregatingNewsSource(String guardianQueryUrlPrefix, NewsSource guardianSource, NewsSource feedSource) {
+        this.guardianQueryUrlPrefix = guardianQueryUrlPrefix;
+        this.guardianSource = guardianSource;
+        this.feedSource = feedSource;
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl) {
+        return fetchNews(queryUrl, null);
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl, NewsBatcher.Listener batchListener) {
+        return queryUrl.startsWith(guardianQueryUrlPrefix)
+                ? guardianSource.fetchNews(queryUrl, batchListener)
+                : feedSource.fetchNews(queryUrl, batchListener);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.android.newsfeed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker stopping requests to a server that keeps failing.
+ * <p>
+ * After a number of consecutive failures, the circuit opens: requests are refused for a while, so
+ * a struggling server isn't hammered and callers fail fast. Once that while is over, a single trial
+ * request is let through. Its success closes the circuit, its failure opens it again.
+ * <p>
+ * Thread-safe.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // Declare state, guarded by this
+    private int consecutiveFailures;
+    private boolean open;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    /**
+     * Instantiate a closed circuit breaker.
+     *
+     * @param failureThreshold Number of consecutive failures opening the circuit.
+     * @param openMillis       Time during which an open circuit refuses requests, in milliseconds.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Ask whether a request may be sent. When the answer is yes, the caller must report the outcome
+     * with {@link #onSuccess()}, {@link #onFailure()} or {@link #onAbandoned()}.
+     *
+     * @return true if the request may be sent.
+     */
+    public synchronized boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+
+        // Let a single trial through once the circuit has been open long enough
+        if (trialInFlight || System.nanoTime() - openedAtNanos < openNanos) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    /**
+     * Report that a request succeeded, which closes the circuit.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    /**
+     * Report that a request failed, which may open the circuit.
+     */
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (open || consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Report that a request was aborted before its outcome was known.
+     */
+    public synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return true if the circuit is open, whether or not a trial may be sent.
+     */
+    public synchronized boolean isOpen() {
+        return open;
+    }
+}
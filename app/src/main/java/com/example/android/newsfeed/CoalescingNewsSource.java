@@ -0,0 +1,318 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * News source sharing one request among all callers asking for the same query at the same time.
+ * <p>
+ * Queries are identified by their normalized URL. While a request is in flight, further callers
+ * for its query wait for it rather than sending their own, so the response is downloaded and
+ * parsed once. The request is only cancelled once every caller has cancelled. Its news are then
+ * remembered for a short while, so a burst of identical queries -- a rotation, a quick return from
+ * the settings -- is answered without any request at all.
+ * <p>
+ * Callers following the download get the batches of news parsed after they joined the request.
+ * Each caller gets its own copy of every news list, so callers can't see each other's changes.
+ */
+public class CoalescingNewsSource implements NewsSource {
+
+    /**
+     * Maximum number of query results remembered at once.
+     */
+    private static final int MAX_REMEMBERED_RESULTS = 8;
+
+    private final NewsSource newsSource;
+
+    /**
+     * Time during which the news of a completed request are reused, in nanoseconds.
+     */
+    private final long memoNanos;
+
+    /**
+     * Requests in flight, by normalized query URL. Guarded by this.
+     */
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    /**
+     * News of recently completed requests, by normalized query URL, oldest first. Guarded by this.
+     */
+    private final LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+
+    /**
+     * Request shared by the callers of a query.
+     */
+    private static final class Flight {
+
+        final String key;
+        final Future<List<News>> pendingNews;
+
+        /**
+         * Listeners of the callers following the download.
+         */
+        final List<NewsBatcher.Listener> batchListeners;
+
+        /**
+         * Number of callers that haven't cancelled. Guarded by the source.
+         */
+        int callerCount;
+
+        Flight(String key, Future<List<News>> pendingNews, List<NewsBatcher.Listener> batchListeners) {
+            this.key = key;
+            this.pendingNews = pendingNews;
+            this.batchListeners = batchListeners;
+        }
+    }
+
+    /**
+     * News of a completed request, along with the time until which they may be reused.
+     */
+    private static final class Result {
+
+        final List<News> news;
+        final long expiresAtNanos;
+
+        Result(List<News> news, long expiresAtNanos) {
+            this.news = news;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * Instantiate a coalescing source.
+     *
+     * @param newsSource Source actually answering queries.
+     * @param memoMillis Time during which the news of a completed request are reused, in milliseconds.
+     */
+    public CoalescingNewsSource(NewsSource newsSource, long memoMillis) {
+        this.newsSource = newsSource;
+        this.memoNanos = TimeUnit.MILLISECONDS.toNanos(memoMillis);
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl) {
+        return fetchNews(queryUrl, null);
+    }
+
+    @Override
+    public synchronized Future<List<News>> fetchNews(String queryUrl, NewsBatcher.Listener batchListener) {
+        String key = NewsQuery.normalizeQueryUrl(queryUrl);
+
+        // Answered a moment ago: reuse the news
+        Result result = rememberedResult(key);
+        if (result != null) {
+            return new CompletedFetch(result.news);
+        }
+
+        // Being answered: wait for the same request. A request that completed without anybody
+        // getting its news may be outdated, so it's replaced.
+        Flight flight = flights.get(key);
+        if (flight == null || flight.pendingNews.isDone()) {
+            List<NewsBatcher.Listener> batchListeners = new CopyOnWriteArrayList<>();
+            flight = new Flight(key, newsSource.fetchNews(queryUrl, relayTo(batchListeners)), batchListeners);
+            flights.put(key, flight);
+        }
+        flight.callerCount++;
+        if (batchListener != null) {
+            flight.batchListeners.add(batchListener);
+        }
+
+        return new SharedFetch(flight, batchListener);
+    }
+
+    /**
+     * Create a listener handing each batch of a request to the listeners of its callers.
+     *
+     * @param batchListeners Listeners of the callers, which may change while the request runs.
+     * @return Listener to pass to the request.
+     */
+    private static NewsBatcher.Listener relayTo(final List<NewsBatcher.Listener> batchListeners) {
+        return new NewsBatcher.Listener() {
+            @Override
+            public void onNewsBatch(List<News> parsedNews) {
+                for (NewsBatcher.Listener batchListener : batchListeners) {
+                    batchListener.onNewsBatch(copyOf(parsedNews));
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the news remembered for a query, dropping expired ones on the way.
+     *
+     * @param key Normalized query URL.
+     * @return Remembered result, or null if there's none.
+     */
+    private Result rememberedResult(String key) {
+        long now = System.nanoTime();
+
+        // Results are ordered by age, so expired ones come first
+        Iterator<Result> iterator = results.values().iterator();
+        while (iterator.hasNext() && iterator.next().expiresAtNanos - now <= 0) {
+            iterator.remove();
+        }
+
+        return results.get(key);
+    }
+
+    /**
+     * Record the outcome of a request, once one of its callers got it.
+     *
+     * @param flight Completed request.
+     * @param news   News of the request, or null if it failed.
+     */
+    private synchronized void onFlightCompleted(Flight flight, List<News> news) {
+        // Only the first caller to get the outcome records it
+        if (flights.get(flight.key) != flight) {
+            return;
+        }
+        flights.remove(flight.key);
+
+        // Failures aren't remembered, so the next caller tries again
+        if (news != null && memoNanos > 0) {
+            results.remove(flight.key);
+            results.put(flight.key, new Result(news, System.nanoTime() + memoNanos));
+            if (results.size() > MAX_REMEMBERED_RESULTS) {
+                results.remove(results.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Let go of a request for a caller that cancelled, cancelling it if nobody else waits for it.
+     *
+     * @param flight        Request the caller was waiting for.
+     * @param batchListener Listener of the caller, or null.
+     */
+    private synchronized void onCallerCancelled(Flight flight, NewsBatcher.Listener batchListener) {
+        if (batchListener != null) {
+            flight.batchListeners.remove(batchListener);
+        }
+        flight.callerCount--;
+        if (flight.callerCount == 0 && flights.get(flight.key) == flight) {
+            flights.remove(flight.key);
+            flight.pendingNews.cancel(true);
+        }
+    }
+
+    /**
+     * Copy news, so callers don't share a list.
+     *
+     * @param news News, or null.
+     * @return Copy of the news, or null.
+     */
+    private static List<News> copyOf(List<News> news) {
+        return news == null ? null : new ArrayList<>(news);
+    }
+
+    /**
+     * A caller's view of a shared request.
+     */
+    private final class SharedFetch implements Future<List<News>> {
+
+        private final Flight flight;
+
+        /**
+         * Listener of the caller, or null.
+         */
+        private final NewsBatcher.Listener batchListener;
+
+        private volatile boolean cancelled;
+
+        SharedFetch(Flight flight, NewsBatcher.Listener batchListener) {
+            this.flight = flight;
+            this.batchListener = batchListener;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (CoalescingNewsSource.this) {
+                if (cancelled || flight.pendingNews.isDone()) {
+                    return false;
+                }
+                cancelled = true;
+                onCallerCancelled(flight, batchListener);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled || flight.pendingNews.isDone();
+        }
+
+        @Override
+        public List<News> get() throws InterruptedException, ExecutionException {
+            checkNotCancelled();
+            List<News> news = flight.pendingNews.get();
+            onFlightCompleted(flight, news);
+            return copyOf(news);
+        }
+
+        @Override
+        public List<News> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            checkNotCancelled();
+            List<News> news = flight.pendingNews.get(timeout, unit);
+            onFlightCompleted(flight, news);
+            return copyOf(news);
+        }
+
+        private void checkNotCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * Fetch answered from remembered news.
+     */
+    private static final class CompletedFetch implements Future<List<News>> {
+
+        private final List<News> news;
+
+        CompletedFetch(List<News> news) {
+            this.news = news;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public List<News> get() {
+            return copyOf(news);
+        }
+
+        @Override
+        public List<News> get(long timeout, TimeUnit unit) {
+            return copyOf(news);
+        }
+    }
+}
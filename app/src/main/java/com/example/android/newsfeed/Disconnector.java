@@ -0,0 +1,51 @@
+package com.example.android.newsfeed;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread tearing down the connections of cancelled requests.
+ * <p>
+ * Requests are cancelled from the main thread, but disconnecting closes a socket, which can block
+ * -- on a TLS close, or on a lock held by the thread reading it. Nor can a disconnect wait for a
+ * thread of the requests' own executor: they may all be blocked reading the very connections to
+ * tear down. Disconnects therefore run here, one at a time, in the order requests were cancelled.
+ */
+final class Disconnector {
+
+    /**
+     * Executor running disconnects. Its thread is released when idle, so it costs nothing between
+     * cancellations.
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "disconnector");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private Disconnector() {
+    }
+
+    /**
+     * Run a disconnect off the calling thread.
+     *
+     * @param disconnect Task disconnecting the connection of a cancelled request, if it's still open.
+     */
+    static void execute(Runnable disconnect) {
+        EXECUTOR.execute(disconnect);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.android.newsfeed;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * News source reading RSS and Atom feeds, on a bounded executor.
+ * <p>
+ * Each query URL is the address of a feed. The feed is parsed by {@link FeedXmlParser} as it
+ * downloads, and only its first items are read. As with {@link GuardianNewsSource}, cancelling a
+ * fetch disconnects its connection, so a blocked read fails right away.
+ */
+public class FeedNewsSource implements NewsSource {
+
+    /**
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = FeedNewsSource.class.getName();
+
+    /**
+     * Maximum number of feeds downloaded at the same time.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+    /**
+     * Source shared by the app.
+     */
+    private static FeedNewsSource defaultInstance;
+
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of news read from each feed.
+     */
+    private final int maxNewsPerFeed;
+
+    /**
+     * Instantiate a source.
+     *
+     * @param executor       Executor on which requests run. Its size bounds concurrency.
+     * @param maxNewsPerFeed Maximum number of news read from each feed.
+     */
+    public FeedNewsSource(ExecutorService executor, int maxNewsPerFeed) {
+        this.executor = executor;
+        this.maxNewsPerFeed = maxNewsPerFeed;
+    }
+
+    /**
+     * Get the source shared by the app, which reads as many news from a feed as there are in a
+     * page of the Guardian's results.
+     *
+     * @return Shared source.
+     */
+    public static synchronized FeedNewsSource getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new FeedNewsSource(GuardianNewsSource.newBoundedExecutor(MAX_CONCURRENT_REQUESTS), NewsQueryUrls.PAGE_SIZE);
+        }
+        return defaultInstance;
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String feedUrl) {
+        return fetchNews(feedUrl, null);
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String feedUrl, NewsBatcher.Listener batchListener) {
+        final Fetch fetch = new Fetch(feedUrl, batchListener);
+
+        FutureTask<List<News>> task = new FutureTask<List<News>>(fetch) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    fetch.abort();
+                }
+                return cancelled;
+            }
+        };
+
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Download of a feed, which can be aborted from another thread.
+     */
+    private final class Fetch implements Callable<List<News>> {
+
+        private final String feedUrl;
+
+        /**
+         * Listener receiving batches of news while the feed is parsed, or null.
+         */
+        private final NewsBatcher.Listener batchListener;
+
+        /**
+         * Connection of the request, while it's open. Guarded by this.
+         */
+        private HttpURLConnection httpURLConnection;
+
+        /**
+         * Whether the request was aborted.
+         */
+        private volatile boolean aborted;
+
+        Fetch(String feedUrl, NewsBatcher.Listener batchListener) {
+            this.feedUrl = feedUrl;
+            this.batchListener = batchListener;
+        }
+
+        @Override
+        public List<News> call() {
+            try {
+                return fetchAndParse();
+            } catch (IOException exception) {
+                if (!isAborted()) {
+                    Log.e(LOG_TAG, "Problem fetching feed: " + feedUrl, exception);
+                }
+                return null;
+            }
+        }
+
+        /**
+         * Download the feed and parse it as it streams in.
+         *
+         * @return News of the feed.
+         * @throws IOException if the request failed or was aborted, or the feed couldn't be parsed.
+         */
+        private List<News> fetchAndParse() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(feedUrl).openConnection();
+            connection.setConnectTimeout(NewsQuery.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(NewsQuery.DEFAULT_READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            synchronized (this) {
+                if (aborted) {
+                    throw new IOException("Request aborted: " + feedUrl);
+                }
+                httpURLConnection = connection;
+            }
+
+            InputStream body = null;
+            try {
+                int responseCode = connection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    throw new NewsQuery.HttpStatusException(responseCode, -1);
+                }
+
+                body = connection.getInputStream();
+                if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                    body = new GZIPInputStream(body);
+                }
+                if (batchListener == null) {
+                    return FeedXmlParser.parseNews(body, maxNewsPerFeed);
+                }
+                NewsBatcher batcher = new NewsBatcher(batchListener);
+                FeedXmlParser.parseNews(body, maxNewsPerFeed, batcher);
+                return batcher.getNews();
+            } finally {
+                // Parsing stops before the end of long feeds, so the connection can't be reused
+                if (body != null) {
+                    body.close();
+                }
+                connection.disconnect();
+                synchronized (this) {
+                    httpURLConnection = null;
+                }
+            }
+        }
+
+        private boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * Abort the request. If its body is being read, the read fails as soon as the connection
+         * is torn down, which happens in the background: this returns right away.
+         */
+        void abort() {
+            aborted = true;
+            Disconnector.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (Fetch.this) {
+                        if (httpURLConnection != null) {
+                            httpURLConnection.disconnect();
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the last feed shown, read back on the next launch so the feed is on screen in the
+ * first frame, before the loader even runs.
+ * <p>
+ * Unlike the news cache, which holds one entry per query and is read on the loader's thread, the
+ * snapshot is a single small file meant to be read on the main thread. It's memory-mapped and
+ * decoded with {@link NewsCodec} straight from the mapping -- no JSON, no copy of the file.
+ * <p>
+ * Layout: magic number (int), query key (modified UTF-8), then the news as written by NewsCodec.
+ */
+public class FeedSnapshot {
+
+    /**
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = FeedSnapshot.class.getName();
+
+    /**
+     * Name of the snapshot file, within the app files directory.
+     */
+    private static final String SNAPSHOT_FILE_NAME = "feed_snapshot.bin";
+
+    /**
+     * Marker of snapshot files -- 'NFSS'.
+     */
+    private static final int MAGIC = 0x4e465353;
+
+    /**
+     * Snapshot shared by the app.
+     */
+    private static FeedSnapshot instance;
+
+    /**
+     * Snapshot file.
+     */
+    private final File file;
+
+    /**
+     * Executor writing snapshots off the main thread, one at a time, in submission order.
+     */
+    private final ExecutorService writeExecutor;
+
+    /**
+     * Instantiate a snapshot stored in the given file.
+     *
+     * @param file Snapshot file. Its directory must exist.
+     */
+    public FeedSnapshot(File file) {
+        this.file = file;
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feed-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        writeExecutor = executor;
+    }
+
+    /**
+     * Get the process-wide snapshot.
+     *
+     * @param context Any context, used to locate the snapshot file.
+     * @return Shared snapshot.
+     */
+    public static synchronized FeedSnapshot getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedSnapshot(new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Read the snapshot, if it was taken for the given query. Fast enough for the main thread.
+     *
+     * @param key Cache key of the queries the feed is for, as built by {@link NewsCache#keyFor(List)}.
+     * @return News of the snapshot, or null if there's none for the query or it can't be read.
+     */
+    public List<News> read(String key) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        FileInputStream fileInputStream = null;
+        try {
+            fileInputStream = new FileInputStream(file);
+            FileChannel channel = fileInputStream.getChannel();
+            ByteBuffer mappedSnapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            DataInputStream input = new DataInputStream(new ByteBufferInputStream(mappedSnapshot));
+
+            if (input.readInt() != MAGIC || !key.equals(input.readUTF())) {
+                return null;
+            }
+            return NewsCodec.readNews(input);
+        } catch (IOException | RuntimeException exception) {
+            // Corrupted, truncated or outdated snapshot: the loader will provide news anyway.
+            // Drop it, so a bad file doesn't fail every launch.
+            Log.w(LOG_TAG, "Problem reading feed snapshot: ", exception);
+            file.delete();
+            return null;
+        } finally {
+            if (fileInputStream != null) {
+                try {
+                    fileInputStream.close();
+                } catch (IOException ignored) {
+                    // Nothing left to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the snapshot with the news shown for a query, on a background thread.
+     *
+     * @param key  Cache key of the queries the feed is for.
+     * @param news News shown. They're copied, so the caller may keep modifying the list.
+     */
+    public void writeAsync(final String key, List<News> news) {
+        final List<News> snapshotNews = new ArrayList<>(news);
+        writeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(key, snapshotNews);
+                } catch (IOException exception) {
+                    Log.e(LOG_TAG, "Problem writing feed snapshot: ", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replace the snapshot with the news shown for a query.
+     *
+     * @param key  Cache key of the queries the feed is for.
+     * @param news News shown.
+     * @throws IOException if the snapshot can't be written.
+     */
+    void write(String key, List<News> news) throws IOException {
+        // Write to a temporary file first, so readers never see a partial snapshot
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+            output.writeInt(MAGIC);
+            output.writeUTF(key);
+            NewsCodec.writeNews(output, news);
+
+            // Close explicitly, so a failure to flush is reported rather than swallowed
+            output.close();
+            output = null;
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Can't write snapshot file: " + file);
+        }
+    }
+
+    /**
+     * Input stream reading a byte buffer, such as a memory mapping, without copying it.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
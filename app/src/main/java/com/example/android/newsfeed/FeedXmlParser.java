@@ -0,0 +1,346 @@
+package com.example.android.newsfeed;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Streaming parser for RSS 2.0 and Atom 1.0 feeds.
+ * <p>
+ * Like {@link NewsJsonParser}, it emits each news object as soon as its item or entry has been
+ * read, without building a document tree. Both formats are told apart by their elements, so the
+ * same parser reads either. Only the elements the feed displays are kept: link, title, date,
+ * author, category and thumbnail.
+ * <p>
+ * News are given the item's first category as section, or the feed's title if it has none.
+ * <p>
+ * The class only depends on plain Java, so it can be tested on the JVM.
+ */
+public final class FeedXmlParser {
+
+    /**
+     * Namespace of Atom elements. RSS elements have none.
+     */
+    private static final String ATOM_NAMESPACE = "http://www.w3.org/2005/Atom";
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private FeedXmlParser() {
+    }
+
+    /**
+     * Parse a full feed and collect the news objects it contains.
+     *
+     * @param inputStream Feed document. Its encoding is read from the XML declaration.
+     * @param maxNews     Maximum number of news to read. Parsing stops once they're read.
+     * @return List of news objects, empty if the feed has no items.
+     * @throws IOException if the stream can't be read or isn't well-formed XML.
+     */
+    public static List<News> parseNews(InputStream inputStream, int maxNews) throws IOException {
+        final List<News> news = new ArrayList<>();
+
+        parseNews(inputStream, maxNews, new NewsJsonParser.NewsCallback() {
+            @Override
+            public void onNews(News parsedNews) {
+                news.add(parsedNews);
+            }
+        });
+
+        return news;
+    }
+
+    /**
+     * Parse a feed and emit each news object to the callback as soon as it has been read.
+     *
+     * @param inputStream Feed document. Its encoding is read from the XML declaration.
+     * @param maxNews     Maximum number of news to read. Parsing stops once they're read.
+     * @param callback    Callback receiving news objects in feed order.
+     * @throws IOException if the stream can't be read or isn't well-formed XML.
+     */
+    public static void parseNews(InputStream inputStream, int maxNews, NewsJsonParser.NewsCallback callback) throws IOException {
+        if (maxNews <= 0) {
+            return;
+        }
+
+        FeedHandler handler = new FeedHandler(maxNews, callback);
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            parser.parse(new InputSource(inputStream), handler);
+        } catch (EnoughNewsException exception) {
+            // Stopped on purpose: the rest of the feed isn't needed
+        } catch (SAXException | ParserConfigurationException exception) {
+            throw new IOException("Problem parsing feed", exception);
+        }
+    }
+
+    /**
+     * Thrown by the handler to stop parsing once it has read enough news.
+     */
+    private static final class EnoughNewsException extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Skip the stack trace: stopping is expected, and the exception never leaves the parser.
+         */
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * SAX handler turning RSS items and Atom entries into news objects.
+     */
+    private static final class FeedHandler extends DefaultHandler {
+
+        private final int maxNews;
+        private final NewsJsonParser.NewsCallback callback;
+
+        /**
+         * Appender storing the news, sized for a typical feed.
+         */
+        private final NewsArticleStore.Appender appender;
+
+        private int newsCount;
+
+        /**
+         * Title of the feed, used as section of items without category.
+         */
+        private String feedTitle;
+
+        /**
+         * Whether the parser is within an item or entry, and within its author element.
+         */
+        private boolean inItem;
+        private boolean inAuthor;
+
+        /**
+         * Text of the element being read, if it's one we keep.
+         */
+        private final StringBuilder text = new StringBuilder();
+        private boolean collectingText;
+
+        // Properties of the current item
+        private String url;
+        private String title;
+        private String category;
+        private String rfc822Date;
+        private String rfc3339Date;
+        private String thumbnailUrl;
+        private final ArrayList<String> authors = new ArrayList<>();
+
+        FeedHandler(int maxNews, NewsJsonParser.NewsCallback callback) {
+            this.maxNews = maxNews;
+            this.callback = callback;
+            this.appender = new NewsArticleStore.Appender(maxNews);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (localName.equals("item") || localName.equals("entry")) {
+                startItem();
+                return;
+            }
+
+            // Elements of extensions, such as Media RSS, may share their name with ours
+            boolean feedElement = uri.isEmpty() || uri.equals(ATOM_NAMESPACE);
+
+            if (!inItem) {
+                // Only the feed's own title is kept outside of items
+                collectText(feedTitle == null && feedElement && localName.equals("title"));
+                return;
+            }
+
+            switch (localName) {
+                case "link":
+                    // Atom links are attributes, and the page of the entry is its alternate link
+                    String href = attributes.getValue("href");
+                    String rel = attributes.getValue("rel");
+                    if (href != null) {
+                        if (url == null && (rel == null || rel.equals("alternate"))) {
+                            url = href;
+                        }
+                        collectText(false);
+                    } else {
+                        collectText(url == null);
+                    }
+                    break;
+                case "category":
+                    // Atom categories are attributes too
+                    String term = attributes.getValue("term");
+                    if (feedElement && term != null && category == null) {
+                        category = term;
+                    }
+                    collectText(feedElement && term == null && category == null);
+                    break;
+                case "author":
+                    // RSS authors are text, Atom authors have a name element
+                    inAuthor = true;
+                    collectText(true);
+                    break;
+                case "thumbnail":
+                    if (thumbnailUrl == null) {
+                        thumbnailUrl = attributes.getValue("url");
+                    }
+                    collectText(false);
+                    break;
+                case "content":
+                case "enclosure":
+                    // Media content and enclosures are only thumbnails if they're images
+                    String type = attributes.getValue("type");
+                    boolean image = "image".equals(attributes.getValue("medium")) || (type != null && type.startsWith("image/"));
+                    if (image && thumbnailUrl == null) {
+                        thumbnailUrl = attributes.getValue("url");
+                    }
+                    collectText(false);
+                    break;
+                default:
+                    collectText((feedElement && localName.equals("title")) || localName.equals("pubDate") || localName.equals("published")
+                            || localName.equals("updated") || localName.equals("creator") || localName.equals("guid")
+                            || (inAuthor && localName.equals("name")));
+            }
+        }
+
+        @Override
+        public void characters(char[] characters, int start, int length) {
+            if (collectingText) {
+                text.append(characters, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            String value = collectingText ? text.toString().trim() : null;
+            collectingText = false;
+
+            if (!inItem) {
+                if (value != null && !value.isEmpty() && localName.equals("title")) {
+                    feedTitle = value;
+                }
+                return;
+            }
+
+            switch (localName) {
+                case "item":
+                case "entry":
+                    endItem();
+                    return;
+                case "author":
+                    // An RSS author is the element's own text; an Atom author's name was read already
+                    if (value != null && !value.isEmpty() && authors.isEmpty()) {
+                        authors.add(value);
+                    }
+                    inAuthor = false;
+                    return;
+                default:
+                    // Elements we don't keep, or that are read from their attributes
+                    if (value == null || value.isEmpty()) {
+                        return;
+                    }
+            }
+
+            switch (localName) {
+                case "link":
+                    url = value;
+                    break;
+                case "guid":
+                    // Permanent GUIDs are links, used when the item has no link element
+                    if (url == null && (value.startsWith("http://") || value.startsWith("https://"))) {
+                        url = value;
+                    }
+                    break;
+                case "title":
+                    title = value;
+                    break;
+                case "category":
+                    category = value;
+                    break;
+                case "pubDate":
+                    rfc822Date = value;
+                    break;
+                case "published":
+                    rfc3339Date = value;
+                    break;
+                case "updated":
+                    // Only used when the entry has no publication date
+                    if (rfc3339Date == null) {
+                        rfc3339Date = value;
+                    }
+                    break;
+                case "creator":
+                case "name":
+                    authors.add(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Start collecting the text of the element just started, or stop collecting if it isn't kept.
+         *
+         * @param collect Whether the text of the element is kept.
+         */
+        private void collectText(boolean collect) {
+            collectingText = collect;
+            text.setLength(0);
+        }
+
+        /**
+         * Reset properties when an item or entry starts.
+         */
+        private void startItem() {
+            inItem = true;
+            inAuthor = false;
+            collectingText = false;
+            url = null;
+            title = null;
+            category = null;
+            rfc822Date = null;
+            rfc3339Date = null;
+            thumbnailUrl = null;
+            authors.clear();
+        }
+
+        /**
+         * Emit the news of an item or entry once it's been read.
+         *
+         * @throws EnoughNewsException once enough news have been read.
+         */
+        private void endItem() throws EnoughNewsException {
+            inItem = false;
+
+            // Entries lacking a link or a title are dropped
+            String section = category != null ? category : feedTitle;
+            if (url == null || title == null || section == null) {
+                return;
+            }
+
+            long publicationTimeMillis = rfc3339Date != null
+                    ? NewsDates.parseRfc3339Date(rfc3339Date)
+                    : NewsDates.parseRfc822Date(rfc822Date);
+            String date = NewsDates.formatPublicationDate(publicationTimeMillis);
+
+            callback.onNews(appender.append(url, title, section, date, new ArrayList<>(authors), thumbnailUrl));
+
+            newsCount++;
+            if (newsCount >= maxNews) {
+                throw new EnoughNewsException();
+            }
+        }
+    }
+}
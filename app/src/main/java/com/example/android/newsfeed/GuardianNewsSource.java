@@ -0,0 +1,305 @@
+package com.example.android.newsfeed;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * News source querying The Guardian's API with NewsQuery, on a bounded executor.
+ * <p>
+ * Interrupting a thread doesn't stop a blocking socket read, so cancelling a fetch disconnects its
+ * connection instead, from a background thread: the read fails and the thread is free for the
+ * next query, without the cancelling thread waiting on the socket.
+ * <p>
+ * Transient failures -- timeouts, throttling, server errors -- are retried according to a retry
+ * policy. Timeouts follow the latencies observed for recent requests. When the API keeps failing,
+ * a circuit breaker stops sending requests for a while, and queries are answered with the news of
+ * their last validated response, if any.
+ */
+public class GuardianNewsSource implements NewsSource {
+
+    /**
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = GuardianNewsSource.class.getName();
+
+    /**
+     * Maximum number of requests running at the same time.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    // Define retry policy of the app: three attempts, backing off from 0.5 s up to 4 s
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_RETRY_DELAY_MILLIS = 500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 4000;
+    private static final long MAX_RETRY_AFTER_MILLIS = 10000;
+
+    // Define circuit breaker of the app: five failures in a row stop requests for 30 s
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30000;
+
+    /**
+     * Lower bound of adaptive timeouts, in milliseconds. Upper bounds are NewsQuery's defaults.
+     */
+    private static final int MIN_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Source shared by the app.
+     */
+    private static GuardianNewsSource defaultInstance;
+
+    private final ExecutorService executor;
+
+    /**
+     * Index fetched news are added to, or null.
+     */
+    private final NewsSearchIndex searchIndex;
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Latencies of successful requests, which request timeouts follow.
+     */
+    private final AdaptiveTimeout adaptiveTimeout;
+
+    /**
+     * Lower bound of timeouts, in milliseconds.
+     */
+    private final int minTimeoutMillis;
+
+    /**
+     * Instantiate a source with the app's retry policy and circuit breaker.
+     *
+     * @param executor    Executor on which requests run. Its size bounds concurrency.
+     * @param searchIndex Index fetched news are added to, or null.
+     */
+    public GuardianNewsSource(ExecutorService executor, NewsSearchIndex searchIndex) {
+        this(executor, searchIndex,
+                new RetryPolicy(MAX_ATTEMPTS, BASE_RETRY_DELAY_MILLIS, MAX_RETRY_DELAY_MILLIS, MAX_RETRY_AFTER_MILLIS, new Random()),
+                new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS),
+                MIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Instantiate a source.
+     *
+     * @param executor         Executor on which requests run. Its size bounds concurrency.
+     * @param searchIndex      Index fetched news are added to, or null.
+     * @param retryPolicy      Policy deciding which failed requests are retried, and when.
+     * @param circuitBreaker   Circuit breaker guarding the API.
+     * @param minTimeoutMillis Lower bound of adaptive timeouts, in milliseconds.
+     */
+    public GuardianNewsSource(ExecutorService executor, NewsSearchIndex searchIndex, RetryPolicy retryPolicy,
+                              CircuitBreaker circuitBreaker, int minTimeoutMillis) {
+        this.executor = executor;
+        this.searchIndex = searchIndex;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.adaptiveTimeout = new AdaptiveTimeout();
+        this.minTimeoutMillis = minTimeoutMillis;
+    }
+
+    /**
+     * Get the source shared by the app, which makes fetched news searchable offline.
+     *
+     * @return Shared source.
+     */
+    public static synchronized GuardianNewsSource getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new GuardianNewsSource(newBoundedExecutor(MAX_CONCURRENT_REQUESTS), NewsSearchIndex.getDefault());
+        }
+        return defaultInstance;
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl) {
+        return fetchNews(queryUrl, null);
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl, NewsBatcher.Listener batchListener) {
+        final Fetch fetch = new Fetch(queryUrl, batchListener);
+
+        FutureTask<List<News>> task = new FutureTask<List<News>>(fetch) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    fetch.abort();
+                }
+                return cancelled;
+            }
+        };
+
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Request to the API, retried until it succeeds or gives up, which can be aborted from another
+     * thread.
+     */
+    private final class Fetch implements Callable<List<News>>, NewsQuery.ConnectionListener {
+
+        private final String queryUrl;
+
+        /**
+         * Listener receiving batches of news while the response is parsed, or null.
+         */
+        private final NewsBatcher.Listener batchListener;
+
+        /**
+         * Connection of the request, once it's configured. Guarded by this.
+         */
+        private HttpURLConnection httpURLConnection;
+
+        /**
+         * Whether the request was aborted.
+         */
+        private volatile boolean aborted;
+
+        Fetch(String queryUrl, NewsBatcher.Listener batchListener) {
+            this.queryUrl = queryUrl;
+            this.batchListener = batchListener;
+        }
+
+        @Override
+        public List<News> call() {
+            boolean timedOut = false;
+
+            for (int attempt = 1; ; attempt++) {
+                // The API keeps failing: answer with what it said last time, without asking
+                if (!circuitBreaker.allowRequest()) {
+                    return NewsQuery.lastValidatedNews(queryUrl);
+                }
+
+                // After a timeout, give the request all the time it may need
+                int timeoutMillis = timedOut
+                        ? NewsQuery.DEFAULT_READ_TIMEOUT_MILLIS
+                        : adaptiveTimeout.timeoutMillis(minTimeoutMillis, NewsQuery.DEFAULT_READ_TIMEOUT_MILLIS);
+                int connectTimeoutMillis = timedOut
+                        ? NewsQuery.DEFAULT_CONNECT_TIMEOUT_MILLIS
+                        : adaptiveTimeout.timeoutMillis(minTimeoutMillis, NewsQuery.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+
+                long start = System.nanoTime();
+                IOException failure;
+                try {
+                    List<News> news = NewsQuery.fetchNewsOrThrow(queryUrl, this, connectTimeoutMillis, timeoutMillis, batchListener);
+                    adaptiveTimeout.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    circuitBreaker.onSuccess();
+
+                    // Make fetched news searchable offline
+                    if (searchIndex != null) {
+                        searchIndex.addAll(news);
+                    }
+                    return news;
+                } catch (IOException exception) {
+                    failure = exception;
+                } finally {
+                    // The connection may be back in the keep-alive pool: it mustn't be torn down anymore
+                    synchronized (this) {
+                        httpURLConnection = null;
+                    }
+                }
+
+                // Aborted: nothing was learnt about the API
+                if (isAborted()) {
+                    circuitBreaker.onAbandoned();
+                    return null;
+                }
+
+                // Only transient failures say something about the API's health. Timeouts are
+                // recorded as latencies, so timeouts grow with a slowing network.
+                timedOut = failure instanceof SocketTimeoutException;
+                if (timedOut) {
+                    adaptiveTimeout.record(timeoutMillis);
+                }
+                if (RetryPolicy.isTransient(failure)) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+
+                long retryDelayMillis = retryPolicy.retryDelayMillis(attempt, failure);
+                if (retryDelayMillis < 0) {
+                    Log.e(LOG_TAG, "Problem fetching news, giving up after " + attempt + " attempt(s): ", failure);
+                    return null;
+                }
+
+                // Cancelling the fetch interrupts the wait
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+
+        private boolean isAborted() {
+            return aborted;
+        }
+
+        @Override
+        public synchronized void onConnectionOpened(HttpURLConnection httpURLConnection) throws IOException {
+            // Aborted before connecting: don't even send the request
+            if (aborted) {
+                throw new InterruptedIOException("Request aborted: " + queryUrl);
+            }
+            this.httpURLConnection = httpURLConnection;
+        }
+
+        /**
+         * Abort the request. If its body is being read, the read fails as soon as the connection
+         * is torn down, which happens in the background: this returns right away.
+         */
+        void abort() {
+            aborted = true;
+            Disconnector.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (Fetch.this) {
+                        if (httpURLConnection != null) {
+                            httpURLConnection.disconnect();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Create an executor running at most the given number of tasks at once. Idle threads are
+     * released, so the pool costs nothing between requests.
+     *
+     * @param maxThreads Maximum number of threads.
+     * @return Bounded executor.
+     */
+    static ExecutorService newBoundedExecutor(int maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "news-source");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.newsfeed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, with buckets in the style of HdrHistogram.
+ * <p>
+ * Values below 16 get a bucket each. Above that, every power of two is split into 16 linear
+ * buckets, so a value is known within 1/16th -- about 6% -- whatever its magnitude, with less than
+ * a thousand buckets for the whole long range. Recording is a few atomic increments, with no lock
+ * and no allocation, so it can be done on any thread, including the main one.
+ * <p>
+ * Reads aren't atomic: a reader racing with writers may see a value counted in one field and not
+ * yet in another. That's fine for metrics.
+ */
+public class Histogram {
+
+    /**
+     * Number of bits of precision within each power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets needed for values up to Long.MAX_VALUE.
+     */
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param value Value to record. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        bucketCounts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return Number of values recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return Largest value recorded, or 0 if there's none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return Mean of the values recorded, or 0 if there's none.
+     */
+    public double getMean() {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+    }
+
+    /**
+     * Get the value at a percentile, within the precision of the buckets.
+     *
+     * @param percentile Percentile, between 0 and 100.
+     * @return Upper bound of the bucket holding the percentile, never more than the largest value
+     * recorded, or 0 if there's no value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+
+        // Rank of the value, counting from 1
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * currentCount));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += bucketCounts.get(index);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(index), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @param index Index of a bucket, below {@link #BUCKET_COUNT}.
+     * @return Number of values recorded in the bucket.
+     */
+    long getCountInBucket(int index) {
+        return bucketCounts.get(index);
+    }
+
+    /**
+     * Forget every value. Values recorded during the reset may be partly forgotten.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            bucketCounts.set(index, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param value Non-negative value.
+     * @return Index of its bucket.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        // The highest bit gives the power of two, the next ones the linear bucket within it
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param index Index of a bucket.
+     * @return Smallest value of the bucket.
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    /**
+     * @param index Index of a bucket.
+     * @return Largest value of the bucket.
+     */
+    static long bucketUpperBound(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : bucketLowerBound(index + 1) - 1;
+    }
+}
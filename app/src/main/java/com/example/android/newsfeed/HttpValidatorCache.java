@@ -0,0 +1,89 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory store of HTTP validators (ETag and Last-Modified) and of the news parsed from the
+ * matching response, by query.
+ * <p>
+ * It lets us send conditional requests and, when the server answers 304 Not Modified, reuse the
+ * news parsed last time instead of downloading and parsing them again.
+ */
+final class HttpValidatorCache {
+
+    /**
+     * Number of queries whose validators are remembered. Least recently used ones are dropped.
+     */
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * Validators and parsed news of a previous 200 response.
+     */
+    static final class Entry {
+
+        final String eTag;
+        final String lastModified;
+        private final List<News> news;
+
+        Entry(String eTag, String lastModified, List<News> news) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.news = news;
+        }
+
+        /**
+         * @return Copy of the news parsed from the response, which callers are free to modify.
+         */
+        List<News> copyNews() {
+            return new ArrayList<>(news);
+        }
+    }
+
+    /**
+     * Entries by normalized query URL, in access order.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Get the validators of a query.
+     *
+     * @param key Normalized query URL.
+     * @return Entry, or null if the query was never answered with validators.
+     */
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Remember the validators of a response and the news parsed from it.
+     * <p>
+     * Responses without any validator can't be revalidated, so they drop the previous entry.
+     *
+     * @param key          Normalized query URL.
+     * @param eTag         Value of the ETag header, may be null.
+     * @param lastModified Value of the Last-Modified header, may be null.
+     * @param news         News parsed from the response.
+     */
+    synchronized void put(String key, String eTag, String lastModified, List<News> news) {
+        if (eTag == null && lastModified == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new Entry(eTag, lastModified, new ArrayList<>(news)));
+        }
+    }
+
+    /**
+     * Forget all validators.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Debug screen showing how long each stage of getting news on screen takes, and how large
+ * responses are, since the app started.
+ * <p>
+ * Metrics can be exported as a JSON snapshot, labelled with the build, the device and the network,
+ * so builds can be compared under real network conditions.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    /**
+     * Text view displaying the metrics as a table.
+     */
+    private TextView metricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.metrics_activity);
+        metricsTextView = findViewById(R.id.metrics_text_view);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        // Metrics keep being recorded in the background, so show the latest ones
+        showMetrics();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem menuItem) {
+        int itemId = menuItem.getItemId();
+
+        if (itemId == R.id.export_metrics_menu_item) {
+            exportSnapshot();
+            return true;
+        }
+
+        if (itemId == R.id.reset_metrics_menu_item) {
+            NewsMetrics.getDefault().reset();
+            showMetrics();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(menuItem);
+    }
+
+    /**
+     * Display the metrics as a table: one row per stage, then one for response sizes.
+     */
+    private void showMetrics() {
+        NewsMetrics metrics = NewsMetrics.getDefault();
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.US, "%-9s %6s %9s %9s %9s %9s%n", "stage", "count", "p50", "p90", "p99", "max"));
+
+        for (NewsMetrics.Stage stage : NewsMetrics.Stage.values()) {
+            Histogram micros = metrics.getStageMicros(stage);
+            table.append(String.format(Locale.US, "%-9s %6d %9s %9s %9s %9s%n", stage.key, micros.getCount(),
+                    formatMicros(micros.getValueAtPercentile(50)), formatMicros(micros.getValueAtPercentile(90)),
+                    formatMicros(micros.getValueAtPercentile(99)), formatMicros(micros.getMax())));
+        }
+
+        Histogram bytes = metrics.getResponseBytes();
+        table.append(String.format(Locale.US, "%-9s %6d %9s %9s %9s %9s%n", "bytes", bytes.getCount(),
+                formatBytes(bytes.getValueAtPercentile(50)), formatBytes(bytes.getValueAtPercentile(90)),
+                formatBytes(bytes.getValueAtPercentile(99)), formatBytes(bytes.getMax())));
+
+        metricsTextView.setText(table.toString());
+    }
+
+    /**
+     * Share a JSON snapshot of the metrics with any app that accepts text, such as email or a
+     * file manager.
+     */
+    private void exportSnapshot() {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("app", BuildConfig.APPLICATION_ID + " " + BuildConfig.VERSION_NAME + " (" + BuildConfig.VERSION_CODE + ")");
+        labels.put("buildType", BuildConfig.BUILD_TYPE);
+        labels.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        labels.put("sdk", String.valueOf(Build.VERSION.SDK_INT));
+        labels.put("network", describeNetwork());
+        labels.put("capturedAt", NewsDates.formatPublicationDate(System.currentTimeMillis()));
+
+        Intent shareSnapshot = new Intent(Intent.ACTION_SEND);
+        shareSnapshot.setType("application/json");
+        shareSnapshot.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.metrics_export_subject));
+        shareSnapshot.putExtra(Intent.EXTRA_TEXT, NewsMetrics.getDefault().toJson(labels));
+        startActivity(Intent.createChooser(shareSnapshot, getString(R.string.metrics_export_chooser_title)));
+    }
+
+    /**
+     * Describe the network the device is on, e.g. "WIFI" or "MOBILE LTE".
+     *
+     * @return Description of the active network, or "none".
+     */
+    private String describeNetwork() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return "none";
+        }
+        String subtype = networkInfo.getSubtypeName();
+        return subtype == null || subtype.isEmpty() ? networkInfo.getTypeName() : networkInfo.getTypeName() + " " + subtype;
+    }
+
+    /**
+     * Format a duration for the table, e.g. "850 us", "12.5 ms" or "1.20 s".
+     *
+     * @param micros Duration, in microseconds.
+     * @return Formatted duration.
+     */
+    private static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + " us";
+        }
+        if (micros < 1000000) {
+            return String.format(Locale.US, "%.1f ms", micros / 1000.0);
+        }
+        return String.format(Locale.US, "%.2f s", micros / 1000000.0);
+    }
+
+    /**
+     * Format a size for the table, e.g. "512 B" or "48.2 KB".
+     *
+     * @param bytes Size, in bytes.
+     * @return Formatted size.
+     */
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.android.newsfeed;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Detector of near-duplicate stories: the same story published under slightly different titles,
+ * by several queries, pages or providers.
+ * <p>
+ * Each title is reduced to a MinHash signature of its terms, whose agreement with another
+ * signature estimates how many terms both titles share (their Jaccard similarity). Signatures are
+ * indexed by locality-sensitive hashing: they're cut into bands, and titles sharing a band are
+ * candidates. A title is only compared with the few titles sharing one of its bands, so adding one
+ * costs the same whether the detector holds ten titles or tens of thousands, and checking a whole
+ * feed takes linear time rather than quadratic.
+ * <p>
+ * Titles are short, so a signature's estimate is too coarse to tell a reworded title from a
+ * different story sharing most of its words. Candidates are rather compared term by term, on the
+ * sorted hashes of their terms, and must share at least 80% of them.
+ * <p>
+ * The index holds primitive arrays only: signatures, term hashes, and chains of titles per band
+ * bucket.
+ */
+public class NearDuplicateDetector {
+
+    /**
+     * Number of hash functions of a signature.
+     */
+    static final int HASH_COUNT = 24;
+
+    /**
+     * Number of bands signatures are cut into, and number of hashes per band. With 8 bands of 3
+     * hashes, titles sharing half their terms are likely candidates, and titles sharing 80% of them
+     * almost surely are.
+     */
+    private static final int BAND_COUNT = 8;
+    private static final int ROWS_PER_BAND = HASH_COUNT / BAND_COUNT;
+
+    /**
+     * Share of their terms two titles must have in common to be near-duplicates, in percent. Titles
+     * differing by a single term out of five, like a phone and a watch unveiled by the same company,
+     * only share two thirds of their terms and are kept apart.
+     */
+    private static final int MIN_SIMILARITY_PERCENT = 80;
+
+    /**
+     * Minimum number of terms of a title to be compared. Shorter titles share too little to tell.
+     */
+    private static final int MIN_TERMS = 5;
+
+    /**
+     * Maximum number of titles compared per band, which bounds the cost of adding a title even
+     * when many titles share a band.
+     */
+    private static final int MAX_CANDIDATES_PER_BAND = 32;
+
+    /**
+     * End of a bucket chain.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Words too common to tell titles apart.
+     */
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is",
+            "it", "its", "of", "on", "or", "that", "the", "to", "was", "were", "what", "who", "will", "with"));
+
+    /**
+     * Seed of each hash function.
+     */
+    private static final int[] SEEDS = new int[HASH_COUNT];
+
+    static {
+        // Fixed seeds, so signatures are the same from one run to the next
+        long state = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = (int) (mix64(state) >>> 32);
+        }
+    }
+
+    /**
+     * Signatures of the titles added, HASH_COUNT hashes per title.
+     */
+    private int[] signatures;
+
+    /**
+     * Sorted hashes of the terms of the titles added, one run per title. Title 'i' owns the run
+     * from termStarts[i] to termStarts[i + 1].
+     */
+    private int[] termHashes;
+    private int[] termStarts;
+
+    /**
+     * Next entry of each entry's bucket chain, or NONE. Entry 'title * BAND_COUNT + band' stands
+     * for a band of a title.
+     */
+    private int[] nextEntries;
+
+    /**
+     * First entry of each bucket chain, or NONE. Its length is a power of two.
+     */
+    private int[] bucketHeads;
+
+    /**
+     * Number of titles added.
+     */
+    private int titleCount;
+
+    /**
+     * Instantiate an empty detector.
+     *
+     * @param expectedTitleCount Number of titles expected, to size the index. It grows as needed.
+     */
+    public NearDuplicateDetector(int expectedTitleCount) {
+        int capacity = Math.max(16, expectedTitleCount);
+        signatures = new int[capacity * HASH_COUNT];
+        termHashes = new int[capacity * 8];
+        termStarts = new int[capacity + 1];
+        nextEntries = new int[capacity * BAND_COUNT];
+        bucketHeads = newBucketHeads(capacity * BAND_COUNT);
+    }
+
+    /**
+     * Add a title, unless it's a near-duplicate of a title added before.
+     * <p>
+     * Titles with fewer than five meaningful terms are never near-duplicates, and aren't added.
+     *
+     * @param title Title of a story.
+     * @return true if the title isn't a near-duplicate, false if it is.
+     */
+    public boolean add(String title) {
+        int[] terms = termHashes(title);
+        if (terms == null) {
+            return true;
+        }
+        int[] signature = signature(terms);
+        if (containsNearDuplicate(signature, terms)) {
+            return false;
+        }
+
+        insert(signature, terms);
+        return true;
+    }
+
+    /**
+     * @return Number of titles added.
+     */
+    public int size() {
+        return titleCount;
+    }
+
+    /**
+     * Hash the meaningful terms of a title.
+     *
+     * @param title Title of a story.
+     * @return Distinct hashes of the terms, sorted, or null if the title has too few meaningful terms.
+     */
+    static int[] termHashes(String title) {
+        Set<String> terms = NewsSearchIndex.tokenize(title);
+        int[] hashes = new int[terms.size()];
+        int count = 0;
+        for (String term : terms) {
+            if (!STOP_WORDS.contains(term)) {
+                hashes[count++] = term.hashCode();
+            }
+        }
+        if (count < MIN_TERMS) {
+            return null;
+        }
+
+        Arrays.sort(hashes, 0, count);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || hashes[i] != hashes[distinctCount - 1]) {
+                hashes[distinctCount++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinctCount);
+    }
+
+    /**
+     * Compute the MinHash signature of a title: for each hash function, the smallest hash of its terms.
+     *
+     * @param termHashes Hashes of the terms of the title.
+     * @return Signature.
+     */
+    static int[] signature(int[] termHashes) {
+        int[] signature = new int[HASH_COUNT];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        for (int termHash : termHashes) {
+            for (int i = 0; i < HASH_COUNT; i++) {
+                int hash = mix32(termHash ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Check whether two titles share enough terms to be near-duplicates.
+     *
+     * @param terms      Sorted term hashes of a title.
+     * @param otherTerms Array holding the sorted term hashes of the other title.
+     * @param otherStart Index of the first term hash of the other title.
+     * @param otherEnd   Index after the last term hash of the other title.
+     * @return true if their Jaccard similarity reaches {@link #MIN_SIMILARITY_PERCENT}.
+     */
+    static boolean isSimilar(int[] terms, int[] otherTerms, int otherStart, int otherEnd) {
+        // Merge both sorted runs, counting the terms in common
+        int sharedCount = 0;
+        int i = 0;
+        int j = otherStart;
+        while (i < terms.length && j < otherEnd) {
+            if (terms[i] < otherTerms[j]) {
+                i++;
+            } else if (terms[i] > otherTerms[j]) {
+                j++;
+            } else {
+                sharedCount++;
+                i++;
+                j++;
+            }
+        }
+
+        int unionCount = terms.length + (otherEnd - otherStart) - sharedCount;
+        return sharedCount * 100 >= unionCount * MIN_SIMILARITY_PERCENT;
+    }
+
+    /**
+     * Look for a title added before that shares a band with a signature and is similar enough.
+     *
+     * @param signature Signature of a title.
+     * @param terms     Sorted term hashes of the title.
+     * @return true if a near-duplicate was found.
+     */
+    private boolean containsNearDuplicate(int[] signature, int[] terms) {
+        for (int band = 0; band < BAND_COUNT; band++) {
+            int candidates = 0;
+            int entry = bucketHeads[bucketOf(signature, 0, band)];
+
+            // Buckets are shared by bands hashing alike, so candidates are always verified
+            while (entry != NONE && candidates < MAX_CANDIDATES_PER_BAND) {
+                int candidateTitle = entry / BAND_COUNT;
+                if (isSimilar(terms, termHashes, termStarts[candidateTitle], termStarts[candidateTitle + 1])) {
+                    return true;
+                }
+                candidates++;
+                entry = nextEntries[entry];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a signature to the index, at the head of the bucket chain of each of its bands.
+     *
+     * @param signature Signature of a title.
+     * @param terms     Sorted term hashes of the title.
+     */
+    private void insert(int[] signature, int[] terms) {
+        ensureCapacity(titleCount + 1);
+
+        System.arraycopy(signature, 0, signatures, titleCount * HASH_COUNT, HASH_COUNT);
+
+        int termStart = termStarts[titleCount];
+        if (termStart + terms.length > termHashes.length) {
+            termHashes = Arrays.copyOf(termHashes, Math.max(termStart + terms.length, termHashes.length * 2));
+        }
+        System.arraycopy(terms, 0, termHashes, termStart, terms.length);
+        termStarts[titleCount + 1] = termStart + terms.length;
+
+        for (int band = 0; band < BAND_COUNT; band++) {
+            link(titleCount, band);
+        }
+        titleCount++;
+    }
+
+    /**
+     * Link a band of a title at the head of its bucket chain.
+     *
+     * @param title Index of the title.
+     * @param band  Band index.
+     */
+    private void link(int title, int band) {
+        int entry = title * BAND_COUNT + band;
+        int bucket = bucketOf(signatures, title * HASH_COUNT, band);
+        nextEntries[entry] = bucketHeads[bucket];
+        bucketHeads[bucket] = entry;
+    }
+
+    /**
+     * Grow arrays to hold the given number of titles, keeping buckets at most half full.
+     *
+     * @param titleCapacity Number of titles to make room for.
+     */
+    private void ensureCapacity(int titleCapacity) {
+        if (titleCapacity * HASH_COUNT <= signatures.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(titleCapacity, signatures.length / HASH_COUNT * 2);
+        signatures = Arrays.copyOf(signatures, newCapacity * HASH_COUNT);
+        termStarts = Arrays.copyOf(termStarts, newCapacity + 1);
+        nextEntries = Arrays.copyOf(nextEntries, newCapacity * BAND_COUNT);
+
+        // Rebuild bucket chains over a larger table
+        bucketHeads = newBucketHeads(newCapacity * BAND_COUNT);
+        for (int title = 0; title < titleCount; title++) {
+            for (int band = 0; band < BAND_COUNT; band++) {
+                link(title, band);
+            }
+        }
+    }
+
+    /**
+     * Create an empty bucket table for the given number of entries.
+     *
+     * @param entryCount Number of entries the table should hold.
+     * @return Bucket heads, at least twice as many as entries, as a power of two.
+     */
+    private static int[] newBucketHeads(int entryCount) {
+        int[] heads = new int[Integer.highestOneBit(Math.max(1, entryCount - 1)) << 2];
+        Arrays.fill(heads, NONE);
+        return heads;
+    }
+
+    /**
+     * Get the bucket of a band of a signature.
+     *
+     * @param signatures Array holding the signature.
+     * @param offset     Offset of the signature in its array.
+     * @param band       Band index.
+     * @return Bucket index.
+     */
+    private int bucketOf(int[] signatures, int offset, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+            key = key * 0x100000001B3L + signatures[offset + band * ROWS_PER_BAND + row];
+        }
+        return (int) mix64(key) & (bucketHeads.length - 1);
+    }
+
+    /**
+     * Scramble the bits of an integer (MurmurHash3 finalizer).
+     */
+    private static int mix32(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Scramble the bits of a long (SplitMix64 finalizer).
+     */
+    private static long mix64(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
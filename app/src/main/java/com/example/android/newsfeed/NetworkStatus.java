@@ -0,0 +1,35 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+/**
+ * Helper telling whether the device can currently reach the network.
+ */
+public final class NetworkStatus {
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private NetworkStatus() {
+    }
+
+    /**
+     * Check whether the device is connected to a network.
+     * <p>
+     * Safe to call from any thread.
+     *
+     * @param context Any context, used to get the connectivity manager.
+     * @return true if a network is connected.
+     */
+    public static boolean isConnected(Context context) {
+        // Get ConnectivityManager to check network state -- that is, if we have internet
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // Get current network info
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
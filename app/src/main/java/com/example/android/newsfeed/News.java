@@ -1,49 +1,134 @@
 package com.example.android.newsfeed;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class representing news objects.
+ * <p>
+ * A news is a lightweight view of a row of a {@link NewsArticleStore}, which holds the fields of
+ * many news in columns and shares section and author names among them. Display strings are
+ * computed once, when the news is added to its store -- which happens on a background thread --
+ * so binding a news to a view only reads fields.
  */
 public class News {
 
+    /**
+     * Estimated heap taken by a view, in bytes: object header, store reference and row.
+     */
+    static final int VIEW_BYTES = 24;
+
     // Declare fields
-    private String url;
-    private String title;
-    private String section;
-    private String date;
-    private ArrayList<String> authors;
+    private final NewsArticleStore store;
+    private final int row;
+
+    /**
+     * Create a news held in a store of its own. Lists of news are better added to shared stores,
+     * with {@link NewsArticleStore.Appender}.
+     */
+    public News(String url, String title, String section, String date, List<String> authors) {
+        this(url, title, section, date, authors, null);
+    }
 
-    // Define constructor
-    public News(String url, String title, String section, String date, ArrayList<String> authors) {
-        this.url = url;
-        this.title = title;
-        this.section = section;
-        this.date = date;
-        this.authors = authors;
+    /**
+     * Create a news with a thumbnail, held in a store of its own.
+     */
+    public News(String url, String title, String section, String date, List<String> authors, String thumbnailUrl) {
+        this.store = new NewsArticleStore(1, authors.size());
+        this.row = store.addRow(url, title, section, date, authors, thumbnailUrl);
+    }
+
+    /**
+     * Create a view of a row of a store.
+     */
+    News(NewsArticleStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * @return Store holding the news.
+     */
+    NewsArticleStore getStore() {
+        return store;
     }
 
     // Define methods
     public String getUrl() {
-        return url;
+        return store.url(row);
     }
 
     public String getTitle() {
-        return title;
+        return store.title(row);
     }
 
     public String getSection() {
-        return section;
+        return store.section(row);
     }
 
+    /**
+     * @return URL of the thumbnail of the news, or null if it has none.
+     */
+    public String getThumbnailUrl() {
+        return store.thumbnailUrl(row);
+    }
+
+    /**
+     * @return Publication date in the API's format, e.g. "2018-11-27T19:15:12Z", or an empty
+     * string if it's unknown.
+     */
     public String getDate() {
-        return date;
+        return NewsDates.formatPublicationDate(getPublicationTimeMillis());
     }
 
-    public ArrayList<String> getAuthors() {
+    /**
+     * @return New list of author names.
+     */
+    public List<String> getAuthors() {
+        int authorCount = getAuthorCount();
+        List<String> authors = new ArrayList<>(authorCount);
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(getAuthor(i));
+        }
         return authors;
     }
 
+    /**
+     * @return Number of authors.
+     */
+    public int getAuthorCount() {
+        return store.authorCount(row);
+    }
+
+    /**
+     * @param index Index of the author, from 0 to {@link #getAuthorCount()} excluded.
+     * @return Name of the author.
+     */
+    public String getAuthor(int index) {
+        return store.author(row, index);
+    }
+
+    /**
+     * @return Publication date in milliseconds since the epoch, or {@link NewsDates#UNKNOWN_DATE}.
+     */
+    public long getPublicationTimeMillis() {
+        return store.publicationTimeMillis(row);
+    }
+
+    /**
+     * @return Publication date formatted for display.
+     */
+    public String getDateLine() {
+        return store.dateLine(row);
+    }
+
+    /**
+     * @return Author names separated by commas, for display.
+     */
+    public String getAuthorsLine() {
+        return store.authorsLine(row);
+    }
+
     /**
      * Helper method that summarizes the object for debugging purposes.
      *
@@ -52,11 +137,12 @@ public class News {
     @Override
     public String toString() {
         return "News {" + "\n" +
-                "URL: " + url + "\n" +
-                "Title: " + title + "\n" +
-                "Section: " + section + "\n" +
-                "Date: " + date + "\n" +
-                "Authors: " + authors.toString() + "\n" +
+                "URL: " + getUrl() + "\n" +
+                "Title: " + getTitle() + "\n" +
+                "Section: " + getSection() + "\n" +
+                "Date: " + getDate() + "\n" +
+                "Authors: " + getAuthors().toString() + "\n" +
+                "Thumbnail: " + getThumbnailUrl() + "\n" +
                 "}";
     }
 }
@@ -1,26 +1,40 @@
 package com.example.android.newsfeed;
 
 import android.app.LoaderManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main activity showing a news feed.
@@ -36,20 +50,114 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
     private static final int NEWS_LOADER_ID = 0;
 
     /**
-     * URL used to query The Guardian's API -- We query articles about Google
+     * Maximum number of pages shown at once. Pages far off-screen are dropped beyond that.
      */
-    private static final String NEWS_QUERY_URL = "https://content.guardianapis.com/search";
+    private static final int MAX_PAGES_IN_WINDOW = 5;
+
+    /**
+     * Distance from the end of the list, in items, at which the next page is fetched.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    /**
+     * Time without preference changes after which the feed is reloaded, in milliseconds.
+     */
+    private static final long QUERY_DEBOUNCE_MILLIS = 400;
+
+    /**
+     * Time the activity class was loaded, in milliseconds of elapsed realtime -- the closest to the
+     * process start we know of on versions that don't tell it.
+     */
+    private static final long CLASS_LOADED_AT_MILLIS = SystemClock.elapsedRealtime();
+
+    /**
+     * Whether the time to first content was recorded for this process. Only used on the main thread.
+     */
+    private static boolean firstContentRecorded;
+
+    /**
+     * RecyclerView displaying the news.
+     */
+    private RecyclerView newsRecyclerView;
+
+    /**
+     * Layout manager of the news RecyclerView, used to find which rows are visible.
+     */
+    private LinearLayoutManager newsLayoutManager;
+
+    /**
+     * News currently in the feed, in display order. The adapter shows a copy of it.
+     */
+    private final List<News> displayedNews = new ArrayList<>();
 
     /**
      * TextView to display when no news is found.
      */
     private TextView noNewsTextView;
 
+    /**
+     * Banner shown while the feed is made of saved news that couldn't be refreshed.
+     */
+    private TextView offlineBannerTextView;
+
+    /**
+     * Receiver refreshing saved news once the network is back, registered while the activity is started.
+     */
+    private final ConnectivityReceiver connectivityReceiver = new ConnectivityReceiver();
+
+    /**
+     * Listener feeding the query stream as preferences change. Kept in a field, since preferences
+     * only hold weak references to their listeners.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                    // The personalised order is applied on the device, without changing the query
+                    if (getString(R.string.settings_order_by_key).equals(key)) {
+                        applyFeedOrder();
+                    }
+
+                    // Read news are left out by the loader, for the same query: load it again
+                    if (getString(R.string.settings_hide_read_key).equals(key)) {
+                        getLoaderManager().restartLoader(NEWS_LOADER_ID, null, NewsActivity.this);
+                        return;
+                    }
+                    queryStream.submit(NewsQueryUrls.build(NewsActivity.this, 1));
+                }
+            };
+
+    /**
+     * Executor waiting out the debounce delay of the query stream.
+     */
+    private ScheduledExecutorService queryScheduler;
+
+    /**
+     * Stream of the queries to show, reloading the feed once preference changes settle.
+     */
+    private NewsQueryStream queryStream;
+
     /**
      * Adapter to bind news list to list of news objects and display them efficiently (only when on screen)
      */
     private NewsAdapter newsAdapter;
 
+    /**
+     * Executor on which pages after the first one are fetched.
+     */
+    private ExecutorService pageExecutor;
+
+    /**
+     * Pager fetching further pages as the user scrolls.
+     */
+    private NewsPager newsPager;
+
+    /**
+     * Ranker ordering the first page by what the user reads, when the personalised order is chosen.
+     * It holds the first page in the server's order.
+     */
+    private NewsRanker newsRanker;
+
     /**
      * Inflate activity contents when activity is created.
      *
@@ -62,37 +170,35 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
         // Set view layout
         setContentView(R.layout.news_activity);
 
-        // Get news list view
-        ListView newsListView = findViewById(R.id.news_list_view);
+        // Get news recycler view and lay rows out vertically, separated by dividers
+        newsRecyclerView = findViewById(R.id.news_list_view);
+        newsLayoutManager = new LinearLayoutManager(this);
+        newsRecyclerView.setLayoutManager(newsLayoutManager);
+        newsRecyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
         // Get empty view -- that is, the no news text view
-        noNewsTextView = findViewById(R.id.no_news_text_view);
-
-        // Use dedicated method to set no news text view as the view to default to when there's no data
         // The empty view starts without text, so it won't blink while news are being fetched
-        // When news data is successfully fetched, the no text view is automatically hidden
-        newsListView.setEmptyView(noNewsTextView);
-
-        // Instantiate adapter that takes as input an empty list of news objects
-        newsAdapter = new NewsAdapter(this, new ArrayList<News>());
+        noNewsTextView = findViewById(R.id.no_news_text_view);
 
-        // Bind news adapter and list view to populate view with news
-        newsListView.setAdapter(newsAdapter);
+        // Rank news by what the user read before
+        ReadingHistory readingHistory = ReadingHistory.getInstance(this);
+        newsRanker = new NewsRanker(readingHistory.getSectionReads(), readingHistory.getAuthorReads());
 
-        // Bind item click listener to ListView, which sends intent to browser to navigate to article
-        newsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Instantiate adapter, with a click listener that sends intent to browser to navigate to article
+        newsAdapter = new NewsAdapter(new NewsAdapter.OnNewsClickListener() {
             /**
-             * Bind click listener to ListView items.
+             * Open clicked article in browser, and remember it was read.
              *
-             * @param parentListView ListView that contains all the news items.
-             * @param clickedItemView ItemView that represents the news item clicked.
-             * @param position Position of the clicked ItemView in the adapter's list.
-             * @param rowId Row of the clicked ItemView in the parent ListView.
+             * @param clickedNews News item clicked.
              */
             @Override
-            public void onItemClick(AdapterView<?> parentListView, View clickedItemView, int position, long rowId) {
-                // Get clicked article
-                News clickedNews = (News) newsAdapter.getItem(position);
+            public void onNewsClick(News clickedNews) {
+                // Count the read, so the feed is ranked again when the user comes back
+                ReadingHistory.getInstance(NewsActivity.this).recordRead(clickedNews);
+                newsRanker.recordRead(clickedNews);
+
+                // Remember the news itself, so its row is dimmed, or left out of the next load
+                ReadStateStore.getInstance(NewsActivity.this).markRead(clickedNews.getUrl());
 
                 // Convert String URL into URI object
                 Uri clickedNewsUri = Uri.parse(clickedNews.getUrl());
@@ -103,33 +209,110 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
                 // Send intent to open URI in browser
                 startActivity(clickedNewsIntent);
             }
+        }, ThumbnailLoader.getInstance(this), ReadStateStore.getInstance(this));
+
+        // Bind news adapter and recycler view to populate view with news
+        newsRecyclerView.setAdapter(newsAdapter);
+
+        // Show the feed shown last time in the first frame, unless a retained loader has news already
+        if (getLoaderManager().getLoader(NEWS_LOADER_ID) == null) {
+            showFeedSnapshot();
+        }
+        if (!firstContentRecorded) {
+            recordTimeToFirstContent();
+        }
+
+        // Set up pager, which fetches further pages ahead of time as the user scrolls
+        pageExecutor = Executors.newSingleThreadExecutor();
+        newsPager = new NewsPager(new NewsPager.PageSource() {
+            @Override
+            public List<News> fetchPage(int page) {
+                return NewsFanOut.getDefault().fetchAll(NewsQueryUrls.build(NewsActivity.this, page));
+            }
+        }, pageExecutor, new MainThreadExecutor(), new PageWindowListener(), NewsQueryUrls.PAGE_SIZE, MAX_PAGES_IN_WINDOW, PREFETCH_DISTANCE);
+
+        // Report scrolling to the pager
+        newsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int firstVisiblePosition = newsLayoutManager.findFirstVisibleItemPosition();
+                if (firstVisiblePosition != RecyclerView.NO_POSITION) {
+                    newsPager.onScroll(firstVisiblePosition, newsLayoutManager.getChildCount(), newsLayoutManager.getItemCount());
+                }
+            }
         });
 
-        // Get ConnectivityManager to check network state -- that is, if we have internet
-        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        // Keep the local store up to date in the background, so the next launch needn't wait for the network
+        NewsSyncReceiver.scheduleSync(this);
 
-        // Get current network info
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        // Get offline banner, shown while the feed is made of saved news
+        offlineBannerTextView = findViewById(R.id.offline_banner_text_view);
 
-        // If we're connected to a network...
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // ... fetch data
-            // Get loader manager to set up loader for scheduling async tasks on secondary thread
-            final LoaderManager loaderManager = getLoaderManager();
+        // Get loader manager to set up loader for scheduling async tasks on secondary thread
+        final LoaderManager loaderManager = getLoaderManager();
 
-            // Initialize loader to fetch news asynchronously
-            // We pass it this activity as loaderCallBacks parameter, which is valid since this activity
-            // implements that interface
-            loaderManager.initLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            // ... display error
-            // Hide loading indicator
-            ProgressBar progressBar = findViewById(R.id.progress_bar);
-            progressBar.setVisibility(View.GONE);
+        // Initialize loader to fetch news asynchronously, even offline, as it serves saved news then
+        // We pass it this activity as loaderCallBacks parameter, which is valid since this activity
+        // implements that interface
+        loaderManager.initLoader(NEWS_LOADER_ID, null, this);
 
-            // Display connection error message
-            noNewsTextView.setText("No internet connection.");
-        }
+        // Reload news whenever the query changes, once the user is done changing it
+        queryScheduler = Executors.newSingleThreadScheduledExecutor();
+        queryStream = new NewsQueryStream(NewsQueryUrls.build(this, 1), queryScheduler, new MainThreadExecutor(),
+                QUERY_DEBOUNCE_MILLIS, new NewsQueryStream.Listener() {
+            @Override
+            public void onQueryChanged(List<String> queryUrls, String key) {
+                // The activity may have been destroyed since the query was emitted
+                if (queryScheduler.isShutdown()) {
+                    return;
+                }
+                showRecentFeed(key);
+
+                // Restarting cancels the load in progress, aborting its download, so the previous
+                // query's download doesn't hold up this one
+                getLoaderManager().restartLoader(NEWS_LOADER_ID, null, NewsActivity.this);
+            }
+        });
+        PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+    }
+
+    /**
+     * Start watching connectivity, so saved news are refreshed as soon as the network is back.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        registerReceiver(connectivityReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * Rank the feed again when the user comes back, as an article may have been read meanwhile.
+     * Rows aren't reordered while the user is looking at them.
+     */
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        applyFeedOrder();
+    }
+
+    /**
+     * Stop watching connectivity while the feed isn't visible.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        unregisterReceiver(connectivityReceiver);
+    }
+
+    /**
+     * Stop reloading and fetching pages once the activity is gone.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(preferenceChangeListener);
+        pageExecutor.shutdownNow();
+        queryScheduler.shutdownNow();
     }
 
     // Implement options menu (settings)
@@ -150,8 +333,7 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
 
     /**
      * Hook called whenever a menu item is selected. Defines which actions to take depending on
-     * which item was selected. Here, there's only one item to handle: Settings -- that is, opening
-     * the settings activity.
+     * which item was selected: opening the settings activity, or the metrics activity.
      *
      * @param menuItem Menu item that was selected.
      * @return true to handle interaction with menu here, or false to let the parent class do it.
@@ -169,6 +351,12 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
             return true; // To handle menu interaction here via our custom implementation
         }
 
+        // If menu item clicked is 'Metrics'
+        if (itemId == R.id.open_metrics_menu_item) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
+
         return super.onOptionsItemSelected(menuItem); // To handle menu interaction via default channel in parent
     }
 
@@ -184,42 +372,19 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
      */
     @Override
     public Loader<List<News>> onCreateLoader(int loaderId, Bundle queryString) {
+        // The loader fetches the first page; further pages are fetched by the pager
+        List<String> queryUrls = NewsQueryUrls.build(this, 1);
 
-        // Get app preference object that holds settings values stored in default app settings file
-        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
-
-        // Get current string value and default string value from specific preference
-
-        // First, get current search keywords and default search keywords
-        String searchKeywords = sharedPreferences.getString(
-                getString(R.string.settings_search_keywords_key),
-                getString(R.string.settings_search_keywords_default));
-
-        // Second, get current sort order and default sort order
-        String orderBy = sharedPreferences.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
+        // The local index can't restrict matches to followed sections, so only use it for a single query
+        String searchKeywords = queryUrls.size() == 1 ? NewsQueryUrls.getSearchKeywords(this) : null;
 
-        // Build URI query object from URL query String
-        Uri baseQueryUri = Uri.parse(NEWS_QUERY_URL);
-
-        // Prepare URI query object we just built to receive query parameters and values
-        Uri.Builder baseQueryUriBuilder = baseQueryUri.buildUpon();
-
-        // Append query parameters and values -- for example: 'show-tags=contributor'
-        baseQueryUriBuilder.appendQueryParameter("api-key", "54a72938-b6be-4f0b-b258-15a961c183cf"); // Pass my API key
-        baseQueryUriBuilder.appendQueryParameter("q", searchKeywords); // Result should contain keywords
-        baseQueryUriBuilder.appendQueryParameter("order-by", orderBy); // Result should contain keywords
-        baseQueryUriBuilder.appendQueryParameter("show-tags", "contributor"); // Results should include author(s)
-
-        return new NewsLoader(this, baseQueryUriBuilder.toString());
+        return new NewsLoader(this, queryUrls, searchKeywords, NewsQueryUrls.hidesReadNews(this));
     }
 
     /**
      * Method called when a previously created loader has finished fetching data.
      * <p>
-     * Clears the adapter's list and adds the news passed, if there are any.
+     * Replaces the feed with the news passed, if there are any.
      *
      * @param newsLoader Previously created news loader object.
      * @param news       List of news objects.
@@ -230,20 +395,50 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
         ProgressBar progressBar = findViewById(R.id.progress_bar);
         progressBar.setVisibility(View.GONE);
 
-        // Remove news objects from adapter -- that is, empty its list
-        newsAdapter.clear();
-
-        // If news list passed as argument contains any news, add them to the adapter's list.
-        // This will trigger the list view to update.
-        if (news != null && !news.isEmpty()) {
-            newsAdapter.addAll(news);
+        // Replace feed with the news passed, if there are any, in the order chosen.
+        // A page still loading is shown in the server's order: it's ranked once, when complete.
+        // Only rows whose news changed are updated, once the difference has been computed.
+        boolean deliveringPartialNews = ((NewsLoader) newsLoader).isDeliveringPartialNews();
+        List<News> orderedNews;
+        if (news == null) {
+            orderedNews = null;
+        } else if (deliveringPartialNews) {
+            // Nothing to reorder after a read until the page is complete
+            newsRanker.setNews(Collections.<News>emptyList(), null, System.currentTimeMillis());
+            orderedNews = news;
+        } else {
+            orderedNews = orderFirstPage(news);
+        }
+        displayedNews.clear();
+        if (orderedNews != null) {
+            displayedNews.addAll(orderedNews);
+        }
+        newsAdapter.submitList(displayedNews);
+
+        // Restart paging from the first page, which we just got.
+        // Next pages don't follow a page still loading, which would fetch page 2 before page 1 is
+        // complete, nor matches from the local index, which aren't the API's first page.
+        boolean servingLocalMatches = ((NewsLoader) newsLoader).isServingLocalMatches();
+        newsPager.reset(orderedNews, !deliveringPartialNews && !servingLocalMatches);
+
+        // Keep the first page for the next launch to show right away, and for switching back to this query.
+        // A page still loading isn't worth keeping: the rest of it is on its way. Neither are local
+        // matches, which aren't the query's answer.
+        if (news != null && !news.isEmpty() && !deliveringPartialNews && !servingLocalMatches) {
+            String feedKey = ((NewsLoader) newsLoader).getCacheKey();
+            FeedSnapshot.getInstance(this).writeAsync(feedKey, news);
+            RecentFeeds.getDefault().put(feedKey, news);
         }
 
+        // Flag saved news that couldn't be refreshed
+        boolean servingStale = ((NewsLoader) newsLoader).isServingStale();
+        offlineBannerTextView.setVisibility(servingStale ? View.VISIBLE : View.GONE);
+
         // Now that fetching has resolved, add text to no news text view.
         // If fetching failed (no news retrieved), the text will be visible.
-        // If fetching fulfilled (news retrieved), the text view will be automatically hidden
-        // since it was set using a special method in onCreate(). So text won't be visible.
-        noNewsTextView.setText("No news found.");
+        // If fetching fulfilled (news retrieved), the text view will be hidden.
+        noNewsTextView.setText(NetworkStatus.isConnected(this) ? "No news found." : "No internet connection.");
+        updateEmptyView();
     }
 
     /**
@@ -254,6 +449,171 @@ public class NewsActivity extends AppCompatActivity implements LoaderManager.Loa
     @Override
     public void onLoaderReset(Loader<List<News>> newsLoader) {
         // Remove news objects from adapter -- that is, empty its list
-        newsAdapter.clear();
+        displayedNews.clear();
+        newsAdapter.submitList(displayedNews);
+    }
+
+    /**
+     * Show the news of the feed snapshot, if it was taken for the current queries, until the
+     * loader delivers.
+     * <p>
+     * The adapter's first list is applied without diffing, so the news are laid out in the first frame.
+     */
+    private void showFeedSnapshot() {
+        String feedKey = NewsCache.keyFor(NewsQueryUrls.build(this, 1));
+        List<News> snapshotNews = FeedSnapshot.getInstance(this).read(feedKey);
+        if (snapshotNews == null || snapshotNews.isEmpty()) {
+            return;
+        }
+
+        displayedNews.addAll(snapshotNews);
+        newsAdapter.submitList(displayedNews);
+
+        ProgressBar progressBar = findViewById(R.id.progress_bar);
+        progressBar.setVisibility(View.GONE);
+    }
+
+    /**
+     * Show the news last shown for a query, if it was used recently, until the loader delivers.
+     *
+     * @param key Cache key of the query.
+     */
+    private void showRecentFeed(String key) {
+        List<News> recentNews = RecentFeeds.getDefault().get(key);
+        if (recentNews == null) {
+            return;
+        }
+
+        List<News> orderedNews = orderFirstPage(recentNews);
+        displayedNews.clear();
+        displayedNews.addAll(orderedNews);
+        newsAdapter.submitList(displayedNews);
+        newsPager.reset(orderedNews);
+        updateEmptyView();
+    }
+
+    /**
+     * Hand the first page to the ranker, and order it as the user chose.
+     *
+     * @param news News of the first page, in the server's order.
+     * @return News of the first page, ranked on the device if the personalised order is chosen.
+     */
+    private List<News> orderFirstPage(List<News> news) {
+        newsRanker.setNews(news, NewsQueryUrls.getSearchKeywords(this), System.currentTimeMillis());
+        return NewsQueryUrls.isOrderedOnDevice(this) ? newsRanker.top(news.size()) : news;
+    }
+
+    /**
+     * Order the first page of the feed again, after a read or a change of order.
+     * <p>
+     * Further pages keep the server's order, so only the first page is reordered, and only while
+     * it's in the window.
+     */
+    private void applyFeedOrder() {
+        List<News> firstPageNews = newsRanker.getNews();
+        if (newsPager.getFirstPage() != 1 || firstPageNews.isEmpty() || displayedNews.size() < firstPageNews.size()) {
+            return;
+        }
+
+        List<News> orderedNews = NewsQueryUrls.isOrderedOnDevice(this) ? newsRanker.top(firstPageNews.size()) : firstPageNews;
+        displayedNews.subList(0, orderedNews.size()).clear();
+        displayedNews.addAll(0, orderedNews);
+        newsAdapter.submitList(displayedNews);
+    }
+
+    /**
+     * Record the time from the process starting to the first frame showing news, once per process.
+     */
+    private void recordTimeToFirstContent() {
+        newsRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                // Frames drawn while the feed is empty don't count
+                if (newsAdapter.getItemCount() == 0 || firstContentRecorded) {
+                    return true;
+                }
+                firstContentRecorded = true;
+
+                long processStartMillis = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                        ? Process.getStartElapsedRealtime()
+                        : CLASS_LOADED_AT_MILLIS;
+                NewsMetrics.getDefault().recordStage(NewsMetrics.Stage.FIRST_CONTENT,
+                        TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime() - processStartMillis));
+
+                // The observer the listener was added to may have been merged into the window's since
+                newsRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Show the no news text view only when the feed is empty.
+     */
+    private void updateEmptyView() {
+        noNewsTextView.setVisibility(displayedNews.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Mirror changes to the pager's window in the adapter.
+     * <p>
+     * The RecyclerView keeps the visible rows in place when rows are added or removed off-screen.
+     */
+    private class PageWindowListener implements NewsPager.Listener {
+
+        @Override
+        public void onPageAppended(List<News> news) {
+            displayedNews.addAll(news);
+            newsAdapter.submitList(displayedNews);
+            updateEmptyView();
+        }
+
+        @Override
+        public void onPagePrepended(List<News> news) {
+            displayedNews.addAll(0, news);
+            newsAdapter.submitList(displayedNews);
+        }
+
+        @Override
+        public void onPageDropped(int itemCount, boolean fromStart) {
+            if (fromStart) {
+                displayedNews.subList(0, itemCount).clear();
+            } else {
+                displayedNews.subList(displayedNews.size() - itemCount, displayedNews.size()).clear();
+            }
+            newsAdapter.submitList(displayedNews);
+        }
+    }
+
+    /**
+     * Receiver refreshing saved news once the network is back.
+     */
+    private class ConnectivityReceiver extends BroadcastReceiver {
+
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!NetworkStatus.isConnected(context)) {
+                return;
+            }
+
+            // Only refresh feeds that couldn't be refreshed before
+            Loader<List<News>> newsLoader = getLoaderManager().getLoader(NEWS_LOADER_ID);
+            if (newsLoader instanceof NewsLoader && ((NewsLoader) newsLoader).isServingStale()) {
+                ((NewsLoader) newsLoader).revalidate();
+            }
+        }
+    }
+
+    /**
+     * Executor running tasks on the main thread.
+     */
+    private static class MainThreadExecutor implements Executor {
+
+        private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable task) {
+            mainThreadHandler.post(task);
+        }
     }
 }
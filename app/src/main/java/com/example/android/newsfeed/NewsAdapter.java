@@ -1,100 +1,258 @@
 package com.example.android.newsfeed;
 
-import android.content.Context;
-import android.util.Log;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
+import java.util.List;
 
 /**
  * Adapter class for populating the viewport with news efficiently.
+ * <p>
+ * New lists are diffed against the current one on a background thread, so that only rows whose
+ * news changed are rebound. Rows are identified by their news URL.
+ * <p>
+ * Thumbnails are loaded in the background. A row that's recycled cancels the loading of its
+ * thumbnail, so a fling through hundreds of news only loads what stays on screen.
+ * <p>
+ * News the user already read are dimmed.
  */
-public class NewsAdapter extends ArrayAdapter {
+public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.NewsViewHolder> {
 
     /**
-     * Define tag for logging origin of errors / exceptions.
+     * Listener notified when a news item is clicked.
      */
-    private static final String LOG_TAG = NewsQuery.class.getName();
+    public interface OnNewsClickListener {
 
-    public NewsAdapter(Context context, ArrayList<News> news) {
-        super(context, 0, news);
+        /**
+         * Called when a news item is clicked.
+         *
+         * @param news News that was clicked.
+         */
+        void onNewsClick(News news);
     }
 
     /**
-     * Build view using object at index 'position' and return it.
+     * Opacity of the rows of news already read.
+     */
+    private static final float READ_NEWS_ALPHA = 0.5f;
+
+    /**
+     * Callback telling the differ which news are the same story, and whether their content changed.
+     */
+    private static final DiffUtil.ItemCallback<News> NEWS_DIFF_CALLBACK = new DiffUtil.ItemCallback<News>() {
+        @Override
+        public boolean areItemsTheSame(News oldNews, News newNews) {
+            return oldNews.getUrl().equals(newNews.getUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(News oldNews, News newNews) {
+            return oldNews.getTitle().equals(newNews.getTitle())
+                    && oldNews.getSection().equals(newNews.getSection())
+                    && oldNews.getPublicationTimeMillis() == newNews.getPublicationTimeMillis()
+                    && oldNews.getAuthorsLine().equals(newNews.getAuthorsLine())
+                    && sameThumbnail(oldNews, newNews);
+        }
+    };
+
+    /**
+     * Differ holding the current list and computing updates in the background.
+     */
+    private final AsyncListDiffer<News> differ = new AsyncListDiffer<>(this, NEWS_DIFF_CALLBACK);
+
+    /**
+     * Listener notified when a news item is clicked.
+     */
+    private final OnNewsClickListener onNewsClickListener;
+
+    /**
+     * Loader of the thumbnails of the rows.
+     */
+    private final ThumbnailLoader thumbnailLoader;
+
+    /**
+     * Store of the news already read.
+     */
+    private final ReadStateStore readStateStore;
+
+    // Size of thumbnails, in pixels, read once the first row is created
+    private int thumbnailWidth;
+    private int thumbnailHeight;
+
+    /**
+     * Instantiate an empty adapter.
      *
-     * @param position    Index of the current news object to display.
-     * @param convertView Potential view from scrap pile -- for recycling views.
-     * @param parent      Parent view group of the view we're inflating or recycling.
-     * @return Fully-built view to display.
+     * @param onNewsClickListener Listener notified when a news item is clicked.
+     * @param thumbnailLoader     Loader of the thumbnails of the rows.
+     * @param readStateStore      Store of the news already read, whose rows are dimmed.
      */
+    public NewsAdapter(OnNewsClickListener onNewsClickListener, ThumbnailLoader thumbnailLoader, ReadStateStore readStateStore) {
+        this.onNewsClickListener = onNewsClickListener;
+        this.thumbnailLoader = thumbnailLoader;
+        this.readStateStore = readStateStore;
+
+        // Let the RecyclerView keep track of rows across updates
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replace the displayed news. The difference with the current list is computed in the
+     * background, and only the rows that changed are updated.
+     *
+     * @param news New list of news. It's copied, so the caller may keep modifying it.
+     */
+    public void submitList(List<News> news) {
+        differ.submitList(news == null ? null : new ArrayList<>(news));
+    }
+
+    /**
+     * Get the news displayed at a position.
+     *
+     * @param position Adapter position.
+     * @return News object.
+     */
+    public News getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
 
-        // Recycle of inflate view
-        View newsItemView = convertView;
-        if (newsItemView == null) {
-            newsItemView = LayoutInflater.from(getContext()).inflate(R.layout.news_item_view, parent, false);
+    /**
+     * Derive a stable row ID from the news URL.
+     *
+     * @param position Adapter position.
+     * @return 64-bit hash of the news URL.
+     */
+    @Override
+    public long getItemId(int position) {
+        return ReadStateStore.hashUrl(getItem(position).getUrl());
+    }
+
+    /**
+     * Inflate a row and cache its views in a view holder.
+     *
+     * @param parent   Parent view group of the row.
+     * @param viewType Type of the row -- there's only one.
+     * @return View holder for the new row.
+     */
+    @Override
+    public NewsViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (thumbnailWidth == 0) {
+            thumbnailWidth = parent.getResources().getDimensionPixelSize(R.dimen.news_thumbnail_width);
+            thumbnailHeight = parent.getResources().getDimensionPixelSize(R.dimen.news_thumbnail_height);
         }
 
-        // Get current news object
-        final News currentNews = (News) getItem(position);
+        View newsItemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.news_item_view, parent, false);
+        return new NewsViewHolder(newsItemView);
+    }
+
+    /**
+     * Bind the news at a position to a row.
+     *
+     * @param holder   View holder of the row.
+     * @param position Index of the news object to display.
+     */
+    @Override
+    public void onBindViewHolder(NewsViewHolder holder, int position) {
+        long bindStartNanos = System.nanoTime();
 
-        // Set title
-        TextView titleTextView = newsItemView.findViewById(R.id.news_title_text_view);
-        titleTextView.setText(currentNews.getTitle());
+        // Get current news object
+        News currentNews = getItem(position);
 
-        // Set section
-        TextView sectionTextView = newsItemView.findViewById(R.id.news_section_text_view);
-        sectionTextView.setText(currentNews.getSection());
+        // Set title, section, date and authors -- all precomputed, so setting them allocates nothing
+        holder.titleTextView.setText(currentNews.getTitle());
+        holder.sectionTextView.setText(currentNews.getSection());
+        holder.dateTextView.setText(currentNews.getDateLine());
+        holder.authorsTextView.setText(currentNews.getAuthorsLine());
 
-        // Set date
-        String dateToDisplay = formatDate(currentNews.getDate());
-        TextView dateTextView = newsItemView.findViewById(R.id.news_date_text_view);
-        dateTextView.setText(dateToDisplay);
+        // Dim news already read -- a lookup in a table of longs, which allocates nothing
+        holder.itemView.setAlpha(readStateStore.isRead(currentNews.getUrl()) ? READ_NEWS_ALPHA : 1f);
 
-        // Set authors
-        TextView authorsTextView = newsItemView.findViewById(R.id.news_authors_text_view);
-        authorsTextView.setText(String.join(", ", currentNews.getAuthors()));
+        // Load thumbnail, dropping whatever the row was loading for its previous news
+        holder.cancelThumbnailRequest();
+        String thumbnailUrl = currentNews.getThumbnailUrl();
+        if (thumbnailUrl == null) {
+            holder.thumbnailImageView.setVisibility(View.GONE);
+        } else {
+            holder.thumbnailImageView.setVisibility(View.VISIBLE);
+            holder.thumbnailRequest = thumbnailLoader.load(thumbnailUrl, holder.thumbnailImageView, thumbnailWidth, thumbnailHeight);
+        }
 
-        return newsItemView;
+        NewsMetrics.getDefault().recordStage(NewsMetrics.Stage.BIND, System.nanoTime() - bindStartNanos);
     }
 
     /**
-     * Return formatted date string.
+     * Stop loading the thumbnail of a row that scrolled off screen, and let go of its bitmap.
      *
-     * @param dateString Input string date in format "yyyy-MM-dd".
-     * @return Output string date in format "MMM dd, yyyy".
+     * @param holder View holder of the recycled row.
      */
-    private String formatDate(String dateString) {
-        // If date is empty, return early
-        if (dateString == "") {
-            return "Date N/A";
-        }
+    @Override
+    public void onViewRecycled(NewsViewHolder holder) {
+        holder.cancelThumbnailRequest();
+        holder.thumbnailImageView.setImageDrawable(null);
+    }
+
+    /**
+     * View holder caching the views of a row, so they're only looked up once.
+     */
+    class NewsViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
-        // Instantiate parser for parsing input string date
-        SimpleDateFormat dateParser = new SimpleDateFormat("yyyy-MM-dd");
+        final TextView titleTextView;
+        final TextView sectionTextView;
+        final TextView dateTextView;
+        final TextView authorsTextView;
+        final ImageView thumbnailImageView;
 
-        // Try to parse input string date
-        Date date = null;
-        try {
-            date = dateParser.parse(dateString);
-        } catch (ParseException exception) {
-            Log.e(LOG_TAG, "Problem parsing the date: ", exception);
+        /**
+         * Loading of the thumbnail of the row, or null if there's none in progress.
+         */
+        ThumbnailLoader.Request thumbnailRequest;
+
+        NewsViewHolder(View newsItemView) {
+            super(newsItemView);
+            titleTextView = newsItemView.findViewById(R.id.news_title_text_view);
+            sectionTextView = newsItemView.findViewById(R.id.news_section_text_view);
+            dateTextView = newsItemView.findViewById(R.id.news_date_text_view);
+            authorsTextView = newsItemView.findViewById(R.id.news_authors_text_view);
+            thumbnailImageView = newsItemView.findViewById(R.id.news_thumbnail_image_view);
+            newsItemView.setOnClickListener(this);
+        }
+
+        void cancelThumbnailRequest() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
         }
 
-        // Instantiate formatter for formatting output string date
-        SimpleDateFormat dateFormatter = new SimpleDateFormat("  •  MMM dd, ''yy");
+        @Override
+        public void onClick(View clickedItemView) {
+            // Ignore clicks on rows that are being removed
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                onNewsClickListener.onNewsClick(getItem(position));
+
+                // Bind the row again, so it's dimmed if the listener marked the news read
+                notifyItemChanged(position);
+            }
+        }
+    }
 
-        // Return formatted date
-        return dateFormatter.format(date);
+    /**
+     * Check whether two news have the same thumbnail, or both have none.
+     */
+    private static boolean sameThumbnail(News oldNews, News newNews) {
+        String oldThumbnailUrl = oldNews.getThumbnailUrl();
+        return oldThumbnailUrl == null ? newNews.getThumbnailUrl() == null : oldThumbnailUrl.equals(newNews.getThumbnailUrl());
     }
 }
@@ -0,0 +1,441 @@
+package com.example.android.newsfeed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar storage for a block of news, of which {@link News} objects are lightweight views.
+ * <p>
+ * Thousands of cached news share a few dozen sections and a few hundred contributors. Rather than
+ * each news holding its own copies, section and author names -- along with the display lines built
+ * from them -- are interned in dictionaries and stored as int IDs. Author lists are slices of a
+ * single int array, and publication dates are stored as longs.
+ * <p>
+ * Dictionaries are shared by the stores of an {@link Appender}, that is by the news of one parse
+ * or one cache entry, and go away with them. Names seen once in a feed never outlive its news.
+ * <p>
+ * A store has a fixed capacity, so its arrays never move: once a news is added, its view can be
+ * handed to other threads. A store is filled by a single thread, and {@link Appender} starts a new
+ * store whenever the current one is full.
+ */
+public final class NewsArticleStore {
+
+    /**
+     * Number of news a store holds, unless told otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Largest capacity an appender gives its stores, whatever the number of news expected.
+     */
+    private static final int MAX_APPENDER_CAPACITY = 1024;
+
+    /**
+     * Average number of authors per news stores make room for.
+     */
+    private static final int AUTHORS_PER_NEWS = 2;
+
+    // Sizes used to estimate the heap footprint, in bytes, assuming compressed references
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int STRING_BYTES = 24;
+    private static final int MAP_ENTRY_BYTES = 32;
+    private static final int BOXED_INTEGER_BYTES = 16;
+
+    // Declare columns, indexed by row
+    private final String[] urls;
+    private final String[] titles;
+    private final String[] thumbnailUrls;
+    private final int[] sectionIds;
+    private final long[] publicationTimesMillis;
+    private final int[] dateLineIds;
+    private final int[] authorsLineIds;
+
+    /**
+     * Authors of the news at row i are authorIds[authorStarts[i]] to authorIds[authorStarts[i + 1] - 1].
+     */
+    private final int[] authorStarts;
+    private final int[] authorIds;
+
+    /**
+     * Dictionaries of the section and author names and display lines of the rows.
+     */
+    private final Dictionaries dictionaries;
+
+    /**
+     * Number of rows filled.
+     */
+    private int size;
+
+    /**
+     * Instantiate a store with room for the given number of news, and twice as many authors.
+     *
+     * @param capacity Maximum number of news.
+     */
+    public NewsArticleStore(int capacity) {
+        this(capacity, capacity * AUTHORS_PER_NEWS);
+    }
+
+    /**
+     * Instantiate a store with dictionaries of its own.
+     *
+     * @param capacity       Maximum number of news.
+     * @param authorCapacity Maximum number of authors, over all news.
+     */
+    public NewsArticleStore(int capacity, int authorCapacity) {
+        this(capacity, authorCapacity, new Dictionaries());
+    }
+
+    /**
+     * Instantiate a store sharing dictionaries with other stores.
+     *
+     * @param capacity       Maximum number of news.
+     * @param authorCapacity Maximum number of authors, over all news.
+     * @param dictionaries   Dictionaries of the names and display lines of the rows.
+     */
+    NewsArticleStore(int capacity, int authorCapacity, Dictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+        urls = new String[capacity];
+        titles = new String[capacity];
+        thumbnailUrls = new String[capacity];
+        sectionIds = new int[capacity];
+        publicationTimesMillis = new long[capacity];
+        dateLineIds = new int[capacity];
+        authorsLineIds = new int[capacity];
+        authorStarts = new int[capacity + 1];
+        authorIds = new int[authorCapacity];
+    }
+
+    /**
+     * @return Number of news in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether a news fits in the store.
+     *
+     * @param authorCount Number of authors of the news.
+     * @return true if the store has a free row and room for the authors.
+     */
+    public boolean hasRoomFor(int authorCount) {
+        return size < urls.length && authorStarts[size] + authorCount <= authorIds.length;
+    }
+
+    /**
+     * Add a news to the store.
+     *
+     * @param url     URL of the news.
+     * @param title   Title of the news.
+     * @param section Section name.
+     * @param date    Publication date as sent by the API, or an empty string.
+     * @param authors Author names.
+     * @return View of the news.
+     * @throws IllegalStateException if the store is full.
+     */
+    public News add(String url, String title, String section, String date, List<String> authors) {
+        return add(url, title, section, date, authors, null);
+    }
+
+    /**
+     * Add a news to the store.
+     *
+     * @param url          URL of the news.
+     * @param title        Title of the news.
+     * @param section      Section name.
+     * @param date         Publication date as sent by the API, or an empty string.
+     * @param authors      Author names.
+     * @param thumbnailUrl URL of the thumbnail of the news, or null if it has none.
+     * @return View of the news.
+     * @throws IllegalStateException if the store is full.
+     */
+    public News add(String url, String title, String section, String date, List<String> authors, String thumbnailUrl) {
+        return new News(this, addRow(url, title, section, date, authors, thumbnailUrl));
+    }
+
+    /**
+     * Fill the next row of the store.
+     *
+     * @return Index of the row.
+     * @throws IllegalStateException if the store is full.
+     */
+    int addRow(String url, String title, String section, String date, List<String> authors, String thumbnailUrl) {
+        if (!hasRoomFor(authors.size())) {
+            throw new IllegalStateException("No room for another news in the store");
+        }
+
+        int row = size;
+        urls[row] = url;
+        titles[row] = title;
+        thumbnailUrls[row] = thumbnailUrl;
+        sectionIds[row] = dictionaries.sections.intern(section);
+
+        // Dates are parsed and formatted once, here, so binding a news only reads fields
+        long publicationTimeMillis = NewsDates.parsePublicationDate(date);
+        publicationTimesMillis[row] = publicationTimeMillis;
+        dateLineIds[row] = dictionaries.displayLines.intern(NewsDates.formatDateLine(publicationTimeMillis));
+
+        int authorEnd = authorStarts[row];
+        for (int i = 0; i < authors.size(); i++) {
+            authorIds[authorEnd++] = dictionaries.authors.intern(authors.get(i));
+        }
+        authorStarts[row + 1] = authorEnd;
+        authorsLineIds[row] = dictionaries.displayLines.intern(joinAuthors(row));
+
+        size++;
+        return row;
+    }
+
+    // Define row accessors, used by the views
+    String url(int row) {
+        return urls[row];
+    }
+
+    String title(int row) {
+        return titles[row];
+    }
+
+    String thumbnailUrl(int row) {
+        return thumbnailUrls[row];
+    }
+
+    String section(int row) {
+        return dictionaries.sections.get(sectionIds[row]);
+    }
+
+    long publicationTimeMillis(int row) {
+        return publicationTimesMillis[row];
+    }
+
+    String dateLine(int row) {
+        return dictionaries.displayLines.get(dateLineIds[row]);
+    }
+
+    String authorsLine(int row) {
+        return dictionaries.displayLines.get(authorsLineIds[row]);
+    }
+
+    int authorCount(int row) {
+        return authorStarts[row + 1] - authorStarts[row];
+    }
+
+    String author(int row, int index) {
+        return dictionaries.authors.get(authorIds[authorStarts[row] + index]);
+    }
+
+    /**
+     * Join the author names of a row with commas.
+     *
+     * @param row Row whose authors are set.
+     * @return Author names separated by commas, or an empty string if there are none.
+     */
+    private String joinAuthors(int row) {
+        int authorCount = authorCount(row);
+
+        // Most news have a single author, whose interned name can be reused as is
+        if (authorCount == 1) {
+            return author(row, 0);
+        }
+
+        StringBuilder authorsLine = new StringBuilder();
+        for (int i = 0; i < authorCount; i++) {
+            if (i > 0) {
+                authorsLine.append(", ");
+            }
+            authorsLine.append(author(row, i));
+        }
+        return authorsLine.toString();
+    }
+
+    /**
+     * @return Dictionaries of the store, which it may share with other stores.
+     */
+    Dictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Estimate the heap taken by the store, including a view per news but not its dictionaries,
+     * which may be shared.
+     *
+     * @return Estimated size in bytes.
+     */
+    public long estimateHeapBytes() {
+        long bytes = align(OBJECT_HEADER_BYTES + 10 * REFERENCE_BYTES + 4)
+                + 3 * arrayBytes(urls.length, REFERENCE_BYTES)
+                + 3 * arrayBytes(sectionIds.length, 4)
+                + arrayBytes(publicationTimesMillis.length, 8)
+                + arrayBytes(authorStarts.length, 4)
+                + arrayBytes(authorIds.length, 4);
+
+        for (int row = 0; row < size; row++) {
+            bytes += stringBytes(urls[row]) + stringBytes(titles[row]) + stringBytes(thumbnailUrls[row]) + News.VIEW_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimate the heap taken by a string. ASCII strings are compacted to one byte per character, by
+     * ART and by desktop JVMs alike; others take two.
+     *
+     * @param string String, or null.
+     * @return Estimated size in bytes.
+     */
+    static long stringBytes(String string) {
+        if (string == null) {
+            return 0;
+        }
+
+        int charBytes = 1;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0x7f) {
+                charBytes = 2;
+                break;
+            }
+        }
+        return STRING_BYTES + arrayBytes(string.length(), charBytes);
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + (long) length * elementBytes);
+    }
+
+    /**
+     * Round a size up to the 8-byte alignment of heap objects.
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Appender adding news to stores, starting a new store whenever the current one is full.
+     * <p>
+     * Not thread-safe: news of an appender are meant to be created by a single thread.
+     */
+    public static final class Appender {
+
+        private final int storeCapacity;
+        private final Dictionaries dictionaries = new Dictionaries();
+        private NewsArticleStore store;
+
+        /**
+         * Instantiate an appender.
+         *
+         * @param storeCapacity Number of news each store holds. Best set to the number of news expected.
+         */
+        public Appender(int storeCapacity) {
+            this.storeCapacity = Math.max(1, Math.min(storeCapacity, MAX_APPENDER_CAPACITY));
+        }
+
+        /**
+         * Add a news to the current store, or to a new one if it's full.
+         *
+         * @return View of the news.
+         */
+        public News append(String url, String title, String section, String date, List<String> authors) {
+            return append(url, title, section, date, authors, null);
+        }
+
+        /**
+         * Add a news with a thumbnail to the current store, or to a new one if it's full.
+         *
+         * @return View of the news.
+         */
+        public News append(String url, String title, String section, String date, List<String> authors, String thumbnailUrl) {
+            if (store == null || !store.hasRoomFor(authors.size())) {
+                store = new NewsArticleStore(storeCapacity, Math.max(storeCapacity * AUTHORS_PER_NEWS, authors.size()), dictionaries);
+            }
+            return store.add(url, title, section, date, authors, thumbnailUrl);
+        }
+    }
+
+    /**
+     * Dictionaries of section names, author names and display lines, shared by a group of stores.
+     */
+    static final class Dictionaries {
+
+        final Dictionary sections = new Dictionary();
+        final Dictionary authors = new Dictionary();
+        final Dictionary displayLines = new Dictionary();
+
+        /**
+         * @return Estimated heap taken by the dictionaries, in bytes.
+         */
+        long estimateHeapBytes() {
+            return align(OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES)
+                    + sections.estimateHeapBytes() + authors.estimateHeapBytes() + displayLines.estimateHeapBytes();
+        }
+    }
+
+    /**
+     * Dictionary assigning each distinct string a small int ID, for the lifetime of its stores.
+     * <p>
+     * Interning is synchronized. Lookups aren't: a thread gets IDs from a store that was safely
+     * handed over, after the strings were published through the volatile array.
+     */
+    static final class Dictionary {
+
+        /**
+         * IDs by string. Guarded by this.
+         */
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        /**
+         * Strings by ID. Only replaced, by a larger copy, while holding the lock.
+         */
+        private volatile String[] values = new String[16];
+
+        /**
+         * Number of strings. Guarded by this.
+         */
+        private int size;
+
+        /**
+         * Get the ID of a string, assigning it one if it's new.
+         *
+         * @param value String to intern.
+         * @return ID of the string.
+         */
+        synchronized int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+
+            String[] currentValues = values;
+            if (size == currentValues.length) {
+                currentValues = Arrays.copyOf(currentValues, size * 2);
+            }
+            currentValues[size] = value;
+            values = currentValues;
+            ids.put(value, size);
+            return size++;
+        }
+
+        /**
+         * @param id ID returned by {@link #intern(String)}.
+         * @return String with that ID.
+         */
+        String get(int id) {
+            return values[id];
+        }
+
+        /**
+         * @return Estimated heap taken by the dictionary, in bytes.
+         */
+        synchronized long estimateHeapBytes() {
+            // Strings by ID, plus a hash map entry and a boxed ID for each
+            long bytes = arrayBytes(values.length, REFERENCE_BYTES)
+                    + arrayBytes(Integer.highestOneBit(Math.max(1, size) * 2), REFERENCE_BYTES)
+                    + (long) size * (MAP_ENTRY_BYTES + BOXED_INTEGER_BYTES);
+            for (int id = 0; id < size; id++) {
+                bytes += stringBytes(values[id]);
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser callback collecting news as they're parsed, and handing them out in small batches while
+ * the rest of the response is still downloading.
+ * <p>
+ * On a slow link, most of a response may have arrived long before its last byte. Publishing the
+ * news parsed so far every few entries lets the feed fill its first screen as soon as the first
+ * batch is read, rather than once the whole body is in.
+ */
+public class NewsBatcher implements NewsJsonParser.NewsCallback {
+
+    /**
+     * Number of news per batch: about as many rows as fit on a phone screen, so the first batch
+     * fills it.
+     */
+    static final int DEFAULT_BATCH_SIZE = 6;
+
+    /**
+     * Listener receiving the news parsed so far, one batch at a time.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the parsing thread each time another batch of news was parsed. The news parsed
+         * after the last full batch only come with the result of the fetch.
+         * <p>
+         * A request that is retried starts over, so a batch may hold fewer news than the previous one.
+         *
+         * @param parsedNews News parsed so far, in response order. The list belongs to the listener.
+         */
+        void onNewsBatch(List<News> parsedNews);
+    }
+
+    private final List<News> news = new ArrayList<>();
+    private final Listener listener;
+    private final int batchSize;
+
+    /**
+     * Number of news already handed to the listener.
+     */
+    private int publishedCount;
+
+    /**
+     * Instantiate a batcher publishing batches of the default size.
+     *
+     * @param listener Listener receiving the news parsed so far.
+     */
+    public NewsBatcher(Listener listener) {
+        this(listener, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Instantiate a batcher.
+     *
+     * @param listener  Listener receiving the news parsed so far.
+     * @param batchSize Number of news parsed between two batches.
+     */
+    public NewsBatcher(Listener listener, int batchSize) {
+        this.listener = listener;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onNews(News parsedNews) {
+        news.add(parsedNews);
+        if (news.size() - publishedCount >= batchSize) {
+            publishedCount = news.size();
+            listener.onNewsBatch(new ArrayList<>(news));
+        }
+    }
+
+    /**
+     * @return Every news parsed, in response order.
+     */
+    public List<News> getNews() {
+        return news;
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk-backed cache of parsed news, keyed by query URL.
+ * <p>
+ * Each query is stored in its own file, encoded with {@link NewsCodec}. Entries older than the
+ * time-to-live are still returned, but flagged as stale so callers can revalidate them. Once the
+ * cache grows past its maximum size, the least recently used entries are evicted.
+ */
+public class NewsCache {
+
+    /**
+     * Name of the cache directory, within the app cache directory.
+     */
+    private static final String CACHE_DIRECTORY_NAME = "news";
+
+    /**
+     * Extension of cache files.
+     */
+    private static final String CACHE_FILE_EXTENSION = ".bin";
+
+    /**
+     * Process-wide instance, shared by all loaders.
+     */
+    private static NewsCache instance;
+
+    /**
+     * Directory holding cache files.
+     */
+    private final File directory;
+
+    /**
+     * Maximum total size of cache files, in bytes.
+     */
+    private final long maxSizeBytes;
+
+    /**
+     * Time after which an entry is considered stale, in milliseconds.
+     */
+    private final long timeToLiveMillis;
+
+    /**
+     * Size of each cache file, by file name, in least recently used order. Lazily built.
+     */
+    private LinkedHashMap<String, Long> fileSizes;
+
+    /**
+     * Total size of cache files, in bytes.
+     */
+    private long totalSizeBytes;
+
+    /**
+     * Cached news for a query, along with the time at which they were stored.
+     */
+    public static class Entry {
+
+        private final List<News> news;
+        private final long savedAtMillis;
+        private final boolean fresh;
+
+        Entry(List<News> news, long savedAtMillis, boolean fresh) {
+            this.news = news;
+            this.savedAtMillis = savedAtMillis;
+            this.fresh = fresh;
+        }
+
+        public List<News> getNews() {
+            return news;
+        }
+
+        public long getSavedAtMillis() {
+            return savedAtMillis;
+        }
+
+        /**
+         * @return true if the entry is younger than the cache's time-to-live.
+         */
+        public boolean isFresh() {
+            return fresh;
+        }
+    }
+
+    /**
+     * Instantiate a cache storing its files in the given directory.
+     *
+     * @param directory        Directory holding cache files. Created if it doesn't exist.
+     * @param maxSizeBytes     Maximum total size of cache files, in bytes.
+     * @param timeToLiveMillis Time after which an entry is considered stale, in milliseconds.
+     */
+    public NewsCache(File directory, long maxSizeBytes, long timeToLiveMillis) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Get the process-wide cache, sized and timed according to the app configuration.
+     *
+     * @param context Any context, used to locate the cache directory and read configuration.
+     * @return Shared cache instance.
+     */
+    public static synchronized NewsCache getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            File directory = new File(appContext.getCacheDir(), CACHE_DIRECTORY_NAME);
+            long maxSizeBytes = appContext.getResources().getInteger(R.integer.news_cache_max_size_kb) * 1024L;
+            long timeToLiveMillis = appContext.getResources().getInteger(R.integer.news_cache_ttl_minutes) * 60L * 1000L;
+            instance = new NewsCache(directory, maxSizeBytes, timeToLiveMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Build the cache key of a set of queries, independent of their order.
+     *
+     * @param queryUrls URLs used for querying API.
+     * @return Normalized query URLs, sorted and separated by spaces.
+     */
+    public static String keyFor(List<String> queryUrls) {
+        List<String> normalizedUrls = new ArrayList<>(queryUrls.size());
+        for (String queryUrl : queryUrls) {
+            normalizedUrls.add(NewsQuery.normalizeQueryUrl(queryUrl));
+        }
+        Collections.sort(normalizedUrls);
+
+        StringBuilder cacheKey = new StringBuilder();
+        for (String normalizedUrl : normalizedUrls) {
+            if (cacheKey.length() > 0) {
+                cacheKey.append(' ');
+            }
+            cacheKey.append(normalizedUrl);
+        }
+        return cacheKey.toString();
+    }
+
+    /**
+     * Get cached news for a query.
+     *
+     * @param key Normalized query URL.
+     * @return Cached entry, or null if the query isn't cached or its file can't be read.
+     */
+    public synchronized Entry get(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            // Guard against hash collisions by checking the stored key
+            if (!key.equals(input.readUTF())) {
+                return null;
+            }
+            long savedAtMillis = input.readLong();
+            List<News> news = NewsCodec.readNews(input);
+
+            // Mark entry as most recently used
+            touch(file);
+
+            boolean fresh = System.currentTimeMillis() - savedAtMillis < timeToLiveMillis;
+            return new Entry(news, savedAtMillis, fresh);
+        } catch (IOException exception) {
+            // Corrupted or outdated entry: drop it
+            remove(file);
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Store news for a query, replacing any previous entry, then evict entries if needed.
+     *
+     * @param key  Normalized query URL.
+     * @param news List of news objects to store.
+     * @throws IOException if the entry can't be written.
+     */
+    public synchronized void put(String key, List<News> news) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create cache directory: " + directory);
+        }
+
+        // Index files before writing, as indexing clears leftover temporary files
+        loadIndex();
+
+        // Write to a temporary file first, so readers never see a partial entry
+        File file = fileFor(key);
+        File temporaryFile = new File(directory, file.getName() + ".tmp");
+
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+            output.writeUTF(key);
+            output.writeLong(System.currentTimeMillis());
+            NewsCodec.writeNews(output, news);
+
+            // Close explicitly, so a failure to flush is reported rather than swallowed
+            output.close();
+            output = null;
+        } finally {
+            closeQuietly(output);
+        }
+
+        remove(file);
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Can't write cache file: " + file);
+        }
+
+        touch(file);
+        evict();
+    }
+
+    /**
+     * @return Total size of cache files, in bytes.
+     */
+    public synchronized long size() {
+        loadIndex();
+        return totalSizeBytes;
+    }
+
+    /**
+     * Get the file storing the entry of a query.
+     *
+     * @param key Normalized query URL.
+     * @return Cache file, which may not exist.
+     */
+    private File fileFor(String key) {
+        return new File(directory, hash(key) + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * Mark a file as most recently used, both in memory and on disk.
+     *
+     * @param file Existing cache file.
+     */
+    private void touch(File file) {
+        loadIndex();
+
+        Long previousSize = fileSizes.remove(file.getName());
+        if (previousSize != null) {
+            totalSizeBytes -= previousSize;
+        }
+
+        long size = file.length();
+        fileSizes.put(file.getName(), size);
+        totalSizeBytes += size;
+
+        // Persist recency across launches
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Delete a cache file, if it exists.
+     *
+     * @param file Cache file.
+     */
+    private void remove(File file) {
+        loadIndex();
+
+        Long size = fileSizes.remove(file.getName());
+        if (size != null) {
+            totalSizeBytes -= size;
+        }
+        file.delete();
+    }
+
+    /**
+     * Delete least recently used files until the cache fits its maximum size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = fileSizes.entrySet().iterator();
+
+        while (totalSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(directory, eldest.getKey()).delete();
+            totalSizeBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Build the in-memory index of cache files, ordered by last use, on first access.
+     */
+    private void loadIndex() {
+        if (fileSizes != null) {
+            return;
+        }
+
+        fileSizes = new LinkedHashMap<>();
+        totalSizeBytes = 0;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // Order files from least to most recently used
+        List<File> cacheFiles = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+
+        for (File file : cacheFiles) {
+            if (file.getName().endsWith(CACHE_FILE_EXTENSION)) {
+                fileSizes.put(file.getName(), file.length());
+                totalSizeBytes += file.length();
+            } else {
+                // Leftover temporary file from an interrupted write
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Hash a key into a string usable as file name.
+     *
+     * @param key Normalized query URL.
+     * @return Hexadecimal SHA-1 digest of the key.
+     */
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | IOException exception) {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Close a stream, ignoring errors.
+     *
+     * @param closeable Stream to close, may be null.
+     */
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing left to do
+            }
+        }
+    }
+}
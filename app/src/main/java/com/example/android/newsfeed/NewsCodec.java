@@ -0,0 +1,105 @@
+package com.example.android.newsfeed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of news lists, used to persist parsed news without going through JSON.
+ * <p>
+ * Layout: format version (int), news count (int), then for each news its URL, title, section and
+ * date as modified UTF-8 strings, followed by its author count (short), author names and thumbnail
+ * URL -- an empty string if it has none.
+ */
+public final class NewsCodec {
+
+    /**
+     * Version of the encoding. Bump it whenever the layout changes, so stale data is discarded.
+     */
+    static final int FORMAT_VERSION = 2;
+
+    /**
+     * Largest number of news lists are sized for up front. The count is read from disk, so a
+     * corrupted one mustn't decide how much memory is allocated: longer lists grow as news are read.
+     */
+    private static final int MAX_PRESIZED_COUNT = 1024;
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private NewsCodec() {
+    }
+
+    /**
+     * Encode a list of news.
+     *
+     * @param output Destination of the encoded bytes.
+     * @param news   List of news objects to encode.
+     * @throws IOException if writing fails.
+     */
+    public static void writeNews(DataOutput output, List<News> news) throws IOException {
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(news.size());
+
+        for (News currentNews : news) {
+            output.writeUTF(currentNews.getUrl());
+            output.writeUTF(currentNews.getTitle());
+            output.writeUTF(currentNews.getSection());
+            output.writeUTF(currentNews.getDate());
+
+            int authorCount = currentNews.getAuthorCount();
+            output.writeShort(authorCount);
+            for (int i = 0; i < authorCount; i++) {
+                output.writeUTF(currentNews.getAuthor(i));
+            }
+
+            String thumbnailUrl = currentNews.getThumbnailUrl();
+            output.writeUTF(thumbnailUrl == null ? "" : thumbnailUrl);
+        }
+    }
+
+    /**
+     * Decode a list of news previously encoded with {@link #writeNews(DataOutput, List)}.
+     *
+     * @param input Source of the encoded bytes.
+     * @return List of news objects.
+     * @throws IOException if reading fails, if the data was written with another format version,
+     *                     or if it's corrupted.
+     */
+    public static List<News> readNews(DataInput input) throws IOException {
+        int version = input.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported news format version: " + version);
+        }
+
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupted news count: " + count);
+        }
+
+        // A count larger than the data holds ends with an EOFException, before much is allocated
+        List<News> news = new ArrayList<>(Math.min(count, MAX_PRESIZED_COUNT));
+        NewsArticleStore.Appender appender = new NewsArticleStore.Appender(Math.min(count, MAX_PRESIZED_COUNT));
+
+        for (int i = 0; i < count; i++) {
+            String url = input.readUTF();
+            String title = input.readUTF();
+            String section = input.readUTF();
+            String date = input.readUTF();
+
+            int authorCount = input.readUnsignedShort();
+            ArrayList<String> authors = new ArrayList<>(authorCount);
+            for (int j = 0; j < authorCount; j++) {
+                authors.add(input.readUTF());
+            }
+
+            String thumbnailUrl = input.readUTF();
+
+            news.add(appender.append(url, title, section, date, authors, thumbnailUrl.isEmpty() ? null : thumbnailUrl));
+        }
+
+        return news;
+    }
+}
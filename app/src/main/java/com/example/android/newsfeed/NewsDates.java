@@ -0,0 +1,190 @@
+package com.example.android.newsfeed;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Utility class for parsing and formatting news publication dates.
+ * <p>
+ * SimpleDateFormat is expensive to create and isn't thread-safe, so each thread gets its own
+ * cached instance of each format.
+ */
+public final class NewsDates {
+
+    /**
+     * Value returned when a publication date is missing or can't be parsed.
+     */
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    /**
+     * Text displayed when a publication date is missing or can't be parsed.
+     */
+    private static final String UNKNOWN_DATE_LINE = "Date N/A";
+
+    /**
+     * Parser and formatter for the API's timestamps, e.g. "2018-11-27T19:15:12Z".
+     */
+    private static final ThreadLocal<SimpleDateFormat> TIMESTAMP_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+            parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return parser;
+        }
+    };
+
+    /**
+     * Parser for bare dates, e.g. "2018-11-27", used when a timestamp has no time part.
+     */
+    private static final ThreadLocal<SimpleDateFormat> DATE_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+            parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return parser;
+        }
+    };
+
+    /**
+     * Parser for RSS dates (RFC 822), e.g. "Tue, 27 Nov 2018 19:15:12 GMT" or "... +0100".
+     */
+    private static final ThreadLocal<SimpleDateFormat> RFC_822_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd MMM yyyy HH:mm:ss Z", Locale.US);
+        }
+    };
+
+    /**
+     * Parser for Atom dates (RFC 3339) once normalized, e.g. "2018-11-27T19:15:12+0100".
+     */
+    private static final ThreadLocal<SimpleDateFormat> RFC_3339_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US);
+        }
+    };
+
+    /**
+     * Formatter for the date line displayed under each news, e.g. "  •  Nov 27, '18".
+     */
+    private static final ThreadLocal<SimpleDateFormat> DATE_LINE_FORMATTER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("  •  MMM dd, ''yy");
+        }
+    };
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private NewsDates() {
+    }
+
+    /**
+     * Parse a publication date.
+     *
+     * @param dateString Date as sent by the API, either "yyyy-MM-ddTHH:mm:ssZ" or "yyyy-MM-dd".
+     * @return Milliseconds since the epoch, or {@link #UNKNOWN_DATE}.
+     */
+    public static long parsePublicationDate(String dateString) {
+        // If date is empty, return early
+        if (dateString == null || dateString.isEmpty()) {
+            return UNKNOWN_DATE;
+        }
+
+        SimpleDateFormat parser = dateString.length() > 10 ? TIMESTAMP_PARSER.get() : DATE_PARSER.get();
+        try {
+            return parser.parse(dateString).getTime();
+        } catch (ParseException exception) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Parse the date of an RSS item.
+     *
+     * @param dateString Date in RFC 822 format, with or without day of week, e.g.
+     *                   "Tue, 27 Nov 2018 19:15:12 GMT".
+     * @return Milliseconds since the epoch, or {@link #UNKNOWN_DATE}.
+     */
+    public static long parseRfc822Date(String dateString) {
+        if (dateString == null) {
+            return UNKNOWN_DATE;
+        }
+
+        // The day of week is optional, and redundant
+        String date = dateString.trim();
+        int comma = date.indexOf(',');
+        if (comma >= 0) {
+            date = date.substring(comma + 1).trim();
+        }
+
+        try {
+            return RFC_822_PARSER.get().parse(date).getTime();
+        } catch (ParseException exception) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Parse the date of an Atom entry.
+     *
+     * @param dateString Date in RFC 3339 format, e.g. "2018-11-27T19:15:12Z" or
+     *                   "2018-11-27T19:15:12.345+01:00".
+     * @return Milliseconds since the epoch, or {@link #UNKNOWN_DATE}.
+     */
+    public static long parseRfc3339Date(String dateString) {
+        if (dateString == null || dateString.length() < 20) {
+            return UNKNOWN_DATE;
+        }
+
+        // SimpleDateFormat only reads "+hhmm" offsets before API 24: drop fractions of seconds,
+        // spell UTC as an offset, and remove the colon of offsets
+        String dateTime = dateString.trim().substring(0, 19);
+        String offset = dateString.trim().substring(19);
+        if (offset.startsWith(".")) {
+            int offsetStart = 1;
+            while (offsetStart < offset.length() && Character.isDigit(offset.charAt(offsetStart))) {
+                offsetStart++;
+            }
+            offset = offset.substring(offsetStart);
+        }
+        offset = offset.equalsIgnoreCase("Z") ? "+0000" : offset.replace(":", "");
+
+        try {
+            return RFC_3339_PARSER.get().parse(dateTime + offset).getTime();
+        } catch (ParseException exception) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Format a publication date the way the API sends it.
+     *
+     * @param publicationTimeMillis Milliseconds since the epoch, or {@link #UNKNOWN_DATE}.
+     * @return Date in format "yyyy-MM-ddTHH:mm:ssZ", or an empty string if the date is unknown.
+     */
+    public static String formatPublicationDate(long publicationTimeMillis) {
+        if (publicationTimeMillis == UNKNOWN_DATE) {
+            return "";
+        }
+        return TIMESTAMP_PARSER.get().format(new Date(publicationTimeMillis));
+    }
+
+    /**
+     * Format the date line displayed under a news.
+     *
+     * @param publicationTimeMillis Milliseconds since the epoch, or {@link #UNKNOWN_DATE}.
+     * @return Date in format "  •  MMM dd, 'yy", or a placeholder if the date is unknown.
+     */
+    public static String formatDateLine(long publicationTimeMillis) {
+        if (publicationTimeMillis == UNKNOWN_DATE) {
+            return UNKNOWN_DATE_LINE;
+        }
+        return DATE_LINE_FORMATTER.get().format(new Date(publicationTimeMillis));
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs several news queries concurrently and merges their results into a single feed.
+ * <p>
+ * Queries are sent to a news source all at once, so the total latency tracks the slowest query
+ * rather than the sum of all of them. Each query gets the same timeout, counted from the moment
+ * the fan-out starts: a query that hasn't answered by then is abandoned, and the feed is built
+ * from the others. Merged news are sorted by publication date, newest first, without duplicate URLs
+ * nor near-duplicate titles.
+ * <p>
+ * Callers may follow the merge as it goes: each time a query answers, or parses another batch of
+ * its response, while others are still pending, the news merged so far are handed to a progress
+ * listener. The feed can then show the fastest provider's news without waiting for the slowest,
+ * and the first news of a response without waiting for its last byte.
+ */
+public class NewsFanOut {
+
+    /**
+     * Default time each query is given to answer, in milliseconds.
+     */
+    private static final long DEFAULT_QUERY_TIMEOUT_MILLIS = 12000;
+
+    /**
+     * Time during which identical queries reuse the news of a completed request, in milliseconds.
+     */
+    private static final long QUERY_MEMO_MILLIS = 2000;
+
+    /**
+     * Longest time spent waiting for a single query before checking whether others answered, in
+     * nanoseconds, when following the merge.
+     */
+    private static final long PROGRESS_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /**
+     * Orders news by publication date, newest first. News without date go last.
+     */
+    static final Comparator<News> NEWEST_FIRST = new Comparator<News>() {
+        @Override
+        public int compare(News first, News second) {
+            long firstTime = first.getPublicationTimeMillis();
+            long secondTime = second.getPublicationTimeMillis();
+            return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+        }
+    };
+
+    /**
+     * Listener following the merge of several queries.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called on the thread getting the merged news each time a query answers, or parses
+         * another batch of news, while others are still pending. Not called once the last one
+         * answers: its news come with the merged result.
+         * <p>
+         * With a single query, there's nothing to merge: called on the fetching thread with each
+         * batch of news parsed, in the server's order.
+         *
+         * @param mergedNews News of the queries that answered so far, and those parsed so far from
+         *                   the others, merged.
+         */
+        void onPartialNews(List<News> mergedNews);
+    }
+
+    /**
+     * Fan-out shared by the app, backed by The Guardian's API and the feeds the user follows.
+     */
+    private static NewsFanOut defaultInstance;
+
+    private final NewsSource newsSource;
+    private final long queryTimeoutMillis;
+
+    /**
+     * Instantiate a fan-out.
+     *
+     * @param newsSource         Source answering each query. Its executor bounds concurrency.
+     * @param queryTimeoutMillis Time each query is given to answer, in milliseconds.
+     */
+    public NewsFanOut(NewsSource newsSource, long queryTimeoutMillis) {
+        this.newsSource = newsSource;
+        this.queryTimeoutMillis = queryTimeoutMillis;
+    }
+
+    /**
+     * Get the fan-out shared by the app, which fetches queries from The Guardian's API and from
+     * RSS and Atom feeds. Identical queries from anywhere in the app share their requests.
+     *
+     * @return Shared fan-out.
+     */
+    public static synchronized NewsFanOut getDefault() {
+        if (defaultInstance == null) {
+            NewsSource providers = new AggregatingNewsSource(NewsQueryUrls.NEWS_QUERY_URL,
+                    GuardianNewsSource.getDefault(), FeedNewsSource.getDefault());
+            NewsSource newsSource = new CoalescingNewsSource(providers, QUERY_MEMO_MILLIS);
+            defaultInstance = new NewsFanOut(newsSource, DEFAULT_QUERY_TIMEOUT_MILLIS);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Fetch several queries concurrently and merge their results, blocking until they're done.
+     *
+     * @param queryUrls URLs used to query the API.
+     * @return Merged news, or null if every query failed or timed out, or if the calling thread was
+     * interrupted.
+     */
+    public List<News> fetchAll(List<String> queryUrls) {
+        return await(fetchAllAsync(queryUrls));
+    }
+
+    /**
+     * Wait for pending news, turning every kind of failure into a null result.
+     *
+     * @param pendingNews Pending news.
+     * @return News, or null if fetching failed or was cancelled, or if the calling thread was
+     * interrupted.
+     */
+    static List<News> await(Future<List<News>> pendingNews) {
+        try {
+            return pendingNews.get();
+        } catch (InterruptedException exception) {
+            // The caller gave up: stop all queries and restore the interrupt flag
+            pendingNews.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Start fetching several queries concurrently.
+     * <p>
+     * Getting the result of the returned future merges the results of all queries, waiting for each
+     * of them until the shared deadline at most. Cancelling it cancels all queries, which aborts
+     * their downloads. A single query is passed to the source as it is, and its results keep the
+     * server's order.
+     *
+     * @param queryUrls URLs used to query the API.
+     * @return Pending merged news, whose value is null if every query failed or timed out.
+     */
+    public Future<List<News>> fetchAllAsync(List<String> queryUrls) {
+        return fetchAllAsync(queryUrls, null);
+    }
+
+    /**
+     * Start fetching several queries concurrently, following their merge.
+     *
+     * @param queryUrls        URLs used to query the API.
+     * @param progressListener Listener told about the news merged so far while getting the result,
+     *                         or null.
+     * @return Pending merged news, whose value is null if every query failed or timed out.
+     * @see #fetchAllAsync(List)
+     */
+    public Future<List<News>> fetchAllAsync(List<String> queryUrls, final ProgressListener progressListener) {
+        // Nothing to merge: keep the server's order, and hand out its news as they're parsed
+        if (queryUrls.size() == 1) {
+            if (progressListener == null) {
+                return newsSource.fetchNews(queryUrls.get(0));
+            }
+            return newsSource.fetchNews(queryUrls.get(0), new NewsBatcher.Listener() {
+                @Override
+                public void onNewsBatch(List<News> parsedNews) {
+                    progressListener.onPartialNews(parsedNews);
+                }
+            });
+        }
+
+        // Start all queries at once. When following the merge, each query keeps the news it
+        // parsed so far, so they can be merged before it answers.
+        final AtomicReferenceArray<List<News>> parsedNews = new AtomicReferenceArray<>(queryUrls.size());
+        final AtomicInteger batchCount = new AtomicInteger();
+        List<Future<List<News>>> futures = new ArrayList<>(queryUrls.size());
+        for (int i = 0; i < queryUrls.size(); i++) {
+            if (progressListener == null) {
+                futures.add(newsSource.fetchNews(queryUrls.get(i)));
+                continue;
+            }
+
+            final int query = i;
+            futures.add(newsSource.fetchNews(queryUrls.get(i), new NewsBatcher.Listener() {
+                @Override
+                public void onNewsBatch(List<News> batch) {
+                    parsedNews.set(query, batch);
+                    batchCount.incrementAndGet();
+                }
+            }));
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMillis);
+        return new FanOutFuture(futures, deadlineNanos, progressListener, parsedNews, batchCount);
+    }
+
+    /**
+     * Pending results of several queries, merged on the thread getting them.
+     */
+    private static final class FanOutFuture implements Future<List<News>> {
+
+        private final List<Future<List<News>>> futures;
+
+        /**
+         * Time after which queries that haven't answered are abandoned, in System.nanoTime() terms.
+         */
+        private final long deadlineNanos;
+
+        /**
+         * Listener following the merge, or null.
+         */
+        private final ProgressListener progressListener;
+
+        /**
+         * News parsed so far by each query, null until its first batch, when following the merge.
+         */
+        private final AtomicReferenceArray<List<News>> parsedNews;
+
+        /**
+         * Number of batches parsed by all queries, when following the merge.
+         */
+        private final AtomicInteger batchCount;
+
+        private volatile boolean cancelled;
+
+        /**
+         * Merged news, once collected. Guarded by this.
+         */
+        private List<News> mergedNews;
+        private boolean collected;
+
+        FanOutFuture(List<Future<List<News>>> futures, long deadlineNanos, ProgressListener progressListener,
+                     AtomicReferenceArray<List<News>> parsedNews, AtomicInteger batchCount) {
+            this.futures = futures;
+            this.deadlineNanos = deadlineNanos;
+            this.progressListener = progressListener;
+            this.parsedNews = parsedNews;
+            this.batchCount = batchCount;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            for (Future<List<News>> future : futures) {
+                future.cancel(true);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            if (cancelled) {
+                return true;
+            }
+            for (Future<List<News>> future : futures) {
+                if (!future.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public List<News> get() throws InterruptedException {
+            return collect(deadlineNanos);
+        }
+
+        /**
+         * Get the merged news, abandoning queries that haven't answered once the timeout, or the
+         * shared deadline if it's earlier, has elapsed.
+         */
+        @Override
+        public List<News> get(long timeout, TimeUnit unit) throws InterruptedException {
+            long timeoutDeadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+            return collect(timeoutDeadlineNanos - deadlineNanos < 0 ? timeoutDeadlineNanos : deadlineNanos);
+        }
+
+        /**
+         * Collect the results of all queries in the order they answer, then merge them.
+         *
+         * @param collectDeadlineNanos Time after which queries that haven't answered are abandoned.
+         * @return Merged news, or null if every query failed or timed out.
+         * @throws InterruptedException if the calling thread was interrupted while waiting.
+         */
+        private synchronized List<News> collect(long collectDeadlineNanos) throws InterruptedException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (collected) {
+                return mergedNews;
+            }
+
+            // Results by query, so merging doesn't depend on the order in which queries answer
+            List<List<News>> results = new ArrayList<>(Collections.<List<News>>nCopies(futures.size(), null));
+            List<Integer> pendingQueries = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                pendingQueries.add(i);
+            }
+            int publishedBatchCount = 0;
+
+            while (!pendingQueries.isEmpty()) {
+                // Wait for the first pending query, but only briefly when following the merge, so
+                // a slow query doesn't hold back the news of faster ones
+                Future<List<News>> firstPendingFuture = futures.get(pendingQueries.get(0));
+                long timeLeftNanos = collectDeadlineNanos - System.nanoTime();
+                if (progressListener != null && timeLeftNanos > PROGRESS_POLL_NANOS) {
+                    awaitBriefly(firstPendingFuture, PROGRESS_POLL_NANOS);
+                } else {
+                    awaitResult(firstPendingFuture, timeLeftNanos);
+                }
+
+                // Collect every query that answered, failed or was abandoned meanwhile
+                boolean answered = false;
+                Iterator<Integer> iterator = pendingQueries.iterator();
+                while (iterator.hasNext()) {
+                    int query = iterator.next();
+                    if (futures.get(query).isDone()) {
+                        List<News> news = awaitResult(futures.get(query), 0);
+                        results.set(query, news);
+                        answered |= news != null;
+                        iterator.remove();
+                    }
+                }
+
+                if (progressListener == null || pendingQueries.isEmpty() || cancelled) {
+                    continue;
+                }
+
+                // Publish as well when pending queries parsed more news
+                int currentBatchCount = batchCount.get();
+                if (answered || currentBatchCount != publishedBatchCount) {
+                    publishedBatchCount = currentBatchCount;
+                    List<List<News>> partialResults = answeredResults(results);
+                    for (int query : pendingQueries) {
+                        List<News> news = parsedNews.get(query);
+                        if (news != null) {
+                            partialResults.add(news);
+                        }
+                    }
+                    if (!partialResults.isEmpty()) {
+                        progressListener.onPartialNews(merge(partialResults));
+                    }
+                }
+            }
+            results = answeredResults(results);
+
+            // Queries cancelled while we were waiting don't make a partial feed
+            if (cancelled) {
+                throw new CancellationException();
+            }
+
+            // If every query failed, report failure rather than an empty feed
+            mergedNews = results.isEmpty() ? null : merge(results);
+            collected = true;
+            return mergedNews;
+        }
+    }
+
+    /**
+     * Keep the results of queries that answered.
+     *
+     * @param results News of each query, null for queries that failed or haven't answered.
+     * @return News of queries that answered, in query order.
+     */
+    private static List<List<News>> answeredResults(List<List<News>> results) {
+        List<List<News>> answeredResults = new ArrayList<>(results.size());
+        for (List<News> news : results) {
+            if (news != null) {
+                answeredResults.add(news);
+            }
+        }
+        return answeredResults;
+    }
+
+    /**
+     * Wait for a query to answer for a while, without abandoning it if it doesn't.
+     *
+     * @param future       Pending query.
+     * @param timeoutNanos Time to wait, in nanoseconds.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     */
+    private static void awaitBriefly(Future<List<News>> future, long timeoutNanos) throws InterruptedException {
+        try {
+            future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException exception) {
+            // Collected, or not, by the caller
+        }
+    }
+
+    /**
+     * Wait for the result of a query, abandoning it once the timeout has elapsed.
+     *
+     * @param future       Pending query.
+     * @param timeoutNanos Time left to wait, in nanoseconds.
+     * @return News of the query, or null if it failed, timed out or was cancelled.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     */
+    private static List<News> awaitResult(Future<List<News>> future, long timeoutNanos) throws InterruptedException {
+        try {
+            return future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException | CancellationException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Merge several lists of news into one, sorted by publication date, newest first.
+     * <p>
+     * When a URL appears several times, only its first occurrence is kept. So is it when the same
+     * story appears under slightly different titles, with different URLs, as found by a
+     * {@link NearDuplicateDetector}.
+     *
+     * @param results Lists of news to merge.
+     * @return Merged list of news.
+     */
+    public static List<News> merge(List<List<News>> results) {
+        int totalSize = 0;
+        for (List<News> news : results) {
+            totalSize += news.size();
+        }
+
+        // Remove duplicate URLs and near-duplicate titles
+        List<News> merged = new ArrayList<>(totalSize);
+        Set<String> seenUrls = new HashSet<>(totalSize * 2);
+        NearDuplicateDetector seenTitles = new NearDuplicateDetector(totalSize);
+        for (List<News> news : results) {
+            for (News currentNews : news) {
+                if (seenUrls.add(currentNews.getUrl()) && seenTitles.add(currentNews.getTitle())) {
+                    merged.add(currentNews);
+                }
+            }
+        }
+
+        // Stable sort, so news published at the same time keep their query order
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged;
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming parser for The Guardian's search API responses.
+ * <p>
+ * Instead of reading the whole response into a String and building a JSON tree out of it, the
+ * parser pulls tokens straight from the input stream and emits news objects one at a time, as
+ * soon as each entry of 'response.results' has been read. Fields outside the {@link NewsProjection}
+ * are skipped without being materialized.
+ * <p>
+ * The class only depends on plain Java and Gson, so it can be tested on the JVM.
+ */
+public final class NewsJsonParser {
+
+    /**
+     * Callback notified of each news object as soon as it has been parsed.
+     */
+    public interface NewsCallback {
+
+        /**
+         * Called on the parsing thread for every complete news entry, in response order.
+         *
+         * @param news News object that was just parsed.
+         */
+        void onNews(News news);
+    }
+
+    /**
+     * Separator of the names of a byline: a comma, or 'and' before the last name -- for example
+     * 'Julia Carrie Wong, Olivia Solon and Kari Paul'.
+     */
+    private static final Pattern BYLINE_SEPARATOR = Pattern.compile("\\s*,\\s*|\\s+and\\s+");
+
+    /**
+     * Values read from the 'fields' object of an article.
+     */
+    private static final class ArticleFields {
+        String byline;
+        String thumbnailUrl;
+    }
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private NewsJsonParser() {
+    }
+
+    /**
+     * Parse a full response and collect the news objects it contains, reading every field.
+     *
+     * @param inputStream Response body, encoded in UTF-8.
+     * @return List of news objects, empty if the response has no results.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    public static List<News> parseNews(InputStream inputStream) throws IOException {
+        return parseNews(inputStream, NewsProjection.ALL);
+    }
+
+    /**
+     * Parse a full response and collect the news objects it contains.
+     *
+     * @param inputStream Response body, encoded in UTF-8.
+     * @param projection  Fields to read.
+     * @return List of news objects, empty if the response has no results.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    public static List<News> parseNews(InputStream inputStream, NewsProjection projection) throws IOException {
+        // Collect news in a list as they're emitted
+        final List<News> news = new ArrayList<>();
+
+        parseNews(inputStream, projection, new NewsCallback() {
+            @Override
+            public void onNews(News parsedNews) {
+                news.add(parsedNews);
+            }
+        });
+
+        return news;
+    }
+
+    /**
+     * Parse a response, reading every field, and emit each news object to the callback as soon as
+     * it has been read.
+     *
+     * @param inputStream Response body, encoded in UTF-8.
+     * @param callback    Callback receiving news objects in response order.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    public static void parseNews(InputStream inputStream, NewsCallback callback) throws IOException {
+        parseNews(inputStream, NewsProjection.ALL, callback);
+    }
+
+    /**
+     * Parse a response and emit each news object to the callback as soon as it has been read.
+     *
+     * @param inputStream Response body, encoded in UTF-8.
+     * @param projection  Fields to read.
+     * @param callback    Callback receiving news objects in response order.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    public static void parseNews(InputStream inputStream, NewsProjection projection, NewsCallback callback) throws IOException {
+        // No buffering needed on top of the stream reader: the JSON reader keeps its own buffer
+        JsonReader jsonReader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+
+        // Walk down to the 'response' object, skipping any other top-level field
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (jsonReader.nextName().equals("response")) {
+                readResponse(jsonReader, projection, callback);
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+    }
+
+    /**
+     * Read the 'response' object and walk down to its 'results' array.
+     *
+     * @param jsonReader Reader positioned at the start of the 'response' object.
+     * @param projection Fields to read.
+     * @param callback   Callback receiving news objects.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static void readResponse(JsonReader jsonReader, NewsProjection projection, NewsCallback callback) throws IOException {
+        // The page size comes before the results, and tells how many news to make room for
+        int pageSize = NewsArticleStore.DEFAULT_CAPACITY;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "pageSize":
+                    pageSize = jsonReader.nextInt();
+                    break;
+                case "results":
+                    readResults(jsonReader, projection, callback, new NewsArticleStore.Appender(pageSize));
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+    }
+
+    /**
+     * Read the 'results' array, which represents a list of articles.
+     *
+     * @param jsonReader Reader positioned at the start of the 'results' array.
+     * @param projection Fields to read.
+     * @param callback   Callback receiving news objects.
+     * @param appender   Appender storing the news.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static void readResults(JsonReader jsonReader, NewsProjection projection, NewsCallback callback,
+                                    NewsArticleStore.Appender appender) throws IOException {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            News news = readNews(jsonReader, projection, appender);
+
+            // Entries lacking a required field are dropped
+            if (news != null) {
+                callback.onNews(news);
+            }
+        }
+        jsonReader.endArray();
+    }
+
+    /**
+     * Read a single article object and create a news object out of it.
+     * <p>
+     * Authors are read from the contributor tags when there are some, and from the names listed by
+     * the byline otherwise.
+     *
+     * @param jsonReader Reader positioned at the start of an article object.
+     * @param projection Fields to read.
+     * @param appender   Appender storing the news.
+     * @return News object, or null if a required field (URL, title or section) is missing.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static News readNews(JsonReader jsonReader, NewsProjection projection, NewsArticleStore.Appender appender) throws IOException {
+        // Required properties
+        String url = null;
+        String title = null;
+        String section = null;
+
+        // Optional properties
+        String date = "";
+        ArticleFields fields = new ArticleFields();
+        ArrayList<String> authors = new ArrayList<>();
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "webUrl":
+                    url = nextStringOrNull(jsonReader);
+                    break;
+                case "webTitle":
+                    title = nextStringOrNull(jsonReader);
+                    break;
+                case "sectionName":
+                    section = nextStringOrNull(jsonReader);
+                    break;
+                case "webPublicationDate":
+                    if (projection.includes(NewsProjection.Field.PUBLICATION_DATE)) {
+                        String publicationDate = nextStringOrNull(jsonReader);
+                        date = publicationDate != null ? publicationDate : "";
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                    break;
+                case "fields":
+                    if (projection.includes(NewsProjection.Field.BYLINE) || projection.includes(NewsProjection.Field.THUMBNAIL)) {
+                        readFields(jsonReader, projection, fields);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                    break;
+                case "tags":
+                    if (projection.includes(NewsProjection.Field.CONTRIBUTORS)) {
+                        readAuthors(jsonReader, authors);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        if (url == null || title == null || section == null) {
+            return null;
+        }
+
+        if (authors.isEmpty() && fields.byline != null) {
+            splitByline(fields.byline, authors);
+        }
+
+        return appender.append(url, title, section, date, authors, fields.thumbnailUrl);
+    }
+
+    /**
+     * Read the 'fields' object of an article, keeping the byline and thumbnail if projected.
+     *
+     * @param jsonReader Reader positioned at the start of the 'fields' object.
+     * @param projection Fields to read.
+     * @param fields     Values to set. Left null when the article lacks a field.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static void readFields(JsonReader jsonReader, NewsProjection projection, ArticleFields fields) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return;
+        }
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (name.equals("byline") && projection.includes(NewsProjection.Field.BYLINE)) {
+                fields.byline = nextStringOrNull(jsonReader);
+            } else if (name.equals("thumbnail") && projection.includes(NewsProjection.Field.THUMBNAIL)) {
+                fields.thumbnailUrl = nextStringOrNull(jsonReader);
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+    }
+
+    /**
+     * Read the 'tags' array of an article and collect the name of each contributor.
+     *
+     * @param jsonReader Reader positioned at the start of the 'tags' array.
+     * @param authors    List to which author names are appended.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static void readAuthors(JsonReader jsonReader, List<String> authors) throws IOException {
+        // Tolerate a null tag list, which some entries have
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return;
+        }
+
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            // Only keep the display name of each tag -- bio, URLs and images are skipped
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("webTitle")) {
+                    String author = nextStringOrNull(jsonReader);
+                    if (author != null) {
+                        authors.add(author);
+                    }
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        }
+        jsonReader.endArray();
+    }
+
+    /**
+     * Split a byline into the names it lists.
+     * <p>
+     * Bylines naming an organisation rather than people, like 'Guardian staff and agencies', are
+     * split alike. That's harmless, as authors are only displayed, joined by commas.
+     *
+     * @param byline  Byline of an article -- for example 'Julia Carrie Wong, Olivia Solon and Kari Paul'.
+     * @param authors List to which author names are appended.
+     */
+    static void splitByline(String byline, List<String> authors) {
+        for (String name : BYLINE_SEPARATOR.split(byline.trim())) {
+            if (!name.isEmpty()) {
+                authors.add(name);
+            }
+        }
+    }
+
+    /**
+     * Read the next value as a string, mapping JSON null to Java null.
+     *
+     * @param jsonReader Reader positioned at a string or null value.
+     * @return String value, or null.
+     * @throws IOException if the stream can't be read or isn't valid JSON.
+     */
+    private static String nextStringOrNull(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        return jsonReader.nextString();
+    }
+}
@@ -2,18 +2,120 @@ package com.example.android.newsfeed;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Loader class for loading news data asynchronously on a background thread.
+ * <p>
+ * When given several queries, the loader runs them concurrently and merges their results into a
+ * single feed, sorted by publication date. The news of the queries that answered first are
+ * delivered while the others are still pending, so the feed shows up as soon as its fastest
+ * provider answers. Responses are delivered in small batches as they're parsed, too, so on a slow
+ * link the first screen fills long before the last byte of the response is in.
+ * <p>
+ * News are served from the disk cache first, when available. If the cached entry is stale, it is
+ * delivered right away and then refreshed from the network in a second background pass.
+ * <p>
+ * A keyword query that isn't cached yet is answered from the local search index when enough of the
+ * news fetched so far match it. Online, the local answer is only shown until the network's comes
+ * in, which replaces it and is cached.
+ * <p>
+ * Offline, the loader serves whatever it has locally and flags it as stale; call
+ * {@link #revalidate()} once the network is back to refresh it.
+ * <p>
+ * The loader can leave out the news the user already read. They're only filtered out as news are
+ * delivered, so the cache keeps them, and the filter applies to whatever was read by then.
  */
 public class NewsLoader extends AsyncTaskLoader<List<News>> {
 
     /**
-     * URL used to query the news API
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = NewsLoader.class.getName();
+
+    /**
+     * Minimum number of local matches for a keyword query to be answered before the network does.
+     */
+    private static final int MIN_LOCAL_RESULTS = 10;
+
+    /**
+     * URLs used to query the news API
      **/
-    private String queryUrl;
+    private List<String> queryUrls;
+
+    /**
+     * Keywords of the queries, looked up in the local search index, or null to always query the API.
+     */
+    private String searchKeywords;
+
+    /**
+     * Disk cache of parsed news, shared across loaders.
+     */
+    private NewsCache newsCache;
+
+    /**
+     * Store of the news already read, left out of the news delivered, or null to deliver them all.
+     */
+    private ReadStateStore readNewsToHide;
+
+    /**
+     * Whether the next background pass should skip the cache and go to the network.
+     */
+    private volatile boolean revalidating;
+
+    /**
+     * Whether the result being delivered came from a stale cache entry and should be refreshed.
+     */
+    private volatile boolean revalidationNeeded;
+
+    /**
+     * Fetch in progress, if any.
+     */
+    private volatile Future<List<News>> pendingFetch;
+
+    /**
+     * Number of fetches started, which tells the news of the current fetch from late ones.
+     */
+    private final AtomicInteger fetchCount = new AtomicInteger();
+
+    /**
+     * Whether the news being delivered are those of a fetch still in progress. Main thread only.
+     */
+    private boolean deliveringPartialNews;
+
+    /**
+     * Whether the news being delivered are stale and couldn't be refreshed yet.
+     */
+    private volatile boolean servingStale;
+
+    /**
+     * Whether the news being delivered are matches from the local search index rather than the
+     * API's answer to the queries.
+     */
+    private volatile boolean servingLocalMatches;
+
+    /**
+     * Last news delivered, kept so a failed refresh doesn't wipe stale results.
+     */
+    private List<News> lastNews;
+
+    /**
+     * Time the loader was started, in nanoseconds, or 0 once its news were delivered.
+     */
+    private long startNanos;
+
+    /**
+     * Handler delivering the news merged so far from the loading thread.
+     */
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Instantiate loader for fetching news using passed URL to query API.
@@ -24,8 +126,54 @@ public class NewsLoader extends AsyncTaskLoader<List<News>> {
      * @param queryUrl URL used for querying API.
      */
     public NewsLoader(Context context, String queryUrl) {
+        this(context, Collections.singletonList(queryUrl));
+    }
+
+    /**
+     * Instantiate loader for fetching and merging news from several queries to the API.
+     *
+     * @param context   Activity associated with loader.
+     * @param queryUrls URLs used for querying API.
+     */
+    public NewsLoader(Context context, List<String> queryUrls) {
+        this(context, queryUrls, null);
+    }
+
+    /**
+     * Instantiate loader for fetching news, answering the queries locally when possible.
+     *
+     * @param context        Activity associated with loader.
+     * @param queryUrls      URLs used for querying API.
+     * @param searchKeywords Keywords of the queries, looked up in the local search index first, or
+     *                       null to always query the API.
+     */
+    public NewsLoader(Context context, List<String> queryUrls, String searchKeywords) {
+        this(context, queryUrls, searchKeywords, false);
+    }
+
+    /**
+     * Instantiate loader for fetching news, answering the queries locally when possible, and
+     * optionally leaving out the news already read.
+     *
+     * @param context        Activity associated with loader.
+     * @param queryUrls      URLs used for querying API.
+     * @param searchKeywords Keywords of the queries, looked up in the local search index first, or
+     *                       null to always query the API.
+     * @param hideReadNews   true to leave out the news the user already read.
+     */
+    public NewsLoader(Context context, List<String> queryUrls, String searchKeywords, boolean hideReadNews) {
         super(context);
-        this.queryUrl = queryUrl;
+        this.queryUrls = queryUrls;
+        this.searchKeywords = searchKeywords;
+        this.newsCache = NewsCache.getInstance(context);
+        this.readNewsToHide = hideReadNews ? ReadStateStore.getInstance(context) : null;
+    }
+
+    /**
+     * @return Cache key of the queries of the loader, as built by {@link NewsCache#keyFor(List)}.
+     */
+    public String getCacheKey() {
+        return NewsCache.keyFor(queryUrls);
     }
 
     /**
@@ -33,6 +181,8 @@ public class NewsLoader extends AsyncTaskLoader<List<News>> {
      */
     @Override
     protected void onStartLoading() {
+        startNanos = System.nanoTime();
+
         // Trigger loadInBackground() immediately -- that is, initiate fetch
         forceLoad();
     }
@@ -45,14 +195,207 @@ public class NewsLoader extends AsyncTaskLoader<List<News>> {
     @Override
     public List<News> loadInBackground() {
 
-        // If query is empty, return early
-        if (queryUrl == "") {
+        // If there's no query, return early
+        if (queryUrls.isEmpty()) {
             return null;
         }
 
-        // Fetch news data
-        List<News> news = NewsQuery.fetchNews(queryUrl);
+        String cacheKey = NewsCache.keyFor(queryUrls);
+
+        // Serve cached news first, unless we're refreshing them
+        if (!revalidating) {
+            NewsCache.Entry cacheEntry = newsCache.get(cacheKey);
+
+            boolean connected = NetworkStatus.isConnected(getContext());
+
+            if (cacheEntry != null) {
+                // Make stored news searchable, as they may not have been fetched by this process
+                NewsSearchIndex.getDefault().addAll(cacheEntry.getNews());
+
+                // Stale entries are refreshed once they've been delivered, if we're online
+                servingStale = !cacheEntry.isFresh();
+                revalidationNeeded = servingStale && connected;
+                servingLocalMatches = false;
+                return cacheEntry.getNews();
+            }
+
+            // Nothing stored for these queries: answer them from the news we already have, if enough match
+            if (searchKeywords != null) {
+                List<News> localNews = NewsSearchIndex.getDefault().search(searchKeywords, NewsQueryUrls.PAGE_SIZE);
+
+                // Offline, any match is better than nothing
+                if (localNews.size() >= MIN_LOCAL_RESULTS || (!connected && !localNews.isEmpty())) {
+                    // Like a stale entry, they're replaced by the API's answer once delivered, if we're online
+                    servingStale = !connected;
+                    revalidationNeeded = connected;
+                    servingLocalMatches = true;
+                    return localNews;
+                }
+            }
+        }
+        revalidating = false;
+
+        // Fetch news data, running queries concurrently if there are several.
+        // Offline, don't even try: fetching would only fail after the DNS lookup times out.
+        List<News> news = null;
+        if (NetworkStatus.isConnected(getContext())) {
+            // Keep hold of the pending fetch, so it can be aborted if the load is cancelled
+            final int fetchNumber = fetchCount.incrementAndGet();
+            Future<List<News>> fetch = NewsFanOut.getDefault().fetchAllAsync(queryUrls, new NewsFanOut.ProgressListener() {
+                @Override
+                public void onPartialNews(List<News> mergedNews) {
+                    deliverPartialNews(mergedNews, fetchNumber);
+                }
+            });
+            pendingFetch = fetch;
+            news = NewsFanOut.await(fetch);
+            pendingFetch = null;
+
+            // A cancelled load's result is dropped anyway: don't cache a partial one
+            if (fetch.isCancelled()) {
+                return null;
+            }
+        }
+
+        // If fetching failed, keep showing whatever was shown before
+        if (news == null) {
+            servingStale = lastNews != null;
+            return lastNews;
+        }
+        servingStale = false;
+        servingLocalMatches = false;
+
+        // Store news for next time
+        try {
+            newsCache.put(cacheKey, news);
+        } catch (IOException exception) {
+            Log.e(LOG_TAG, "Problem caching news: ", exception);
+        }
 
         return news;
     }
+
+    /**
+     * Deliver the news of the queries that answered so far, while the others are still pending,
+     * or the news parsed so far from a single query. Called on the loading or fetching thread.
+     *
+     * @param partialNews News merged so far.
+     * @param fetchNumber Number of the fetch the news come from.
+     */
+    private void deliverPartialNews(final List<News> partialNews, final int fetchNumber) {
+        mainThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Drop the news of a fetch that was cancelled, replaced or has completed in the
+                // meantime. The first batch may also come before the fetch is recorded, and waits for the next one.
+                Future<List<News>> fetch = pendingFetch;
+                if (fetchNumber == fetchCount.get() && fetch != null && !fetch.isCancelled() && isStarted() && !isAbandoned()) {
+                    deliveringPartialNews = true;
+                    try {
+                        deliverResult(partialNews);
+                    } finally {
+                        deliveringPartialNews = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if the news being delivered are those of a fetch still in progress, which more
+     * news will follow. Must be called on the main thread, while they're delivered.
+     */
+    public boolean isDeliveringPartialNews() {
+        return deliveringPartialNews;
+    }
+
+    /**
+     * Deliver news to the activity, leaving out those already read if asked to, then start
+     * refreshing them if they came from a stale entry.
+     *
+     * @param news List of news objects.
+     */
+    @Override
+    public void deliverResult(List<News> news) {
+        lastNews = news;
+        super.deliverResult(news == null || readNewsToHide == null ? news : readNewsToHide.removeRead(news));
+
+        // Time from starting to the activity getting its first news, which it did in super.deliverResult()
+        if (startNanos != 0 && isStarted()) {
+            NewsMetrics.getDefault().recordStage(NewsMetrics.Stage.LOAD, System.nanoTime() - startNanos);
+            startNanos = 0;
+        }
+
+        if (revalidationNeeded && isStarted()) {
+            revalidationNeeded = false;
+            revalidating = true;
+            forceLoad();
+        }
+    }
+
+    /**
+     * Abort the fetch in progress when the load is cancelled, for instance because the query
+     * changed, so its download doesn't hold up the next one.
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        abortPendingFetch();
+    }
+
+    /**
+     * Abort the fetch in progress once the loader is replaced by a new one.
+     */
+    @Override
+    protected void onAbandon() {
+        abortPendingFetch();
+    }
+
+    /**
+     * Abort the fetch in progress once the loader is destroyed.
+     */
+    @Override
+    protected void onReset() {
+        super.onReset();
+        abortPendingFetch();
+    }
+
+    /**
+     * Cancel the fetch in progress, if any, which aborts its downloads.
+     */
+    private void abortPendingFetch() {
+        Future<List<News>> fetch = pendingFetch;
+        if (fetch != null) {
+            fetch.cancel(true);
+        }
+    }
+
+    /**
+     * Refresh the news from the network, skipping the cache. Must be called on the main thread.
+     */
+    public void revalidate() {
+        // A refresh is already on its way
+        if (revalidating) {
+            return;
+        }
+        revalidating = true;
+
+        // Loads right away if the loader is started, or as soon as it's started again
+        onContentChanged();
+    }
+
+    /**
+     * @return true if the news last delivered are matches from the local search index, in the
+     * index's order, rather than the API's answer to the queries.
+     */
+    public boolean isServingLocalMatches() {
+        return servingLocalMatches;
+    }
+
+    /**
+     * @return true if the news last delivered are stale, because they couldn't be refreshed.
+     */
+    public boolean isServingStale() {
+        return servingStale;
+    }
+
 }
@@ -0,0 +1,226 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of each stage of getting news on screen, and sizes of the responses, kept in histograms
+ * for the lifetime of the process.
+ * <p>
+ * Stage timings are recorded in microseconds. Recording is lock-free and allocation-free, so it
+ * can be done from the fetching threads as well as from the main thread.
+ */
+public final class NewsMetrics {
+
+    /**
+     * Stage of getting news on screen.
+     */
+    public enum Stage {
+
+        /**
+         * Establishing the connection: DNS lookup, TCP and TLS handshakes.
+         */
+        CONNECT("connect"),
+
+        /**
+         * Waiting for the response, from the request being sent to its headers being received.
+         */
+        FIRST_BYTE("ttfb"),
+
+        /**
+         * Waiting for the body to come in, while it's parsed.
+         */
+        DOWNLOAD("download"),
+
+        /**
+         * Parsing the body, not counting the waits for it to come in.
+         */
+        PARSE("parse"),
+
+        /**
+         * Binding a news to a row of the list.
+         */
+        BIND("bind"),
+
+        /**
+         * Loading the feed, from the loader starting to the activity getting its news.
+         */
+        LOAD("load"),
+
+        /**
+         * Time to first content: from the process starting to the first frame showing news.
+         */
+        FIRST_CONTENT("first_content");
+
+        /**
+         * Name of the stage in JSON snapshots.
+         */
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Metrics shared by the app.
+     */
+    private static final NewsMetrics DEFAULT_INSTANCE = new NewsMetrics();
+
+    /**
+     * Timings of each stage, in microseconds, by stage ordinal.
+     */
+    private final Histogram[] stageMicros = new Histogram[Stage.values().length];
+
+    /**
+     * Number of bytes received for each response, as sent -- that is, compressed.
+     */
+    private final Histogram responseBytes = new Histogram();
+
+    /**
+     * Instantiate empty metrics.
+     */
+    NewsMetrics() {
+        for (int i = 0; i < stageMicros.length; i++) {
+            stageMicros[i] = new Histogram();
+        }
+    }
+
+    /**
+     * @return Metrics shared by the app.
+     */
+    public static NewsMetrics getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Record how long a stage took.
+     *
+     * @param stage Stage.
+     * @param nanos Duration of the stage, in nanoseconds.
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageMicros[stage.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Record the size of a response.
+     *
+     * @param bytes Number of bytes received.
+     */
+    public void recordResponseBytes(long bytes) {
+        responseBytes.record(bytes);
+    }
+
+    /**
+     * @param stage Stage.
+     * @return Timings of the stage, in microseconds.
+     */
+    public Histogram getStageMicros(Stage stage) {
+        return stageMicros[stage.ordinal()];
+    }
+
+    /**
+     * @return Sizes of the responses, in bytes.
+     */
+    public Histogram getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void reset() {
+        for (Histogram histogram : stageMicros) {
+            histogram.reset();
+        }
+        responseBytes.reset();
+    }
+
+    /**
+     * Take a snapshot of the metrics, in JSON.
+     *
+     * @param labels Labels identifying the snapshot, such as the app version and the device.
+     * @return JSON snapshot.
+     */
+    public String toJson(Map<String, String> labels) {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            writeJson(stringWriter, labels);
+        } catch (IOException exception) {
+            // StringWriter doesn't throw
+            throw new IllegalStateException(exception);
+        }
+        return stringWriter.toString();
+    }
+
+    /**
+     * Write a snapshot of the metrics, in JSON.
+     * <p>
+     * Besides summary statistics, each histogram lists its non-empty buckets as [lower bound,
+     * count] pairs, so snapshots of different builds can be compared or merged exactly.
+     *
+     * @param writer Destination of the JSON.
+     * @param labels Labels identifying the snapshot, such as the app version and the device.
+     * @throws IOException if writing fails.
+     */
+    public void writeJson(Writer writer, Map<String, String> labels) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setIndent("  ");
+        jsonWriter.beginObject();
+
+        jsonWriter.name("labels").beginObject();
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            jsonWriter.name(label.getKey()).value(label.getValue());
+        }
+        jsonWriter.endObject();
+
+        jsonWriter.name("stages").beginObject();
+        for (Stage stage : Stage.values()) {
+            jsonWriter.name(stage.key);
+            writeHistogram(jsonWriter, getStageMicros(stage), "us");
+        }
+        jsonWriter.endObject();
+
+        jsonWriter.name("responseBytes");
+        writeHistogram(jsonWriter, responseBytes, "B");
+
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    /**
+     * Write a histogram as a JSON object.
+     *
+     * @param jsonWriter Writer positioned where the object goes.
+     * @param histogram  Histogram to write.
+     * @param unit       Unit of the values.
+     * @throws IOException if writing fails.
+     */
+    private static void writeHistogram(JsonWriter jsonWriter, Histogram histogram, String unit) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("unit").value(unit);
+        jsonWriter.name("count").value(histogram.getCount());
+        jsonWriter.name("mean").value(Math.round(histogram.getMean()));
+        jsonWriter.name("p50").value(histogram.getValueAtPercentile(50));
+        jsonWriter.name("p90").value(histogram.getValueAtPercentile(90));
+        jsonWriter.name("p99").value(histogram.getValueAtPercentile(99));
+        jsonWriter.name("max").value(histogram.getMax());
+
+        jsonWriter.name("buckets").beginArray();
+        for (int index = 0; index < Histogram.BUCKET_COUNT; index++) {
+            long count = histogram.getCountInBucket(index);
+            if (count > 0) {
+                jsonWriter.beginArray().value(Histogram.bucketLowerBound(index)).value(count).endArray();
+            }
+        }
+        jsonWriter.endArray();
+
+        jsonWriter.endObject();
+    }
+}
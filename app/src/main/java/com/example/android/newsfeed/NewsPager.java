@@ -0,0 +1,355 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental pager for the news feed.
+ * <p>
+ * The feed shows a window of consecutive result pages. When the user scrolls close to either end
+ * of the window, the adjacent page is fetched ahead of time on a background executor and added to
+ * the window. Once the window holds more than the maximum number of pages, the page at the
+ * opposite end is dropped, so memory stays flat however far the user scrolls.
+ * <p>
+ * News already in the window are left out of fetched pages, since results can shift between
+ * pages when stories are published, or when the first page came from the local store. So are
+ * stories already in the window under a slightly different title.
+ * <p>
+ * A page that fails to load is retried on a later scroll, once a delay has passed that doubles
+ * with each failure in a row, so a fling on a bad network doesn't fire a request per scroll event.
+ * <p>
+ * All public methods, and all listener callbacks, run on the main thread.
+ */
+public class NewsPager {
+
+    /**
+     * Delay before retrying a page after a first failure, and maximum delay after several, in milliseconds.
+     */
+    static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+    /**
+     * Source of result pages.
+     */
+    public interface PageSource {
+
+        /**
+         * Fetch a page of results. Called on the background executor.
+         *
+         * @param page Page number, starting at 1.
+         * @return News of the page, or null if fetching failed.
+         */
+        List<News> fetchPage(int page);
+    }
+
+    /**
+     * Receiver of changes to the window, which it should mirror in the adapter.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a page was added after the last item of the window.
+         *
+         * @param news News of the page that weren't in the window yet. May be empty.
+         */
+        void onPageAppended(List<News> news);
+
+        /**
+         * Called when a page was added before the first item of the window.
+         *
+         * @param news News of the page that weren't in the window yet. May be empty.
+         */
+        void onPagePrepended(List<News> news);
+
+        /**
+         * Called when a page was dropped from one end of the window.
+         *
+         * @param itemCount Number of items dropped.
+         * @param fromStart true if the items were dropped from the start of the window, false if
+         *                  they were dropped from its end.
+         */
+        void onPageDropped(int itemCount, boolean fromStart);
+    }
+
+    private final PageSource pageSource;
+    private final Executor backgroundExecutor;
+    private final Executor mainThreadExecutor;
+    private final Listener listener;
+
+    /**
+     * Number of results requested per page.
+     */
+    private final int pageSize;
+
+    /**
+     * Maximum number of pages held in the window.
+     */
+    private final int maxPagesInWindow;
+
+    /**
+     * Distance from either end of the window, in items, at which the adjacent page is prefetched.
+     */
+    private final int prefetchDistance;
+
+    /**
+     * News of each page in the window, from first to last page.
+     */
+    private final Deque<List<News>> pages = new ArrayDeque<>();
+
+    /**
+     * Page number of the first page in the window.
+     */
+    private int firstPage;
+
+    /**
+     * Whether the last page of the results has been reached.
+     */
+    private boolean lastPageReached;
+
+    /**
+     * Whether a page is being fetched.
+     */
+    private boolean fetching;
+
+    /**
+     * Incremented on each reset, so fetches started before it are ignored.
+     */
+    private int generation;
+
+    /**
+     * Delay before retrying a page after the first failure, in milliseconds.
+     */
+    private final long minRetryDelayMillis;
+
+    /**
+     * Delay to wait after the next failure, in milliseconds, doubling with each failure in a row.
+     */
+    private long retryDelayMillis;
+
+    /**
+     * Whether a fetch failed lately, and the time before which no page is fetched, in
+     * System.nanoTime() terms.
+     */
+    private boolean waitingToRetry;
+    private long retryAtNanos;
+
+    /**
+     * Instantiate a pager.
+     *
+     * @param pageSource         Source of result pages.
+     * @param backgroundExecutor Executor on which pages are fetched.
+     * @param mainThreadExecutor Executor posting to the main thread.
+     * @param listener           Receiver of changes to the window.
+     * @param pageSize           Number of results requested per page.
+     * @param maxPagesInWindow   Maximum number of pages held in the window, at least 2.
+     * @param prefetchDistance   Distance from either end of the window, in items, at which the
+     *                           adjacent page is prefetched.
+     */
+    public NewsPager(PageSource pageSource, Executor backgroundExecutor, Executor mainThreadExecutor,
+                     Listener listener, int pageSize, int maxPagesInWindow, int prefetchDistance) {
+        this(pageSource, backgroundExecutor, mainThreadExecutor, listener, pageSize, maxPagesInWindow,
+                prefetchDistance, MIN_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Instantiate a pager retrying failed pages after the given delay.
+     *
+     * @param minRetryDelayMillis Delay before retrying a page after a first failure, in milliseconds.
+     * @see #NewsPager(PageSource, Executor, Executor, Listener, int, int, int)
+     */
+    NewsPager(PageSource pageSource, Executor backgroundExecutor, Executor mainThreadExecutor,
+              Listener listener, int pageSize, int maxPagesInWindow, int prefetchDistance, long minRetryDelayMillis) {
+        this.minRetryDelayMillis = minRetryDelayMillis;
+        this.retryDelayMillis = minRetryDelayMillis;
+        this.pageSource = pageSource;
+        this.backgroundExecutor = backgroundExecutor;
+        this.mainThreadExecutor = mainThreadExecutor;
+        this.listener = listener;
+        this.pageSize = pageSize;
+        this.maxPagesInWindow = maxPagesInWindow;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Restart paging from the first page, whose results were loaded elsewhere.
+     * <p>
+     * The caller is expected to show exactly these results, and any fetch in flight is ignored.
+     *
+     * @param firstPageNews News of the first page.
+     */
+    public void reset(List<News> firstPageNews) {
+        reset(firstPageNews, true);
+    }
+
+    /**
+     * Restart paging from the first page, whose results were loaded elsewhere.
+     * <p>
+     * The caller is expected to show exactly these results, and any fetch in flight is ignored.
+     *
+     * @param firstPageNews News of the first page.
+     * @param hasNextPages  false if the news don't come from the page source, so its pages
+     *                      shouldn't follow them.
+     */
+    public void reset(List<News> firstPageNews, boolean hasNextPages) {
+        generation++;
+        fetching = false;
+        pages.clear();
+        waitingToRetry = false;
+        retryDelayMillis = minRetryDelayMillis;
+
+        firstPage = 1;
+        List<News> news = firstPageNews == null ? new ArrayList<News>() : new ArrayList<>(firstPageNews);
+        pages.add(news);
+
+        // The first page may be short because news were left out of it, such as those already read:
+        // let the next page tell whether there are more
+        lastPageReached = !hasNextPages || news.isEmpty();
+    }
+
+    /**
+     * @return Page number of the first page in the window, starting at 1.
+     */
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    /**
+     * Notify the pager of the visible range, so it can prefetch adjacent pages.
+     *
+     * @param firstVisiblePosition Adapter position of the first visible item.
+     * @param visibleItemCount     Number of visible items.
+     * @param totalItemCount       Number of items in the adapter.
+     */
+    public void onScroll(int firstVisiblePosition, int visibleItemCount, int totalItemCount) {
+        if (fetching || totalItemCount == 0 || pages.isEmpty()) {
+            return;
+        }
+
+        // After a failure, wait before trying again
+        if (waitingToRetry) {
+            if (System.nanoTime() - retryAtNanos < 0) {
+                return;
+            }
+            waitingToRetry = false;
+        }
+
+        int lastVisiblePosition = firstVisiblePosition + visibleItemCount - 1;
+
+        if (!lastPageReached && lastVisiblePosition >= totalItemCount - 1 - prefetchDistance) {
+            fetch(firstPage + pages.size(), true);
+        } else if (firstPage > 1 && firstVisiblePosition <= prefetchDistance) {
+            fetch(firstPage - 1, false);
+        }
+    }
+
+    /**
+     * Fetch a page on the background executor, then add it to the window on the main thread.
+     *
+     * @param page   Page number.
+     * @param append true to add the page after the window, false to add it before.
+     */
+    private void fetch(final int page, final boolean append) {
+        fetching = true;
+        final int fetchGeneration = generation;
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<News> news = pageSource.fetchPage(page);
+
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Ignore pages of a feed that has since been reset
+                        if (fetchGeneration != generation) {
+                            return;
+                        }
+                        fetching = false;
+                        onPageFetched(news, append);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Add a fetched page to the window, dropping the page at the opposite end if needed.
+     *
+     * @param news   News of the page, or null if fetching failed.
+     * @param append true to add the page after the window, false to add it before.
+     */
+    private void onPageFetched(List<News> news, boolean append) {
+        // On failure, leave the window as it is: a scroll after the retry delay will try again
+        if (news == null) {
+            waitingToRetry = true;
+            retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+            retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+            return;
+        }
+        retryDelayMillis = minRetryDelayMillis;
+
+        if (append) {
+            // A short page means there's nothing after it
+            lastPageReached = news.size() < pageSize;
+            if (news.isEmpty()) {
+                return;
+            }
+
+            // Keep the page even if all its news are already shown, so page numbers stay right
+            List<News> unseenNews = removeNewsInWindow(news);
+            pages.addLast(unseenNews);
+            listener.onPageAppended(unseenNews);
+
+            if (pages.size() > maxPagesInWindow) {
+                firstPage++;
+                listener.onPageDropped(pages.removeFirst().size(), true);
+            }
+        } else {
+            if (news.isEmpty()) {
+                return;
+            }
+
+            firstPage--;
+            List<News> unseenNews = removeNewsInWindow(news);
+            pages.addFirst(unseenNews);
+            listener.onPagePrepended(unseenNews);
+
+            if (pages.size() > maxPagesInWindow) {
+                // Pages after the window exist, since we've already been there
+                lastPageReached = false;
+                listener.onPageDropped(pages.removeLast().size(), false);
+            }
+        }
+    }
+
+    /**
+     * Filter out the news of a page that are already in the window.
+     *
+     * @param news News of a fetched page.
+     * @return News of the page whose URL isn't in the window yet, nor a near-duplicate title.
+     */
+    private List<News> removeNewsInWindow(List<News> news) {
+        Set<String> urlsInWindow = new HashSet<>();
+        NearDuplicateDetector titlesInWindow = new NearDuplicateDetector((pages.size() + 1) * pageSize);
+        for (List<News> page : pages) {
+            for (News currentNews : page) {
+                urlsInWindow.add(currentNews.getUrl());
+                titlesInWindow.add(currentNews.getTitle());
+            }
+        }
+
+        List<News> unseenNews = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            if (urlsInWindow.add(currentNews.getUrl()) && titlesInWindow.add(currentNews.getTitle())) {
+                unseenNews.add(currentNews);
+            }
+        }
+        return unseenNews;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.android.newsfeed;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Projection of The Guardian's search results onto the news fields the app uses.
+ * <p>
+ * A projection maps each field it includes to what has to be asked of the API to get it, so
+ * queries only ask for what's used, and tells the parser which fields of a result to read: the
+ * others are skipped without being materialized, even when the response holds them.
+ * <p>
+ * URL, title and section are part of every result and required by every news, so every
+ * projection includes them.
+ */
+public final class NewsProjection {
+
+    /**
+     * Field of a search result.
+     */
+    public enum Field {
+
+        /**
+         * URL of the article, always returned.
+         */
+        URL,
+
+        /**
+         * Title of the article, always returned.
+         */
+        TITLE,
+
+        /**
+         * Name of the section of the article, always returned.
+         */
+        SECTION,
+
+        /**
+         * Publication date of the article, always returned.
+         */
+        PUBLICATION_DATE,
+
+        /**
+         * Byline of the article, as The Guardian displays it -- for example 'Julia Carrie Wong
+         * and Olivia Solon'. A few dozen bytes per result, read as one author per name it lists.
+         */
+        BYLINE("show-fields", "byline"),
+
+        /**
+         * URL of the thumbnail of the article, a 500 pixels wide image, when it has one.
+         */
+        THUMBNAIL("show-fields", "thumbnail"),
+
+        /**
+         * Contributor tags of the article, read as one author per contributor. Each tag comes
+         * with its bio, URLs and images, so this is several hundred bytes per contributor.
+         */
+        CONTRIBUTORS("show-tags", "contributor");
+
+        /**
+         * Query parameter asking for the field, or null if the field is always returned.
+         */
+        final String queryParameter;
+
+        /**
+         * Value of the query parameter asking for the field.
+         */
+        final String queryValue;
+
+        Field() {
+            this(null, null);
+        }
+
+        Field(String queryParameter, String queryValue) {
+            this.queryParameter = queryParameter;
+            this.queryValue = queryValue;
+        }
+    }
+
+    /**
+     * Projection used by the feed and the background sync: everything a news displays, with
+     * authors split out of the byline rather than read from the much larger contributor tags.
+     */
+    public static final NewsProjection FEED = of(Field.PUBLICATION_DATE, Field.BYLINE, Field.THUMBNAIL);
+
+    /**
+     * Projection reading every field a response may hold, whatever was asked for.
+     */
+    public static final NewsProjection ALL = of(Field.PUBLICATION_DATE, Field.BYLINE, Field.THUMBNAIL, Field.CONTRIBUTORS);
+
+    private final Set<Field> fields;
+
+    private NewsProjection(Set<Field> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Build a projection including the given fields, along with URL, title and section.
+     *
+     * @param optionalFields Fields to include.
+     * @return Projection.
+     */
+    public static NewsProjection of(Field... optionalFields) {
+        EnumSet<Field> fields = EnumSet.of(Field.URL, Field.TITLE, Field.SECTION);
+        Collections.addAll(fields, optionalFields);
+        return new NewsProjection(fields);
+    }
+
+    /**
+     * @param field Field of a search result.
+     * @return true if the projection includes the field.
+     */
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * Get the query parameters asking the API for the fields of the projection, and nothing more.
+     *
+     * @return Values by parameter name, comma-separated when a parameter asks for several fields.
+     */
+    public Map<String, String> getQueryParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (Field field : fields) {
+            if (field.queryParameter == null) {
+                continue;
+            }
+            String value = parameters.get(field.queryParameter);
+            parameters.put(field.queryParameter, value == null ? field.queryValue : value + "," + field.queryValue);
+        }
+        return parameters;
+    }
+}
@@ -1,22 +1,21 @@
 package com.example.android.newsfeed;
 
-import android.text.TextUtils;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Utility class for fetching news data from The Guardian's API.
@@ -30,6 +29,69 @@ public final class NewsQuery {
      */
     private static final String LOG_TAG = NewsQuery.class.getName();
 
+    /**
+     * Name of the query parameter carrying the API key.
+     */
+    static final String API_KEY_PARAMETER = "api-key";
+
+    /**
+     * Validators of previous responses, used to make conditional requests.
+     */
+    static final HttpValidatorCache httpValidatorCache = new HttpValidatorCache();
+
+    /**
+     * Timeouts of requests whose caller doesn't adapt them, in milliseconds.
+     */
+    static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000;
+    static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Listener told about the connection of a request before it's established, so that it can abort
+     * the request later on by disconnecting it.
+     */
+    public interface ConnectionListener {
+
+        /**
+         * Called on the fetching thread once the connection is configured, before connecting.
+         *
+         * @param httpURLConnection Connection of the request.
+         * @throws IOException to abort the request before it's sent.
+         */
+        void onConnectionOpened(HttpURLConnection httpURLConnection) throws IOException;
+    }
+
+    /**
+     * Exception thrown when the API answers with an unexpected status code.
+     */
+    public static final class HttpStatusException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final long retryAfterMillis;
+
+        HttpStatusException(int statusCode, long retryAfterMillis) {
+            super("Unexpected response code: " + statusCode);
+            this.statusCode = statusCode;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        /**
+         * @return Status code of the response.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return Delay the server asked for with a Retry-After header, in milliseconds, or -1 if
+         * it didn't.
+         */
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
     /**
      * Private, empty constructor, since we won't instantiate NewsQuery objects, because
      * this is a utility class: methods can be called directly using the class name, since they're
@@ -42,28 +104,111 @@ public final class NewsQuery {
      * Fetch news data from The Guardian's API.
      *
      * @param queryUrlString URL used to query the API.
-     * @return List of news objects.
+     * @return List of news objects, or null if fetching failed.
      */
     public static List<News> fetchNews(String queryUrlString) {
+        return fetchNews(queryUrlString, null);
+    }
+
+    /**
+     * Fetch news data from The Guardian's API, letting the caller abort the request.
+     * <p>
+     * Disconnecting the connection passed to the listener makes the request fail, even while its
+     * body is being read.
+     *
+     * @param queryUrlString     URL used to query the API.
+     * @param connectionListener Listener told about the connection, or null.
+     * @return List of news objects, or null if fetching failed or was aborted.
+     */
+    public static List<News> fetchNews(String queryUrlString, ConnectionListener connectionListener) {
 
         // Create query URL object from query URL string.
         URL queryUrlObject = makeUrlObject(queryUrlString);
 
-        // Fetch news data in JSON
-        String newsJson = null;
+        // If query URL object is null, return early.
+        if (queryUrlObject == null) {
+            return null;
+        }
+
+        // Fetch news data and parse it as it streams in
+        List<News> news = null;
 
         try {
-            newsJson = fetchJson(queryUrlObject);
+            news = fetchAndExtractNews(queryUrlObject, connectionListener,
+                    DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, null);
         } catch (IOException exception) {
-            Log.e(LOG_TAG, "Problem fetching JSON: ", exception);
+            Log.e(LOG_TAG, "Problem fetching news: ", exception);
         }
 
-        // Extract relevant fields from JSON response and create list of news objects
-        List<News> news = extractFeaturesFromJson(newsJson);
-
         return news;
     }
 
+    /**
+     * Fetch news data from The Guardian's API with the given timeouts, telling why it failed.
+     * <p>
+     * Meant for callers deciding whether to retry: unexpected status codes are reported with an
+     * {@link HttpStatusException}.
+     *
+     * @param queryUrlString       URL used to query the API.
+     * @param connectionListener   Listener told about the connection, or null.
+     * @param connectTimeoutMillis Timeout for establishing the connection, in milliseconds.
+     * @param readTimeoutMillis    Timeout for each read of the response, in milliseconds.
+     * @param batchListener        Listener receiving batches of news while the body is parsed, or null.
+     * @return List of news objects.
+     * @throws IOException if fetching or parsing failed, or was aborted.
+     */
+    static List<News> fetchNewsOrThrow(String queryUrlString, ConnectionListener connectionListener,
+                                       int connectTimeoutMillis, int readTimeoutMillis,
+                                       NewsBatcher.Listener batchListener) throws IOException {
+        return fetchAndExtractNews(new URL(queryUrlString), connectionListener, connectTimeoutMillis, readTimeoutMillis,
+                batchListener);
+    }
+
+    /**
+     * Get the news of the last response to a query that came with validators.
+     *
+     * @param queryUrlString URL used to query the API.
+     * @return Copy of the news, or null if there's no such response.
+     */
+    static List<News> lastValidatedNews(String queryUrlString) {
+        HttpValidatorCache.Entry validators = httpValidatorCache.get(normalizeQueryUrl(queryUrlString));
+        return validators == null ? null : validators.copyNews();
+    }
+
+    /**
+     * Normalize a query URL, so that equivalent queries map to the same string.
+     * <p>
+     * Query parameters are sorted and the API key is dropped, since it doesn't affect results.
+     *
+     * @param queryUrlString URL used to query the API.
+     * @return Normalized query URL, suitable as a cache key.
+     */
+    public static String normalizeQueryUrl(String queryUrlString) {
+        int queryStart = queryUrlString.indexOf('?');
+
+        // If there are no query parameters, there's nothing to normalize
+        if (queryStart < 0) {
+            return queryUrlString;
+        }
+
+        // Keep every non-empty parameter but the API key
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : queryUrlString.substring(queryStart + 1).split("&")) {
+            if (!parameter.isEmpty() && !parameter.startsWith(API_KEY_PARAMETER + "=")) {
+                parameters.add(parameter);
+            }
+        }
+        Collections.sort(parameters);
+
+        // Rebuild URL with sorted parameters
+        StringBuilder normalizedUrl = new StringBuilder(queryUrlString.substring(0, queryStart));
+        for (int i = 0; i < parameters.size(); i++) {
+            normalizedUrl.append(i == 0 ? '?' : '&').append(parameters.get(i));
+        }
+
+        return normalizedUrl.toString();
+    }
+
     /**
      * Make URL object from URL string.
      *
@@ -83,151 +228,250 @@ public final class NewsQuery {
     }
 
     /**
-     * Fetch JSON data.
+     * Fetch JSON data and extract news from it while it is being downloaded.
+     * <p>
+     * The request asks for a gzip-compressed body and carries the validators of the previous
+     * response to the same query, if any. When the server answers 304 Not Modified, the news
+     * parsed from that previous response are returned without downloading anything else.
+     * <p>
+     * The connection is only torn down on failure, so it can go back to the keep-alive pool.
      *
-     * @param queryUrl URL object used to query the API.
-     * @return JSON response received from the served.
-     * @throws IOException if a problem occurs while closing the input stream.
+     * @param queryUrl             URL object used to query the API.
+     * @param connectionListener   Listener told about the connection, or null.
+     * @param connectTimeoutMillis Timeout for establishing the connection, in milliseconds.
+     * @param readTimeoutMillis    Timeout for each read of the response, in milliseconds.
+     * @param batchListener        Listener receiving batches of news while the body is parsed, or null.
+     * @return List of news objects.
+     * @throws IOException if the request failed, the response couldn't be parsed, or a problem
+     *                     occurs while closing the input stream.
      */
-    private static String fetchJson(URL queryUrl) throws IOException {
-        String jsonResponse = "";
+    private static List<News> fetchAndExtractNews(URL queryUrl, ConnectionListener connectionListener,
+                                                  int connectTimeoutMillis, int readTimeoutMillis,
+                                                  NewsBatcher.Listener batchListener) throws IOException {
+        List<News> news;
 
-        // If query URL object is null, return early.
-        if (queryUrl == null) {
-            return jsonResponse;
-        }
+        // Get validators of the previous response to this query, if any
+        String validatorKey = normalizeQueryUrl(queryUrl.toString());
+        HttpValidatorCache.Entry validators = httpValidatorCache.get(validatorKey);
 
         // Fetch data
         HttpURLConnection httpURLConnection = null;
         InputStream inputStream = null;
+        boolean connectionReusable = false;
 
         try {
             // Configure and establish HTTP connection
             httpURLConnection = (HttpURLConnection) queryUrl.openConnection();
-            httpURLConnection.setReadTimeout(10000 /* milliseconds */);
-            httpURLConnection.setConnectTimeout(15000 /* milliseconds */);
+            httpURLConnection.setReadTimeout(readTimeoutMillis);
+            httpURLConnection.setConnectTimeout(connectTimeoutMillis);
             httpURLConnection.setRequestMethod("GET");
+
+            // Ask for a compressed body. Setting the header ourselves disables transparent
+            // decompression, so the body is decompressed in decodeBody() instead.
+            httpURLConnection.setRequestProperty("Accept-Encoding", "gzip");
+
+            // Make the request conditional, so an unchanged feed costs no body at all
+            if (validators != null) {
+                if (validators.eTag != null) {
+                    httpURLConnection.setRequestProperty("If-None-Match", validators.eTag);
+                }
+                if (validators.lastModified != null) {
+                    httpURLConnection.setRequestProperty("If-Modified-Since", validators.lastModified);
+                }
+            }
+
+            // Let the caller abort the request from now on
+            if (connectionListener != null) {
+                connectionListener.onConnectionOpened(httpURLConnection);
+            }
+
+            // Time the connection and the wait for the response separately
+            NewsMetrics metrics = NewsMetrics.getDefault();
+            long connectStartNanos = System.nanoTime();
             httpURLConnection.connect();
+            long connectedNanos = System.nanoTime();
+            metrics.recordStage(NewsMetrics.Stage.CONNECT, connectedNanos - connectStartNanos);
+
+            int responseCode = httpURLConnection.getResponseCode();
+            metrics.recordStage(NewsMetrics.Stage.FIRST_BYTE, System.nanoTime() - connectedNanos);
 
             // If connection successful (response code 200)...
-            if (httpURLConnection.getResponseCode() == 200) {
-                // ... get and read input stream
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // ... get input stream and parse it as bytes arrive
+                inputStream = httpURLConnection.getInputStream();
+                MeteredInputStream meteredStream = new MeteredInputStream(inputStream);
+                long bodyStartNanos = System.nanoTime();
+                news = extractFeaturesFromJson(decodeBody(httpURLConnection, meteredStream), batchListener);
+
+                // Consume what's left of the body, so the connection can be reused
+                drain(meteredStream);
+                connectionReusable = true;
+
+                // Download and parsing are interleaved: parsing is whatever time wasn't spent waiting for bytes
+                long bodyNanos = System.nanoTime() - bodyStartNanos;
+                metrics.recordStage(NewsMetrics.Stage.DOWNLOAD, meteredStream.readNanos);
+                metrics.recordStage(NewsMetrics.Stage.PARSE, bodyNanos - meteredStream.readNanos);
+                metrics.recordResponseBytes(meteredStream.byteCount);
+
+                // Remember validators for the next request to this query
+                httpValidatorCache.put(validatorKey,
+                        httpURLConnection.getHeaderField("ETag"),
+                        httpURLConnection.getHeaderField("Last-Modified"),
+                        news);
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                // ... or reuse the news parsed last time if they haven't changed.
+                // The empty body stream is still closed below, which releases the connection.
                 inputStream = httpURLConnection.getInputStream();
-                jsonResponse = readStream(inputStream);
+                news = validators.copyNews();
+                connectionReusable = true;
+                metrics.recordResponseBytes(0);
             } else {
-                Log.e(LOG_TAG, "Problem establishing HTTP connection. Response code received: " + httpURLConnection.getResponseCode());
+                // ... or tell the caller what went wrong, and when to try again if the server said so
+                throw new HttpStatusException(responseCode,
+                        parseRetryAfterMillis(httpURLConnection.getHeaderField("Retry-After"), System.currentTimeMillis()));
             }
-        } catch (IOException exception) {
-            Log.e(LOG_TAG, "Problem reading input stream: ", exception);
         } finally {
-            // Close connection and stream, if these exist
-            if (httpURLConnection != null) {
-                httpURLConnection.disconnect();
-            }
+            // Close stream, if it exists, which releases the connection to the pool
             if (inputStream != null) {
                 // May throw IOException, which is why the enclosing method signature specifies
-                // that IOException may be thrown. Therefore, the fetchJson method should always be
-                // called within a try/catch.
+                // that IOException may be thrown. Therefore, the fetchAndExtractNews method should
+                // always be called within a try/catch.
                 inputStream.close();
             }
+            // Only tear down connections that may be left in an unknown state
+            if (httpURLConnection != null && !connectionReusable) {
+                httpURLConnection.disconnect();
+            }
         }
 
-        return jsonResponse;
+        return news;
     }
 
     /**
-     * Read bytestream efficiently.
+     * Parse the value of a Retry-After header, either a number of seconds or an HTTP date.
      *
-     * @param inputStream Input bytestream to read.
-     * @return String translation of the input bytestream.
-     * @throws IOException if a problem occurs while reading the input bytestream.
+     * @param retryAfter Value of the header, or null.
+     * @param nowMillis  Current time, in milliseconds since the epoch.
+     * @return Delay to wait before retrying, in milliseconds, or -1 if there's no valid value.
      */
-    private static String readStream(InputStream inputStream) throws IOException {
-
-        // Instantiate StringBuilder to store response read from input stream
-        StringBuilder stringBuilder = new StringBuilder();
-
-        // If we're receiving a stream of bytes...
-        if (inputStream != null) {
-            // ... instantiate stream reader and pass it the bytestream
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-
-            // Instantiate buffer reader for efficiency --- to read line by line instead of character by character
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-
-            // Read stream line by line until end of bytestream
-            String line = bufferedReader.readLine();
+    static long parseRetryAfterMillis(String retryAfter, long nowMillis) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
 
-            while (line != null) {
-                stringBuilder.append(line);
-                line = bufferedReader.readLine();
-            }
+        try {
+            long seconds = Long.parseLong(retryAfter);
+            return seconds < 0 ? -1 : seconds * 1000;
+        } catch (NumberFormatException exception) {
+            // Not a number of seconds: may be a date
         }
 
-        // Return lines stored as a single String
-        return stringBuilder.toString();
+        SimpleDateFormat httpDateParser = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        try {
+            Date retryDate = httpDateParser.parse(retryAfter);
+            return Math.max(0, retryDate.getTime() - nowMillis);
+        } catch (ParseException exception) {
+            return -1;
+        }
     }
 
     /**
-     * Extract news date from JSON string, such as title, publication date, and author.
+     * Wrap the body stream so it is decompressed, if the server compressed it.
      *
-     * @param newsJson JSON strings that represents a series of news.
-     * @return A list of news objects.
+     * @param httpURLConnection Connection the body was received on.
+     * @param inputStream       Raw body stream.
+     * @return Stream of the decompressed body.
+     * @throws IOException if the gzip header can't be read.
      */
-    private static List<News> extractFeaturesFromJson(String newsJson) {
-        // If newsJson is empty or null, return early
-        if (TextUtils.isEmpty(newsJson)) {
-            return null;
+    private static InputStream decodeBody(HttpURLConnection httpURLConnection, InputStream inputStream) throws IOException {
+        if ("gzip".equalsIgnoreCase(httpURLConnection.getContentEncoding())) {
+            return new GZIPInputStream(inputStream);
         }
+        return inputStream;
+    }
 
-        // Create empty list to store news objects
-        List<News> news = new ArrayList<>();
-
-        // Try to parse newsJson
-        try {
-            // Convert JSON String to JSON Object
-            JSONObject responseObject = new JSONObject(newsJson);
-
-            // Extract JSON object indexed by 'response'
-            JSONObject newsObject = responseObject.getJSONObject("response");
-
-            // Extract JSON array indexed by 'results'. It represents a list of articles.
-            JSONArray newsArray = newsObject.getJSONArray("results");
+    /**
+     * Stream counting the bytes read from the stream it wraps, and the time spent reading them.
+     */
+    private static final class MeteredInputStream extends FilterInputStream {
 
-            // For each news in newsArray, create a news object
-            for (int i = 0; i < newsArray.length(); i++) {
-                // Get news at current index
-                JSONObject newsProperties = newsArray.getJSONObject(i);
+        long byteCount;
+        long readNanos;
 
-                // Extract required properties from current news object
-                String url = newsProperties.getString("webUrl");
-                String title = newsProperties.getString("webTitle");
-                String section = newsProperties.getString("sectionName");
+        MeteredInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
 
-                // Extract optional date property from current news object
-                String date = newsProperties.optString("webPublicationDate");
+        @Override
+        public int read() throws IOException {
+            long startNanos = System.nanoTime();
+            int value = super.read();
+            readNanos += System.nanoTime() - startNanos;
+            if (value != -1) {
+                byteCount++;
+            }
+            return value;
+        }
 
-                // Extract optional authors property from current news object
-                JSONArray authorsArray = newsProperties.getJSONArray("tags");
-                ArrayList<String> authors = new ArrayList<>();
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long startNanos = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - startNanos;
+            if (read > 0) {
+                byteCount += read;
+            }
+            return read;
+        }
 
-                // If the authors array is empty, this for loop will be skipped
-                for (int j = 0; j < authorsArray.length(); j++) {
-                    JSONObject author = authorsArray.getJSONObject(j);
-                    authors.add(author.getString("webTitle"));
-                }
+        @Override
+        public long skip(long count) throws IOException {
+            long startNanos = System.nanoTime();
+            long skipped = super.skip(count);
+            readNanos += System.nanoTime() - startNanos;
+            byteCount += skipped;
+            return skipped;
+        }
+    }
 
-                // Create news object with properties extracted
-                News currentNews = new News(url, title, section, date, authors);
+    /**
+     * Read a stream until its end, discarding what's read.
+     *
+     * @param inputStream Stream to drain.
+     * @throws IOException if a problem occurs while reading the stream.
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard
+        }
+    }
 
-                // Append news to news list
-                news.add(currentNews);
+    /**
+     * Extract news data from a JSON bytestream, such as title, publication date, and author.
+     * <p>
+     * The stream is parsed incrementally, so no String copy of the response nor JSON tree is
+     * ever held in memory. Only the fields the feed asked for are read. With a batch listener,
+     * the news parsed so far are handed out every few entries, while the rest is still downloading.
+     *
+     * @param newsJsonStream JSON bytestream that represents a series of news.
+     * @param batchListener  Listener receiving batches of news as they're parsed, or null.
+     * @return A list of news objects.
+     * @throws IOException if the stream can't be read, or the JSON could not be parsed.
+     */
+    private static List<News> extractFeaturesFromJson(InputStream newsJsonStream, NewsBatcher.Listener batchListener)
+            throws IOException {
+        try {
+            if (batchListener == null) {
+                return NewsJsonParser.parseNews(newsJsonStream, NewsProjection.FEED);
             }
-
-        } catch (JSONException exception) {
-            Log.e(LOG_TAG, "Problem extracting news data from JSON: ", exception);
+            NewsBatcher batcher = new NewsBatcher(batchListener);
+            NewsJsonParser.parseNews(newsJsonStream, NewsProjection.FEED, batcher);
+            return batcher.getNews();
+        } catch (IllegalStateException exception) {
+            // Gson signals unexpected tokens with IllegalStateException
+            throw new IOException("Problem extracting news data from JSON", exception);
         }
-
-        return news;
     }
 }
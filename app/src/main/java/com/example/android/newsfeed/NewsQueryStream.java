@@ -0,0 +1,109 @@
+package com.example.android.newsfeed;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream of the queries the feed should show, built from preference changes.
+ * <p>
+ * Changes are debounced: a query is only emitted once no other change came for the debounce
+ * delay, so editing the keywords then the order in a row loads one feed, not two. A query equal
+ * to the last one emitted -- a change undone within the delay, or a preference that doesn't
+ * affect the query -- isn't emitted at all.
+ * <p>
+ * Cancelling the load of the previous query is up to the listener.
+ */
+public class NewsQueryStream {
+
+    /**
+     * Listener of the queries emitted.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the listener executor when the query settled on a new value.
+         *
+         * @param queryUrls URLs of the new query.
+         * @param key       Cache key of the new query, as built by {@link NewsCache#keyFor(List)}.
+         */
+        void onQueryChanged(List<String> queryUrls, String key);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor listenerExecutor;
+    private final long debounceMillis;
+    private final Listener listener;
+
+    /**
+     * Emission waiting for the debounce delay to pass, if any. Guarded by this.
+     */
+    private ScheduledFuture<?> pendingEmission;
+
+    /**
+     * Cache key of the last query emitted. Guarded by this.
+     */
+    private String lastKey;
+
+    /**
+     * Instantiate a stream.
+     *
+     * @param initialQueryUrls URLs of the query the feed shows to begin with, which isn't emitted.
+     * @param scheduler        Executor waiting out the debounce delay, on a single thread so queries are
+     *                         emitted in order.
+     * @param listenerExecutor Executor on which the listener is called.
+     * @param debounceMillis   Time without changes after which a query is emitted, in milliseconds.
+     * @param listener         Listener of the queries emitted.
+     */
+    public NewsQueryStream(List<String> initialQueryUrls, ScheduledExecutorService scheduler, Executor listenerExecutor,
+                           long debounceMillis, Listener listener) {
+        this.lastKey = NewsCache.keyFor(initialQueryUrls);
+        this.scheduler = scheduler;
+        this.listenerExecutor = listenerExecutor;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Submit the query following a change, replacing any query still waiting to be emitted.
+     *
+     * @param queryUrls URLs of the query.
+     */
+    public synchronized void submit(final List<String> queryUrls) {
+        if (pendingEmission != null) {
+            pendingEmission.cancel(false);
+        }
+
+        pendingEmission = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                emit(queryUrls);
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emit a query that settled, unless it's the one emitted last.
+     *
+     * @param queryUrls URLs of the query.
+     */
+    private void emit(final List<String> queryUrls) {
+        final String key = NewsCache.keyFor(queryUrls);
+        synchronized (this) {
+            if (key.equals(lastKey)) {
+                return;
+            }
+            lastKey = key;
+        }
+
+        // Emissions run one at a time on the scheduler's thread, so they're handed over in order
+        listenerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onQueryChanged(queryUrls, key);
+            }
+        });
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builder of the URLs querying The Guardian's API for the news matching the user preferences,
+ * along with the addresses of the other feeds the user follows.
+ * <p>
+ * Shared by the feed and the background sync, so both query exactly the same thing.
+ */
+public final class NewsQueryUrls {
+
+    /**
+     * URL used to query The Guardian's API -- We query articles about Google
+     */
+    static final String NEWS_QUERY_URL = "https://content.guardianapis.com/search";
+
+    /**
+     * Key granting access to The Guardian's API.
+     */
+    private static final String API_KEY = "54a72938-b6be-4f0b-b258-15a961c183cf";
+
+    /**
+     * Number of results requested per page.
+     */
+    public static final int PAGE_SIZE = 20;
+
+    /**
+     * Private, empty constructor, since this is a utility class.
+     */
+    private NewsQueryUrls() {
+    }
+
+    /**
+     * Build URLs querying a page of news matching the current preferences: one per followed
+     * section, or a single one across all sections if the user follows none. The first page also
+     * holds the address of each RSS or Atom feed followed, which have no further pages.
+     * <p>
+     * Safe to call from any thread.
+     *
+     * @param context Any context, used to read preferences.
+     * @param page    Page number, starting at 1.
+     * @return URL strings for querying news API.
+     */
+    public static List<String> build(Context context, int page) {
+        return build(context, page, null);
+    }
+
+    /**
+     * Build URLs querying a page of news matching the current preferences, restricted to news
+     * published from the given date.
+     *
+     * @param context  Any context, used to read preferences.
+     * @param page     Page number, starting at 1.
+     * @param fromDate ISO 8601 date or date-time of the oldest news to return, or null for no bound.
+     * @return URL strings for querying news API.
+     */
+    public static List<String> build(Context context, int page, String fromDate) {
+        // Get app preference object that holds settings values stored in default app settings file
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Get sections followed by the user, if any
+        Set<String> sections = sharedPreferences.getStringSet(
+                context.getString(R.string.settings_sections_key),
+                Collections.<String>emptySet());
+
+        // Get feeds followed by the user, if any -- they only have a first page
+        Set<String> feedUrls = page == 1
+                ? sharedPreferences.getStringSet(context.getString(R.string.settings_feeds_key), Collections.<String>emptySet())
+                : Collections.<String>emptySet();
+
+        // Query all sections at once when none is followed
+        if (sections.isEmpty() && feedUrls.isEmpty()) {
+            return Collections.singletonList(buildQueryUrl(context, sharedPreferences, page, null, fromDate));
+        }
+
+        // Otherwise, query each section separately, in a stable order
+        List<String> queryUrls = new ArrayList<>(sections.size() + feedUrls.size());
+        if (sections.isEmpty()) {
+            queryUrls.add(buildQueryUrl(context, sharedPreferences, page, null, fromDate));
+        }
+        for (String section : new TreeSet<>(sections)) {
+            queryUrls.add(buildQueryUrl(context, sharedPreferences, page, section, fromDate));
+        }
+
+        // Then read each feed, which answers with its latest items whatever the keywords
+        queryUrls.addAll(new TreeSet<>(feedUrls));
+        return queryUrls;
+    }
+
+    /**
+     * Get the search keywords chosen by the user.
+     *
+     * @param context Any context, used to read preferences.
+     * @return Search keywords, as passed to the API.
+     */
+    public static String getSearchKeywords(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getString(
+                context.getString(R.string.settings_search_keywords_key),
+                context.getString(R.string.settings_search_keywords_default));
+    }
+
+    /**
+     * Tell whether the feed is ordered on the device, by {@link NewsRanker}, rather than by the API.
+     *
+     * @param context Any context, used to read preferences.
+     * @return true if the user chose the personalised order.
+     */
+    public static boolean isOrderedOnDevice(Context context) {
+        String orderBy = PreferenceManager.getDefaultSharedPreferences(context).getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+        return orderBy.equals(context.getString(R.string.settings_order_by_personalised_value));
+    }
+
+    /**
+     * Tell whether the feed leaves out the news the user already read.
+     *
+     * @param context Any context, used to read preferences.
+     * @return true if the user chose to hide read news.
+     */
+    public static boolean hidesReadNews(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(
+                context.getString(R.string.settings_hide_read_key), false);
+    }
+
+    /**
+     * Build URL querying a page of news matching the current preferences.
+     *
+     * @param context           Any context, used to read preference keys and defaults.
+     * @param sharedPreferences App preferences.
+     * @param page              Page number, starting at 1.
+     * @param section           ID of the section to restrict results to, or null for all sections.
+     * @param fromDate          Date of the oldest news to return, or null for no bound.
+     * @return URL string for querying news API.
+     */
+    private static String buildQueryUrl(Context context, SharedPreferences sharedPreferences, int page,
+                                        String section, String fromDate) {
+
+        // Get current string value and default string value from specific preference
+
+        // First, get current search keywords and default search keywords
+        String searchKeywords = sharedPreferences.getString(
+                context.getString(R.string.settings_search_keywords_key),
+                context.getString(R.string.settings_search_keywords_default));
+
+        // Second, get current sort order and default sort order
+        String orderBy = sharedPreferences.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+
+        // The API doesn't know the personalised order: ask for the most relevant news, which the
+        // device then ranks. The query stays the same, so switching to it needs no reload.
+        if (orderBy.equals(context.getString(R.string.settings_order_by_personalised_value))) {
+            orderBy = context.getString(R.string.settings_order_by_relevance_value);
+        }
+
+        // Build URI query object from URL query String
+        Uri baseQueryUri = Uri.parse(NEWS_QUERY_URL);
+
+        // Prepare URI query object we just built to receive query parameters and values
+        Uri.Builder baseQueryUriBuilder = baseQueryUri.buildUpon();
+
+        // Append query parameters and values -- for example: 'order-by=newest'
+        baseQueryUriBuilder.appendQueryParameter(NewsQuery.API_KEY_PARAMETER, API_KEY); // Pass my API key
+        baseQueryUriBuilder.appendQueryParameter("q", searchKeywords); // Result should contain keywords
+        baseQueryUriBuilder.appendQueryParameter("order-by", orderBy); // Result should contain keywords
+        baseQueryUriBuilder.appendQueryParameter("page-size", String.valueOf(PAGE_SIZE)); // Results per page
+        baseQueryUriBuilder.appendQueryParameter("page", String.valueOf(page)); // Page to fetch
+        if (section != null) {
+            baseQueryUriBuilder.appendQueryParameter("section", section); // Results should belong to section
+        }
+        if (fromDate != null) {
+            baseQueryUriBuilder.appendQueryParameter("from-date", fromDate); // Results published since
+        }
+
+        // Ask for the fields the feed uses, and nothing more -- for example: 'show-fields=byline'
+        for (Map.Entry<String, String> parameter : NewsProjection.FEED.getQueryParameters().entrySet()) {
+            baseQueryUriBuilder.appendQueryParameter(parameter.getKey(), parameter.getValue());
+        }
+
+        return baseQueryUriBuilder.toString();
+    }
+}
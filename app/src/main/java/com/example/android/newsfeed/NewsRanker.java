@@ -0,0 +1,365 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * On-device ranking of news, ordering a feed by what the user reads rather than by the server's
+ * order.
+ * <p>
+ * Each news is scored on three signals:
+ * <ul>
+ * <li>recency: its score halves every {@link #RECENCY_HALF_LIFE_MILLIS};</li>
+ * <li>affinity: how often the user read its section, and its most read author;</li>
+ * <li>keyword match: the share of the search keywords found in its title, or failing that in its
+ * section or authors.</li>
+ * </ul>
+ * Features are computed once per news when the feed is set: recency and keyword match make a base
+ * score, and each news knows the ids of its section and authors. A read only changes the affinity
+ * of one section and a few authors, so only the news sharing them are scored again. The best news
+ * are then picked with a heap bounded by the number asked for, without sorting the whole feed.
+ * <p>
+ * Not thread-safe: meant to be used on the main thread.
+ */
+public class NewsRanker {
+
+    /**
+     * Time after which the recency of a news is halved, in milliseconds.
+     */
+    static final long RECENCY_HALF_LIFE_MILLIS = 12 * 60 * 60 * 1000;
+
+    // Define weight of each signal in the score
+    private static final float RECENCY_WEIGHT = 1f;
+    private static final float SECTION_WEIGHT = 1f;
+    private static final float AUTHOR_WEIGHT = 0.75f;
+    private static final float KEYWORD_WEIGHT = 1.5f;
+
+    /**
+     * Weight of a keyword found in the section or authors rather than in the title.
+     */
+    private static final float KEYWORD_ELSEWHERE_WEIGHT = 0.5f;
+
+    /**
+     * Number of reads at which affinity is half its maximum. Affinity saturates, so a section read
+     * a hundred times doesn't bury everything else.
+     */
+    private static final float HALF_AFFINITY_READS = 5f;
+
+    /**
+     * Number of reads of each section and author, by name.
+     */
+    private final Map<String, Integer> sectionReads;
+    private final Map<String, Integer> authorReads;
+
+    /**
+     * News of the feed, in server order.
+     */
+    private List<News> news = Collections.emptyList();
+
+    /**
+     * Score of each news without affinity: recency and keyword match.
+     */
+    private float[] baseScores = new float[0];
+
+    /**
+     * Current score of each news.
+     */
+    private float[] scores = new float[0];
+
+    /**
+     * Section id of each news, and author ids of each news, as indexes in the arrays below.
+     */
+    private int[] sectionIds = new int[0];
+    private int[][] authorIds = new int[0][];
+
+    /**
+     * Ids of the sections and authors of the feed, by name.
+     */
+    private Map<String, Integer> sectionIdsByName = new HashMap<>();
+    private Map<String, Integer> authorIdsByName = new HashMap<>();
+
+    /**
+     * Affinity of each section and author, by id.
+     */
+    private float[] sectionAffinities = new float[0];
+    private float[] authorAffinities = new float[0];
+
+    /**
+     * News of each section and of each author, by id.
+     */
+    private int[][] sectionPostings = new int[0][];
+    private int[][] authorPostings = new int[0][];
+
+    /**
+     * Orders news positions from worst to best score, ties going to the later position.
+     */
+    private final Comparator<Integer> worstFirst = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer first, Integer second) {
+            int byScore = Float.compare(scores[first], scores[second]);
+            return byScore != 0 ? byScore : second - first;
+        }
+    };
+
+    /**
+     * Instantiate a ranker.
+     *
+     * @param sectionReads Number of reads of each section so far, by name. Copied.
+     * @param authorReads  Number of reads of each author so far, by name. Copied.
+     */
+    public NewsRanker(Map<String, Integer> sectionReads, Map<String, Integer> authorReads) {
+        this.sectionReads = new HashMap<>(sectionReads);
+        this.authorReads = new HashMap<>(authorReads);
+    }
+
+    /**
+     * Set the news to rank, computing their features.
+     *
+     * @param feedNews  News of the feed, in server order.
+     * @param keywords  Search keywords of the feed, or null.
+     * @param nowMillis Current time, in milliseconds since the epoch.
+     */
+    public void setNews(List<News> feedNews, String keywords, long nowMillis) {
+        news = new ArrayList<>(feedNews);
+        int newsCount = news.size();
+        baseScores = new float[newsCount];
+        scores = new float[newsCount];
+        sectionIds = new int[newsCount];
+        authorIds = new int[newsCount][];
+
+        Set<String> keywordTerms = keywords == null ? Collections.<String>emptySet() : NewsSearchIndex.tokenize(keywords);
+        sectionIdsByName = new HashMap<>();
+        authorIdsByName = new HashMap<>();
+
+        for (int i = 0; i < newsCount; i++) {
+            News currentNews = news.get(i);
+            baseScores[i] = RECENCY_WEIGHT * recency(currentNews.getPublicationTimeMillis(), nowMillis)
+                    + KEYWORD_WEIGHT * keywordMatch(currentNews, keywordTerms);
+            sectionIds[i] = idOf(currentNews.getSection(), sectionIdsByName);
+
+            int authorCount = currentNews.getAuthorCount();
+            authorIds[i] = new int[authorCount];
+            for (int author = 0; author < authorCount; author++) {
+                authorIds[i][author] = idOf(currentNews.getAuthor(author), authorIdsByName);
+            }
+        }
+
+        sectionAffinities = affinities(sectionIdsByName, sectionReads);
+        authorAffinities = affinities(authorIdsByName, authorReads);
+        sectionPostings = sectionPostings(sectionIdsByName.size());
+        authorPostings = authorPostings(authorIdsByName.size());
+
+        for (int i = 0; i < newsCount; i++) {
+            updateScore(i);
+        }
+    }
+
+    /**
+     * Record that the user read a news, raising the affinity of its section and authors, and
+     * scoring again the news that share them.
+     *
+     * @param readNews News read, which needn't be in the feed.
+     */
+    public void recordRead(News readNews) {
+        String section = readNews.getSection();
+        int sectionReadCount = increment(sectionReads, section);
+        Integer sectionId = sectionIdsByName.get(section);
+        if (sectionId != null) {
+            sectionAffinities[sectionId] = affinity(sectionReadCount);
+            for (int position : sectionPostings[sectionId]) {
+                updateScore(position);
+            }
+        }
+
+        int authorCount = readNews.getAuthorCount();
+        for (int author = 0; author < authorCount; author++) {
+            String authorName = readNews.getAuthor(author);
+            int authorReadCount = increment(authorReads, authorName);
+            Integer authorId = authorIdsByName.get(authorName);
+            if (authorId != null) {
+                authorAffinities[authorId] = affinity(authorReadCount);
+                for (int position : authorPostings[authorId]) {
+                    updateScore(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the best news of the feed, best first.
+     *
+     * @param limit Maximum number of news to return.
+     * @return Best news, by decreasing score, in server order when scores are equal.
+     */
+    public List<News> top(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Keep the best news seen so far in a min-heap, whose root is the worst of them
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit, worstFirst);
+        for (int i = 0; i < scores.length; i++) {
+            if (best.size() < limit) {
+                best.add(i);
+            } else if (worstFirst.compare(i, best.peek()) > 0) {
+                best.poll();
+                best.add(i);
+            }
+        }
+
+        // Empty the heap from worst to best, filling the result from its end
+        News[] topNews = new News[best.size()];
+        for (int i = topNews.length - 1; i >= 0; i--) {
+            topNews[i] = news.get(best.poll());
+        }
+        return new ArrayList<>(Arrays.asList(topNews));
+    }
+
+    /**
+     * @return News of the feed, in server order.
+     */
+    public List<News> getNews() {
+        return new ArrayList<>(news);
+    }
+
+    /**
+     * Compute the score of a news from its features and the current affinities.
+     *
+     * @param position Position of the news in the feed.
+     */
+    private void updateScore(int position) {
+        float authorAffinity = 0;
+        for (int authorId : authorIds[position]) {
+            authorAffinity = Math.max(authorAffinity, authorAffinities[authorId]);
+        }
+        scores[position] = baseScores[position]
+                + SECTION_WEIGHT * sectionAffinities[sectionIds[position]]
+                + AUTHOR_WEIGHT * authorAffinity;
+    }
+
+    /**
+     * Compute how recent a news is.
+     *
+     * @param publicationTimeMillis Publication date, or {@link NewsDates#UNKNOWN_DATE}.
+     * @param nowMillis             Current time.
+     * @return 1 for a news published now, halving every half-life, or 0 if its date is unknown.
+     */
+    static float recency(long publicationTimeMillis, long nowMillis) {
+        if (publicationTimeMillis == NewsDates.UNKNOWN_DATE) {
+            return 0;
+        }
+        long ageMillis = Math.max(0, nowMillis - publicationTimeMillis);
+        return (float) Math.pow(2, -(double) ageMillis / RECENCY_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * Compute how well a news matches search keywords.
+     *
+     * @param news         News.
+     * @param keywordTerms Terms of the search keywords.
+     * @return Share of the terms found, those found only outside the title counting less, from 0 to 1.
+     */
+    static float keywordMatch(News news, Set<String> keywordTerms) {
+        if (keywordTerms.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> titleTerms = NewsSearchIndex.tokenize(news.getTitle());
+        Set<String> otherTerms = NewsSearchIndex.tokenize(news.getSection() + " " + news.getAuthorsLine());
+        float match = 0;
+        for (String term : keywordTerms) {
+            if (titleTerms.contains(term)) {
+                match += 1;
+            } else if (otherTerms.contains(term)) {
+                match += KEYWORD_ELSEWHERE_WEIGHT;
+            }
+        }
+        return match / keywordTerms.size();
+    }
+
+    /**
+     * Compute the affinity of a section or author from its number of reads.
+     *
+     * @param reads Number of reads.
+     * @return Affinity, from 0 for no reads up to 1.
+     */
+    static float affinity(int reads) {
+        return reads / (reads + HALF_AFFINITY_READS);
+    }
+
+    private static int idOf(String name, Map<String, Integer> idsByName) {
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            id = idsByName.size();
+            idsByName.put(name, id);
+        }
+        return id;
+    }
+
+    private static float[] affinities(Map<String, Integer> idsByName, Map<String, Integer> reads) {
+        float[] affinities = new float[idsByName.size()];
+        for (Map.Entry<String, Integer> entry : idsByName.entrySet()) {
+            Integer readCount = reads.get(entry.getKey());
+            affinities[entry.getValue()] = readCount == null ? 0 : affinity(readCount);
+        }
+        return affinities;
+    }
+
+    private static int increment(Map<String, Integer> reads, String name) {
+        Integer readCount = reads.get(name);
+        int newReadCount = readCount == null ? 1 : readCount + 1;
+        reads.put(name, newReadCount);
+        return newReadCount;
+    }
+
+    /**
+     * List the news of each section, in feed order.
+     */
+    private int[][] sectionPostings(int sectionCount) {
+        int[] counts = new int[sectionCount];
+        for (int sectionId : sectionIds) {
+            counts[sectionId]++;
+        }
+        int[][] postings = newPostings(counts);
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < sectionIds.length; i++) {
+            postings[sectionIds[i]][counts[sectionIds[i]]++] = i;
+        }
+        return postings;
+    }
+
+    /**
+     * List the news of each author, in feed order.
+     */
+    private int[][] authorPostings(int authorCount) {
+        int[] counts = new int[authorCount];
+        for (int[] ids : authorIds) {
+            for (int authorId : ids) {
+                counts[authorId]++;
+            }
+        }
+        int[][] postings = newPostings(counts);
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < authorIds.length; i++) {
+            for (int authorId : authorIds[i]) {
+                postings[authorId][counts[authorId]++] = i;
+            }
+        }
+        return postings;
+    }
+
+    private static int[][] newPostings(int[] counts) {
+        int[][] postings = new int[counts.length][];
+        for (int id = 0; id < counts.length; id++) {
+            postings[id] = new int[counts[id]];
+        }
+        return postings;
+    }
+}
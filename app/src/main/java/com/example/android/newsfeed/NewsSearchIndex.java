@@ -0,0 +1,353 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory inverted index over the title, section and authors of fetched news, answering keyword
+ * queries without going to the network.
+ * <p>
+ * News are added incrementally as they are fetched; a URL already indexed is skipped. A query
+ * matches the news containing all of its terms, in any of the indexed fields. Matches are ranked by
+ * score -- a term counts more in the title than in the authors, and more in the authors than in
+ * the section -- then by publication date, newest first.
+ * <p>
+ * Only the most recently added news are kept: past the maximum size, the oldest half of the index
+ * is dropped, so memory stays bounded however long the app runs.
+ */
+public class NewsSearchIndex {
+
+    /**
+     * Score of a term found in the title.
+     */
+    private static final int TITLE_WEIGHT = 4;
+
+    /**
+     * Score of a term found in an author name.
+     */
+    private static final int AUTHOR_WEIGHT = 2;
+
+    /**
+     * Score of a term found in the section name.
+     */
+    private static final int SECTION_WEIGHT = 1;
+
+    /**
+     * Maximum number of news held by the index shared by the app.
+     */
+    private static final int DEFAULT_MAX_DOCUMENTS = 5000;
+
+    /**
+     * Index shared by the app.
+     */
+    private static NewsSearchIndex defaultInstance;
+
+    /**
+     * Orders matches from best to worst.
+     */
+    private static final Comparator<Match> BEST_FIRST = new Comparator<Match>() {
+        @Override
+        public int compare(Match first, Match second) {
+            return compareMatches(first.score, first.news, second.score, second.news);
+        }
+    };
+
+    /**
+     * Maximum number of news held by the index.
+     */
+    private final int maxDocuments;
+
+    /**
+     * Indexed news, by document ID.
+     */
+    private final List<News> documents = new ArrayList<>();
+
+    /**
+     * Document ID of each indexed news, by URL.
+     */
+    private final Map<String, Integer> documentIdsByUrl = new HashMap<>();
+
+    /**
+     * Postings of each term.
+     */
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+
+    /**
+     * Documents containing a term, in increasing document ID order, along with the term's score in
+     * each of them.
+     */
+    private static final class Postings {
+
+        int[] documentIds = new int[4];
+        int[] scores = new int[4];
+        int size;
+
+        /**
+         * Record an occurrence of the term. Documents are indexed in increasing ID order, so a
+         * document is either the last one recorded or a new one.
+         *
+         * @param documentId ID of the document containing the term.
+         * @param score      Score of the occurrence.
+         */
+        void add(int documentId, int score) {
+            if (size > 0 && documentIds[size - 1] == documentId) {
+                scores[size - 1] += score;
+                return;
+            }
+            if (size == documentIds.length) {
+                documentIds = Arrays.copyOf(documentIds, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            documentIds[size] = documentId;
+            scores[size] = score;
+            size++;
+        }
+
+        /**
+         * Get the score of the term in a document.
+         *
+         * @param documentId Document ID.
+         * @return Score, or 0 if the document doesn't contain the term.
+         */
+        int scoreOf(int documentId) {
+            int index = Arrays.binarySearch(documentIds, 0, size, documentId);
+            return index < 0 ? 0 : scores[index];
+        }
+    }
+
+    /**
+     * News matching a query, with its score.
+     */
+    private static final class Match {
+
+        final News news;
+        final int score;
+
+        Match(News news, int score) {
+            this.news = news;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Instantiate an empty index.
+     *
+     * @param maxDocuments Maximum number of news held by the index.
+     */
+    public NewsSearchIndex(int maxDocuments) {
+        this.maxDocuments = maxDocuments;
+    }
+
+    /**
+     * Get the index shared by the app, fed with every news fetched from the network or the cache.
+     *
+     * @return Shared index.
+     */
+    public static synchronized NewsSearchIndex getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new NewsSearchIndex(DEFAULT_MAX_DOCUMENTS);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Add news to the index. News whose URL is already indexed are skipped.
+     *
+     * @param news List of news objects.
+     */
+    public synchronized void addAll(List<News> news) {
+        for (News currentNews : news) {
+            if (!documentIdsByUrl.containsKey(currentNews.getUrl())) {
+                index(currentNews);
+            }
+        }
+
+        // Drop the oldest half of the index once it's full
+        if (documents.size() > maxDocuments) {
+            List<News> retainedNews = new ArrayList<>(documents.subList(documents.size() - maxDocuments / 2, documents.size()));
+            documents.clear();
+            documentIdsByUrl.clear();
+            postingsByTerm.clear();
+            for (News currentNews : retainedNews) {
+                index(currentNews);
+            }
+        }
+    }
+
+    /**
+     * Find the best news matching a keyword query.
+     *
+     * @param query Keywords, separated by spaces or punctuation. Case doesn't matter.
+     * @param limit Maximum number of news to return.
+     * @return Matching news, best first. Empty if nothing matches or the query has no keyword.
+     */
+    public synchronized List<News> search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Every term must match, so start from the rarest one
+        Postings[] termPostings = new Postings[terms.size()];
+        int termCount = 0;
+        for (String term : terms) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                return Collections.emptyList();
+            }
+            termPostings[termCount++] = postings;
+        }
+        Arrays.sort(termPostings, new Comparator<Postings>() {
+            @Override
+            public int compare(Postings first, Postings second) {
+                return first.size < second.size ? -1 : (first.size == second.size ? 0 : 1);
+            }
+        });
+
+        // Keep the best matches in a min-heap, whose head is the worst match kept so far
+        PriorityQueue<Match> bestMatches = new PriorityQueue<>(limit, Collections.reverseOrder(BEST_FIRST));
+        Postings rarest = termPostings[0];
+
+        for (int i = 0; i < rarest.size; i++) {
+            int documentId = rarest.documentIds[i];
+            int score = rarest.scores[i];
+
+            for (int j = 1; j < termPostings.length && score > 0; j++) {
+                int termScore = termPostings[j].scoreOf(documentId);
+                score = termScore == 0 ? 0 : score + termScore;
+            }
+
+            if (score == 0) {
+                continue;
+            }
+
+            // Most matches of a common term don't make it, so reject them before allocating
+            News news = documents.get(documentId);
+            if (bestMatches.size() == limit) {
+                Match worstMatch = bestMatches.peek();
+                if (compareMatches(score, news, worstMatch.score, worstMatch.news) >= 0) {
+                    continue;
+                }
+                bestMatches.poll();
+            }
+            bestMatches.add(new Match(news, score));
+        }
+
+        // Empty the heap, then put best matches first
+        List<Match> matches = new ArrayList<>(bestMatches);
+        Collections.sort(matches, BEST_FIRST);
+
+        List<News> news = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            news.add(match.news);
+        }
+        return news;
+    }
+
+    /**
+     * @return Number of news in the index.
+     */
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * Compare two matches: the higher score comes first, then the newest news.
+     *
+     * @param firstScore  Score of the first match.
+     * @param firstNews   News of the first match.
+     * @param secondScore Score of the second match.
+     * @param secondNews  News of the second match.
+     * @return A negative number if the first match is better, a positive one if it's worse, 0 otherwise.
+     */
+    private static int compareMatches(int firstScore, News firstNews, int secondScore, News secondNews) {
+        if (firstScore != secondScore) {
+            return firstScore > secondScore ? -1 : 1;
+        }
+        long firstTime = firstNews.getPublicationTimeMillis();
+        long secondTime = secondNews.getPublicationTimeMillis();
+        return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+    }
+
+    /**
+     * Add a news to the postings of each of its terms.
+     *
+     * @param news News object, not indexed yet.
+     */
+    private void index(News news) {
+        int documentId = documents.size();
+        documents.add(news);
+        documentIdsByUrl.put(news.getUrl(), documentId);
+
+        indexField(documentId, news.getTitle(), TITLE_WEIGHT);
+        for (int i = 0; i < news.getAuthorCount(); i++) {
+            indexField(documentId, news.getAuthor(i), AUTHOR_WEIGHT);
+        }
+        indexField(documentId, news.getSection(), SECTION_WEIGHT);
+    }
+
+    /**
+     * Add a document to the postings of each term of a field.
+     *
+     * @param documentId Document ID.
+     * @param text       Text of the field.
+     * @param weight     Score of each term of the field.
+     */
+    private void indexField(int documentId, String text, int weight) {
+        for (String term : tokenize(text)) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                postingsByTerm.put(term, postings);
+            }
+            postings.add(documentId, weight);
+        }
+    }
+
+    /**
+     * Split text into distinct lower case terms, made of letters and digits.
+     *
+     * @param text Text to split.
+     * @return Terms, in order of first appearance.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int length = text.length();
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            boolean inTerm = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (inTerm && start < 0) {
+                start = i;
+            } else if (!inTerm && start >= 0) {
+                terms.add(toLowerCase(text, start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower case part of a string, independently of the default locale.
+     *
+     * @param text  Text.
+     * @param start Index of the first character.
+     * @param end   Index after the last character.
+     * @return Lower case substring.
+     */
+    private static String toLowerCase(String text, int start, int end) {
+        char[] characters = new char[end - start];
+        for (int i = start; i < end; i++) {
+            characters[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(characters);
+    }
+}
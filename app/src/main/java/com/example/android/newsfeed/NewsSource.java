@@ -0,0 +1,31 @@
+package com.example.android.newsfeed;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Source of news answering queries asynchronously.
+ */
+public interface NewsSource {
+
+    /**
+     * Start fetching the news matching a query.
+     * <p>
+     * Cancelling the returned future aborts the request, including a download in progress.
+     *
+     * @param queryUrl URL used to query the source.
+     * @return Pending news, whose value is null if fetching failed.
+     */
+    Future<List<News>> fetchNews(String queryUrl);
+
+    /**
+     * Start fetching the news matching a query, handing out the news parsed so far while the
+     * response is still downloading.
+     *
+     * @param queryUrl      URL used to query the source.
+     * @param batchListener Listener receiving batches of parsed news, or null.
+     * @return Pending news, whose value is null if fetching failed.
+     * @see #fetchNews(String)
+     */
+    Future<List<News>> fetchNews(String queryUrl, NewsBatcher.Listener batchListener);
+}
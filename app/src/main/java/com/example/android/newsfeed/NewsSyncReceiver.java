@@ -0,0 +1,60 @@
+package com.example.android.newsfeed;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+/**
+ * Receiver scheduling the periodic background sync of the feed, and starting each sync.
+ * <p>
+ * Syncs are triggered by an inexact repeating alarm, so the system can batch them with other
+ * wake-ups. Alarms don't survive reboots, so the schedule is restored once the device has booted.
+ */
+public class NewsSyncReceiver extends BroadcastReceiver {
+
+    /**
+     * Action of the alarm intent triggering a sync.
+     */
+    private static final String ACTION_SYNC = "com.example.android.newsfeed.action.SYNC";
+
+    /**
+     * Start a sync when the alarm fires, or restore the schedule after a reboot.
+     *
+     * @param context Context in which the receiver is running.
+     * @param intent  Intent being received.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (ACTION_SYNC.equals(intent.getAction())) {
+            NewsSyncService.enqueueSync(context);
+        } else if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            scheduleSync(context);
+        }
+    }
+
+    /**
+     * Schedule the periodic sync, unless it's already scheduled.
+     *
+     * @param context Any context.
+     */
+    public static void scheduleSync(Context context) {
+        Context appContext = context.getApplicationContext();
+        Intent syncIntent = new Intent(appContext, NewsSyncReceiver.class).setAction(ACTION_SYNC);
+
+        // Rescheduling would push the next sync back, so leave an existing schedule alone
+        if (PendingIntent.getBroadcast(appContext, 0, syncIntent, PendingIntent.FLAG_NO_CREATE) != null) {
+            return;
+        }
+
+        PendingIntent syncPendingIntent = PendingIntent.getBroadcast(appContext, 0, syncIntent, 0);
+        long intervalMillis = appContext.getResources().getInteger(R.integer.news_sync_interval_minutes) * 60L * 1000L;
+
+        // The device isn't woken up just for us: a sync due while asleep runs at the next wake-up
+        AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + intervalMillis, intervalMillis, syncPendingIntent);
+    }
+}
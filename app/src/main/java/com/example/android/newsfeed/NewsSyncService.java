@@ -0,0 +1,128 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.app.JobIntentService;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service syncing the feed in the background, so it's ready in the cache when the app opens.
+ * <p>
+ * Each sync only asks the API for news published since the newest news already stored, and
+ * merges the ones it doesn't know yet on top of the stored feed. The loader then finds a fresh
+ * entry and shows it without going to the network.
+ */
+public class NewsSyncService extends JobIntentService {
+
+    /**
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = NewsSyncService.class.getName();
+
+    /**
+     * ID of the sync job, unique within the app.
+     */
+    private static final int SYNC_JOB_ID = 1;
+
+    /**
+     * Enqueue a sync. It runs on a background thread, holding a wake lock until it's done.
+     *
+     * @param context Any context.
+     */
+    public static void enqueueSync(Context context) {
+        enqueueWork(context, NewsSyncService.class, SYNC_JOB_ID, new Intent(context, NewsSyncService.class));
+    }
+
+    /**
+     * Sync the first page of the feed, as queried by the feed itself.
+     *
+     * @param intent Intent the sync was enqueued with.
+     */
+    @Override
+    protected void onHandleWork(Intent intent) {
+        List<String> queryUrls = NewsQueryUrls.build(this, 1);
+        String cacheKey = NewsCache.keyFor(queryUrls);
+        NewsCache newsCache = NewsCache.getInstance(this);
+
+        // Only ask for news published since the newest one we have
+        NewsCache.Entry cacheEntry = newsCache.get(cacheKey);
+        List<News> storedNews = cacheEntry == null ? Collections.<News>emptyList() : cacheEntry.getNews();
+        String fromDate = newestPublicationDate(storedNews);
+
+        List<News> fetchedNews = NewsFanOut.getDefault().fetchAll(
+                fromDate == null ? queryUrls : NewsQueryUrls.build(this, 1, fromDate));
+
+        // On failure, keep the stored feed: the next sync will try again
+        if (fetchedNews == null) {
+            return;
+        }
+
+        // A feed holds at most one page per query
+        int capacity = queryUrls.size() * NewsQueryUrls.PAGE_SIZE;
+        try {
+            newsCache.put(cacheKey, mergeDelta(storedNews, fetchedNews, capacity));
+        } catch (IOException exception) {
+            Log.e(LOG_TAG, "Problem storing synced news: ", exception);
+        }
+    }
+
+    /**
+     * Get the publication date of the newest news of a list.
+     *
+     * @param news List of news objects.
+     * @return Publication date as returned by the API, or null if no news has a known date.
+     */
+    static String newestPublicationDate(List<News> news) {
+        News newestNews = null;
+        for (News currentNews : news) {
+            if (currentNews.getPublicationTimeMillis() != NewsDates.UNKNOWN_DATE
+                    && (newestNews == null || currentNews.getPublicationTimeMillis() > newestNews.getPublicationTimeMillis())) {
+                newestNews = currentNews;
+            }
+        }
+        return newestNews == null ? null : newestNews.getDate();
+    }
+
+    /**
+     * Merge newly fetched news into a stored feed.
+     * <p>
+     * Fetched news whose URL is already stored are ignored, as are stories already stored under a
+     * slightly different title. The others go on top of the feed,
+     * newest first, and the stored news keep their order below them. The oldest part of the feed
+     * is dropped beyond the capacity.
+     *
+     * @param storedNews  Stored feed.
+     * @param fetchedNews News fetched since the newest stored news.
+     * @param capacity    Maximum number of news in the merged feed.
+     * @return Merged feed.
+     */
+    static List<News> mergeDelta(List<News> storedNews, List<News> fetchedNews, int capacity) {
+        Set<String> storedUrls = new HashSet<>(storedNews.size() * 2);
+        NearDuplicateDetector storedTitles = new NearDuplicateDetector(storedNews.size() + fetchedNews.size());
+        for (News currentNews : storedNews) {
+            storedUrls.add(currentNews.getUrl());
+            storedTitles.add(currentNews.getTitle());
+        }
+
+        // Keep only news we don't know yet
+        List<News> newNews = new ArrayList<>();
+        for (News currentNews : fetchedNews) {
+            if (storedUrls.add(currentNews.getUrl()) && storedTitles.add(currentNews.getTitle())) {
+                newNews.add(currentNews);
+            }
+        }
+        Collections.sort(newNews, NewsFanOut.NEWEST_FIRST);
+
+        List<News> mergedNews = new ArrayList<>(newNews.size() + storedNews.size());
+        mergedNews.addAll(newNews);
+        mergedNews.addAll(storedNews);
+        return mergedNews.size() > capacity ? new ArrayList<>(mergedNews.subList(0, capacity)) : mergedNews;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of news the user read in each section and by each author, kept across launches.
+ * <p>
+ * Reads are the news opened from the feed. They never leave the device: they only feed the
+ * on-device ranking of {@link NewsRanker}.
+ */
+public class ReadingHistory {
+
+    /**
+     * Name of the preferences file holding the counts.
+     */
+    private static final String PREFERENCES_NAME = "reading_history";
+
+    /**
+     * Prefixes of the keys of section and author counts.
+     */
+    private static final String SECTION_KEY_PREFIX = "section:";
+    private static final String AUTHOR_KEY_PREFIX = "author:";
+
+    /**
+     * History shared by the app.
+     */
+    private static ReadingHistory instance;
+
+    private final SharedPreferences preferences;
+
+    /**
+     * Number of reads of each section and author, by name. Guarded by this.
+     */
+    private final Map<String, Integer> sectionReads = new HashMap<>();
+    private final Map<String, Integer> authorReads = new HashMap<>();
+
+    /**
+     * Load the history stored in the given preferences.
+     *
+     * @param preferences Preferences holding the counts.
+     */
+    private ReadingHistory(SharedPreferences preferences) {
+        this.preferences = preferences;
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (!(entry.getValue() instanceof Integer)) {
+                continue;
+            }
+            String key = entry.getKey();
+            if (key.startsWith(SECTION_KEY_PREFIX)) {
+                sectionReads.put(key.substring(SECTION_KEY_PREFIX.length()), (Integer) entry.getValue());
+            } else if (key.startsWith(AUTHOR_KEY_PREFIX)) {
+                authorReads.put(key.substring(AUTHOR_KEY_PREFIX.length()), (Integer) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the history shared by the app, loading it on first use.
+     *
+     * @param context Any context, used to open the preferences file.
+     * @return Shared history.
+     */
+    public static synchronized ReadingHistory getInstance(Context context) {
+        if (instance == null) {
+            SharedPreferences preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+            instance = new ReadingHistory(preferences);
+        }
+        return instance;
+    }
+
+    /**
+     * Record that the user read a news. Counts are written to disk in the background.
+     *
+     * @param news News read.
+     */
+    public synchronized void recordRead(News news) {
+        SharedPreferences.Editor editor = preferences.edit();
+
+        String section = news.getSection();
+        if (section != null) {
+            editor.putInt(SECTION_KEY_PREFIX + section, increment(sectionReads, section));
+        }
+        int authorCount = news.getAuthorCount();
+        for (int i = 0; i < authorCount; i++) {
+            String author = news.getAuthor(i);
+            editor.putInt(AUTHOR_KEY_PREFIX + author, increment(authorReads, author));
+        }
+
+        editor.apply();
+    }
+
+    /**
+     * @return Copy of the number of reads of each section, by name.
+     */
+    public synchronized Map<String, Integer> getSectionReads() {
+        return new HashMap<>(sectionReads);
+    }
+
+    /**
+     * @return Copy of the number of reads of each author, by name.
+     */
+    public synchronized Map<String, Integer> getAuthorReads() {
+        return new HashMap<>(authorReads);
+    }
+
+    private static int increment(Map<String, Integer> reads, String name) {
+        Integer readCount = reads.get(name);
+        int newReadCount = readCount == null ? 1 : readCount + 1;
+        reads.put(name, newReadCount);
+        return newReadCount;
+    }
+}
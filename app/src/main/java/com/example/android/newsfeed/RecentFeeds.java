@@ -0,0 +1,76 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * News of the feeds shown most recently, by query, kept in memory.
+ * <p>
+ * Switching back to a query used a moment ago -- flipping the order, or going back to earlier
+ * keywords -- shows its feed right away from here, on the main thread, while the loader refreshes
+ * it. Only a few feeds are kept, so the memory taken stays small.
+ */
+public class RecentFeeds {
+
+    /**
+     * Number of feeds kept by the process-wide instance.
+     */
+    private static final int DEFAULT_MAX_FEEDS = 4;
+
+    /**
+     * Instance shared by the app.
+     */
+    private static RecentFeeds defaultInstance;
+
+    /**
+     * News of each feed, by cache key, from least to most recently used. Guarded by this.
+     */
+    private final LinkedHashMap<String, List<News>> feeds;
+
+    /**
+     * Instantiate an empty set of recent feeds.
+     *
+     * @param maxFeeds Maximum number of feeds kept. The least recently used is dropped beyond that.
+     */
+    public RecentFeeds(final int maxFeeds) {
+        feeds = new LinkedHashMap<String, List<News>>(maxFeeds + 1, 1, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<News>> eldest) {
+                return size() > maxFeeds;
+            }
+        };
+    }
+
+    /**
+     * @return Recent feeds shared by the app.
+     */
+    public static synchronized RecentFeeds getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new RecentFeeds(DEFAULT_MAX_FEEDS);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Remember the news shown for a query.
+     *
+     * @param key  Cache key of the queries, as built by {@link NewsCache#keyFor(List)}.
+     * @param news News shown. They're copied, so the caller may keep modifying the list.
+     */
+    public synchronized void put(String key, List<News> news) {
+        feeds.put(key, new ArrayList<>(news));
+    }
+
+    /**
+     * Get the news last shown for a query, marking it as most recently used.
+     *
+     * @param key Cache key of the queries.
+     * @return Copy of the news, or null if the feed isn't remembered.
+     */
+    public synchronized List<News> get(String key) {
+        List<News> news = feeds.get(key);
+        return news == null ? null : new ArrayList<>(news);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.newsfeed;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+/**
+ * Policy deciding whether a failed request is worth retrying, and how long to wait before that.
+ * <p>
+ * Delays grow exponentially with the number of failed attempts, and are drawn at random below that
+ * bound ("full jitter"), so clients failing together don't retry together. When the server asks
+ * for a delay with a Retry-After header, that delay is used instead -- or the request is given up,
+ * if the server asks for longer than we're willing to wait.
+ */
+public class RetryPolicy {
+
+    /**
+     * Status code of responses telling the client to slow down.
+     */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRetryAfterMillis;
+    private final Random random;
+
+    /**
+     * Instantiate a policy.
+     *
+     * @param maxAttempts         Maximum number of attempts, including the first one.
+     * @param baseDelayMillis     Bound of the delay after the first failure, in milliseconds.
+     * @param maxDelayMillis      Largest bound of the delay, whatever the number of failures.
+     * @param maxRetryAfterMillis Longest delay asked by the server that we're willing to wait.
+     * @param random              Source of the jitter.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long maxRetryAfterMillis, Random random) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        this.random = random;
+    }
+
+    /**
+     * Decide whether to retry a request, and when.
+     *
+     * @param failedAttempts Number of attempts that failed so far, at least 1.
+     * @param failure        Failure of the last attempt.
+     * @return Delay before the next attempt, in milliseconds, or -1 to give up.
+     */
+    public long retryDelayMillis(int failedAttempts, IOException failure) {
+        if (failedAttempts >= maxAttempts || !isTransient(failure)) {
+            return -1;
+        }
+
+        // Do as the server says, as long as it doesn't ask for too long
+        if (failure instanceof NewsQuery.HttpStatusException) {
+            long retryAfterMillis = ((NewsQuery.HttpStatusException) failure).getRetryAfterMillis();
+            if (retryAfterMillis >= 0) {
+                return retryAfterMillis <= maxRetryAfterMillis ? retryAfterMillis : -1;
+            }
+        }
+
+        // Full jitter: anywhere between no delay and the exponential bound
+        long bound = baseDelayMillis << Math.min(failedAttempts - 1, 30);
+        if (bound <= 0 || bound > maxDelayMillis) {
+            bound = maxDelayMillis;
+        }
+        return (long) (random.nextDouble() * bound);
+    }
+
+    /**
+     * Tell whether a failure may not happen again, so the request is worth retrying.
+     * <p>
+     * Timeouts, network errors, throttling and server errors are transient. Client errors,
+     * malformed URLs and aborted requests aren't.
+     *
+     * @param failure Failure of a request.
+     * @return true if the failure is transient.
+     */
+    public static boolean isTransient(IOException failure) {
+        if (failure instanceof NewsQuery.HttpStatusException) {
+            int statusCode = ((NewsQuery.HttpStatusException) failure).getStatusCode();
+            return statusCode == HTTP_TOO_MANY_REQUESTS || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+        }
+
+        // Timeouts are interruptions too, but not ones caused by an abort
+        if (failure instanceof InterruptedIOException && !(failure instanceof SocketTimeoutException)) {
+            return false;
+        }
+        return !(failure instanceof MalformedURLException);
+    }
+}
@@ -2,13 +2,14 @@ package com.example.android.newsfeed;
 
 import android.content.SharedPreferences;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 
-import java.util.List;
+import java.util.Set;
 
 /**
  * Activity that manages the app settings.
@@ -49,6 +50,18 @@ public class SettingsActivity extends AppCompatActivity {
 
             // Bind order by preference object state to UI
             bindPreferenceDisplayedToState(orderByPreference);
+
+            // Third, get sections preference object using its reference key
+            MultiSelectListPreference sectionsPreference = (MultiSelectListPreference) findPreference(getString(R.string.settings_sections_key));
+
+            // Bind sections preference object state to UI -- its value is a set, not a string
+            sectionsPreference.setOnPreferenceChangeListener(this);
+            onPreferenceChange(sectionsPreference, sectionsPreference.getValues());
+
+            // Fourth, get other feeds preference object, and bind its state to UI the same way
+            MultiSelectListPreference feedsPreference = (MultiSelectListPreference) findPreference(getString(R.string.settings_feeds_key));
+            feedsPreference.setOnPreferenceChangeListener(this);
+            onPreferenceChange(feedsPreference, feedsPreference.getValues());
         }
 
 
@@ -60,7 +73,17 @@ public class SettingsActivity extends AppCompatActivity {
          * @return true to update the state of the preference with the new value.
          */
         @Override
+        @SuppressWarnings("unchecked")
         public boolean onPreferenceChange(Preference preferenceChanged, Object newPreferenceValue) {
+            // Deal with case when preference changed is sections or feeds, whose value is a set of strings
+            if (preferenceChanged instanceof MultiSelectListPreference) {
+                int noneSelectedSummary = preferenceChanged.getKey().equals(getString(R.string.settings_feeds_key))
+                        ? R.string.settings_feeds_none_summary
+                        : R.string.settings_sections_all_summary;
+                updateMultiSelectSummary((MultiSelectListPreference) preferenceChanged, (Set<String>) newPreferenceValue, noneSelectedSummary);
+                return true; // to update value of the preference in sharedPreferences (the state)
+            }
+
             // Get new value of the preference as a string
             String newPreferenceValueString = newPreferenceValue.toString();
 
@@ -91,6 +114,37 @@ public class SettingsActivity extends AppCompatActivity {
             return true; // to update value of the preference in sharedPreferences (the state)
         }
 
+        /**
+         * Display the labels of the selected entries in the summary of a multi-select preference,
+         * such as sections or feeds.
+         *
+         * @param multiSelectPreference Multi-select preference.
+         * @param selectedValues        Values of the selected entries.
+         * @param noneSelectedSummary   Summary displayed when no entry is selected -- e.g. with no
+         *                              section selected, all sections are queried at once.
+         */
+        private void updateMultiSelectSummary(MultiSelectListPreference multiSelectPreference, Set<String> selectedValues,
+                                              int noneSelectedSummary) {
+            if (selectedValues.isEmpty()) {
+                multiSelectPreference.setSummary(noneSelectedSummary);
+                return;
+            }
+
+            // List labels of the selected entries, in the order they're offered
+            CharSequence[] labels = multiSelectPreference.getEntries();
+            CharSequence[] values = multiSelectPreference.getEntryValues();
+            StringBuilder summary = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (selectedValues.contains(values[i].toString())) {
+                    if (summary.length() > 0) {
+                        summary.append(", ");
+                    }
+                    summary.append(labels[i]);
+                }
+            }
+            multiSelectPreference.setSummary(summary);
+        }
+
         /**
          * Set listener on preference to update its value on change.
          *
@@ -0,0 +1,294 @@
+package com.example.android.newsfeed;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk cache of downloaded thumbnails, keyed by image URL.
+ * <p>
+ * Each image is stored as downloaded, in its own file. Once the cache grows past its maximum size,
+ * the least recently used images are evicted. Images are written to a temporary file first, outside
+ * of the cache lock, so several can be downloaded at once and readers never see a partial image.
+ */
+public class ThumbnailDiskCache {
+
+    /**
+     * Extension of cache files.
+     */
+    private static final String CACHE_FILE_EXTENSION = ".img";
+
+    /**
+     * Extension of files being written.
+     */
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    /**
+     * Directory holding cache files.
+     */
+    private final File directory;
+
+    /**
+     * Maximum total size of cache files, in bytes.
+     */
+    private final long maxSizeBytes;
+
+    /**
+     * Size of each cache file, by file name, in least recently used order. Lazily built. Guarded by this.
+     */
+    private LinkedHashMap<String, Long> fileSizes;
+
+    /**
+     * Total size of cache files, in bytes. Guarded by this.
+     */
+    private long totalSizeBytes;
+
+    /**
+     * Instantiate a cache storing its files in the given directory.
+     *
+     * @param directory    Directory holding cache files. Created if it doesn't exist.
+     * @param maxSizeBytes Maximum total size of cache files, in bytes.
+     */
+    public ThumbnailDiskCache(File directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Get the cached image of a URL.
+     *
+     * @param url Image URL.
+     * @return Cache file, or null if the image isn't cached.
+     */
+    public synchronized File get(String url) {
+        loadIndex();
+
+        File file = fileFor(url);
+        if (!fileSizes.containsKey(file.getName())) {
+            return null;
+        }
+
+        // The file may have been deleted behind our back, by the system clearing the cache
+        if (!file.exists()) {
+            remove(file);
+            return null;
+        }
+
+        // Mark image as most recently used
+        touch(file);
+        return file;
+    }
+
+    /**
+     * Store the image of a URL, replacing any previous one, then evict images if needed.
+     *
+     * @param url      Image URL.
+     * @param body     Image bytes, read to the end but not closed.
+     * @param maxBytes Maximum size of the image, in bytes.
+     * @return Cache file.
+     * @throws IOException if the image can't be read or written, or is larger than the maximum.
+     */
+    public File put(String url, InputStream body, long maxBytes) throws IOException {
+        synchronized (this) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Can't create cache directory: " + directory);
+            }
+
+            // Index files before writing, as indexing clears leftover temporary files
+            loadIndex();
+        }
+
+        // Write without holding the lock, to a file of our own
+        File temporaryFile = File.createTempFile("thumbnail", TEMPORARY_FILE_EXTENSION, directory);
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(temporaryFile);
+            byte[] buffer = new byte[8192];
+            long written = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                written += read;
+                if (written > maxBytes) {
+                    throw new IOException("Image larger than " + maxBytes + " bytes: " + url);
+                }
+                output.write(buffer, 0, read);
+            }
+
+            // Close explicitly, so a failure to flush is reported rather than swallowed
+            output.close();
+            output = null;
+        } catch (IOException exception) {
+            temporaryFile.delete();
+            throw exception;
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+        }
+
+        synchronized (this) {
+            File file = fileFor(url);
+            remove(file);
+            if (!temporaryFile.renameTo(file)) {
+                temporaryFile.delete();
+                throw new IOException("Can't write cache file: " + file);
+            }
+
+            touch(file);
+            evict();
+            return file;
+        }
+    }
+
+    /**
+     * Drop the cached image of a URL, for example because it can't be decoded.
+     *
+     * @param url Image URL.
+     */
+    public synchronized void remove(String url) {
+        remove(fileFor(url));
+    }
+
+    /**
+     * @return Total size of cache files, in bytes.
+     */
+    public synchronized long size() {
+        loadIndex();
+        return totalSizeBytes;
+    }
+
+    /**
+     * Get the file storing the image of a URL.
+     *
+     * @param url Image URL.
+     * @return Cache file, which may not exist.
+     */
+    private File fileFor(String url) {
+        return new File(directory, hash(url) + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * Mark a file as most recently used, both in memory and on disk.
+     *
+     * @param file Existing cache file.
+     */
+    private void touch(File file) {
+        loadIndex();
+
+        Long previousSize = fileSizes.remove(file.getName());
+        if (previousSize != null) {
+            totalSizeBytes -= previousSize;
+        }
+
+        long size = file.length();
+        fileSizes.put(file.getName(), size);
+        totalSizeBytes += size;
+
+        // Persist recency across launches
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Delete a cache file, if it exists.
+     *
+     * @param file Cache file.
+     */
+    private void remove(File file) {
+        loadIndex();
+
+        Long size = fileSizes.remove(file.getName());
+        if (size != null) {
+            totalSizeBytes -= size;
+        }
+        file.delete();
+    }
+
+    /**
+     * Delete least recently used files until the cache fits its maximum size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = fileSizes.entrySet().iterator();
+
+        while (totalSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(directory, eldest.getKey()).delete();
+            totalSizeBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Build the in-memory index of cache files, ordered by last use, on first access.
+     */
+    private void loadIndex() {
+        if (fileSizes != null) {
+            return;
+        }
+
+        fileSizes = new LinkedHashMap<>();
+        totalSizeBytes = 0;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // Order files from least to most recently used
+        List<File> cacheFiles = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+
+        for (File file : cacheFiles) {
+            if (file.getName().endsWith(CACHE_FILE_EXTENSION)) {
+                fileSizes.put(file.getName(), file.length());
+                totalSizeBytes += file.length();
+            } else {
+                // Leftover temporary file from an interrupted download
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Hash a URL into a string usable as file name.
+     *
+     * @param url Image URL.
+     * @return Hexadecimal SHA-1 digest of the URL.
+     */
+    private static String hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | IOException exception) {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loader of news thumbnails into image views, built for smooth scrolling.
+ * <p>
+ * Thumbnails are downloaded on a small pool of background threads, newest request first, since
+ * the rows bound last are the ones on screen. They're decoded downsampled to the size of their
+ * view, without alpha, so a bitmap takes a few dozen kilobytes rather than a megabyte. Decoded
+ * bitmaps are kept in a memory cache bounded in bytes, in front of a disk cache of the downloaded
+ * images bounded in bytes too, so memory use has a fixed ceiling however long the feed is.
+ * <p>
+ * Requests of rows that are recycled get cancelled: queued ones never run, and downloads in
+ * progress are disconnected.
+ */
+public final class ThumbnailLoader {
+
+    /**
+     * Define tag for logging origin of errors / exceptions.
+     */
+    private static final String LOG_TAG = ThumbnailLoader.class.getName();
+
+    /**
+     * Name of the cache directory, within the app cache directory.
+     */
+    private static final String CACHE_DIRECTORY_NAME = "thumbnails";
+
+    /**
+     * Maximum number of thumbnails downloaded and decoded at the same time.
+     */
+    private static final int MAX_CONCURRENT_LOADS = 3;
+
+    /**
+     * Largest image accepted, in bytes. Guardian thumbnails are a few dozen kilobytes.
+     */
+    private static final long MAX_IMAGE_BYTES = 1024 * 1024;
+
+    /**
+     * Share of the heap the memory cache may take.
+     */
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 8;
+
+    /**
+     * Loader shared by the app.
+     */
+    private static ThumbnailLoader instance;
+
+    /**
+     * Decoded thumbnails, by URL and size, bounded by their size in bytes. Only used on the main thread.
+     */
+    private final LruCache<String, Bitmap> memoryCache;
+
+    private final ThumbnailDiskCache diskCache;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Instantiate a loader.
+     *
+     * @param diskCache           Cache of downloaded images.
+     * @param memoryCacheMaxBytes Maximum size of decoded thumbnails kept in memory, in bytes.
+     */
+    ThumbnailLoader(ThumbnailDiskCache diskCache, int memoryCacheMaxBytes) {
+        this.diskCache = diskCache;
+        this.memoryCache = new LruCache<String, Bitmap>(memoryCacheMaxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+
+        // Requests are taken from the head of the queue, so adding them there serves the newest first
+        executor = new ThreadPoolExecutor(MAX_CONCURRENT_LOADS, MAX_CONCURRENT_LOADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingDeque<Runnable>() {
+                    @Override
+                    public boolean offer(Runnable task) {
+                        return offerFirst(task);
+                    }
+                }, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Leave the CPU to the main thread while it's scrolling
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "thumbnail-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the process-wide loader, with caches sized according to the app configuration and the heap.
+     *
+     * @param context Any context, used to locate the cache directory and read configuration.
+     * @return Shared loader.
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            File directory = new File(appContext.getCacheDir(), CACHE_DIRECTORY_NAME);
+            long diskCacheMaxBytes = appContext.getResources().getInteger(R.integer.thumbnail_cache_max_size_kb) * 1024L;
+            int memoryCacheMaxBytes = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_FRACTION);
+            instance = new ThumbnailLoader(new ThumbnailDiskCache(directory, diskCacheMaxBytes), memoryCacheMaxBytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Display a thumbnail in a view. Must be called on the main thread.
+     * <p>
+     * Thumbnails in memory are displayed right away. Otherwise the view is cleared until the
+     * thumbnail is loaded.
+     *
+     * @param url       Thumbnail URL.
+     * @param imageView View displaying the thumbnail.
+     * @param width     Width of the view, in pixels.
+     * @param height    Height of the view, in pixels.
+     * @return Request to cancel if the view is reused before the thumbnail is displayed, or null if
+     * it was displayed right away.
+     */
+    public Request load(String url, ImageView imageView, int width, int height) {
+        String key = url + ' ' + width + 'x' + height;
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            imageView.setImageBitmap(bitmap);
+            return null;
+        }
+
+        imageView.setImageDrawable(null);
+        Request request = new Request(url, key, imageView, width, height);
+        request.future = executor.submit(request);
+        return request;
+    }
+
+    /**
+     * Compute the largest power of two by which an image can be downsampled while still covering
+     * the target size, as BitmapFactory expects it.
+     *
+     * @param width        Width of the image, in pixels.
+     * @param height       Height of the image, in pixels.
+     * @param targetWidth  Width to cover, in pixels.
+     * @param targetHeight Height to cover, in pixels.
+     * @return Sample size, at least 1.
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Request loading a thumbnail into a view, which can be cancelled from the main thread.
+     */
+    public final class Request implements Runnable {
+
+        private final String url;
+        private final String key;
+        private final int width;
+        private final int height;
+
+        /**
+         * View to load the thumbnail into. Weakly held, so queued requests don't retain a closed screen.
+         */
+        private final WeakReference<ImageView> imageViewReference;
+
+        /**
+         * Task running the request on the executor.
+         */
+        private Future<?> future;
+
+        /**
+         * Connection downloading the image, while it's open. Guarded by this.
+         */
+        private HttpURLConnection httpURLConnection;
+
+        private volatile boolean cancelled;
+
+        Request(String url, String key, ImageView imageView, int width, int height) {
+            this.url = url;
+            this.key = key;
+            this.imageViewReference = new WeakReference<>(imageView);
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Cancel the request: the view won't be touched anymore. Must be called on the main thread.
+         */
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+
+            // Stop a download in progress, so its thread moves on to visible rows. Disconnecting
+            // may block, so it's left to a background thread.
+            Disconnector.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (Request.this) {
+                        if (httpURLConnection != null) {
+                            httpURLConnection.disconnect();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            final Bitmap bitmap;
+            try {
+                File file = diskCache.get(url);
+                if (file == null) {
+                    file = download();
+                }
+                if (cancelled) {
+                    return;
+                }
+
+                bitmap = decode(file);
+                if (bitmap == null) {
+                    // Not an image we can decode: don't keep it
+                    diskCache.remove(url);
+                    return;
+                }
+            } catch (IOException exception) {
+                if (!cancelled) {
+                    Log.e(LOG_TAG, "Problem loading thumbnail: " + url, exception);
+                }
+                return;
+            }
+
+            mainThreadHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    memoryCache.put(key, bitmap);
+
+                    ImageView imageView = imageViewReference.get();
+                    if (!cancelled && imageView != null) {
+                        imageView.setImageBitmap(bitmap);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Download the image into the disk cache.
+         *
+         * @return Cache file.
+         * @throws IOException if the image can't be downloaded or stored.
+         */
+        private File download() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(NewsQuery.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(NewsQuery.DEFAULT_READ_TIMEOUT_MILLIS);
+            synchronized (this) {
+                if (cancelled) {
+                    throw new InterruptedIOException("Thumbnail request cancelled: " + url);
+                }
+                httpURLConnection = connection;
+            }
+
+            try {
+                int responseCode = connection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    connection.disconnect();
+                    throw new IOException("Unexpected response code " + responseCode + " for " + url);
+                }
+
+                // Closing the body rather than disconnecting keeps the connection for the next thumbnail
+                InputStream body = connection.getInputStream();
+                try {
+                    return diskCache.put(url, body, MAX_IMAGE_BYTES);
+                } finally {
+                    body.close();
+                }
+            } finally {
+                synchronized (this) {
+                    httpURLConnection = null;
+                }
+            }
+        }
+
+        /**
+         * Decode an image, downsampled to cover the size of the view.
+         *
+         * @param file Image file.
+         * @return Bitmap, or null if the file isn't a decodable image.
+         */
+        private Bitmap decode(File file) {
+            // Read the dimensions first, without allocating any pixel
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getPath(), options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+
+            // Thumbnails are photos without transparency: half the bytes per pixel
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+}
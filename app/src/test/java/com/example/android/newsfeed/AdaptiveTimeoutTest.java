@@ -0,0 +1,33 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the timeout following observed latencies.
+ */
+public class AdaptiveTimeoutTest {
+
+    @Test
+    public void timeoutMillis_usesUpperBoundUntilEnoughLatencies() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout();
+        timeout.record(100);
+
+        assertEquals(10000, timeout.timeoutMillis(500, 10000));
+    }
+
+    @Test
+    public void timeoutMillis_followsHighPercentileWithinBounds() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout();
+        for (int latencyMillis = 1; latencyMillis <= 100; latencyMillis++) {
+            timeout.record(latencyMillis * 10);
+        }
+
+        // The last 64 latencies go from 370 to 1000 ms, the 95th percentile being 970 ms
+        assertEquals(970, timeout.percentileMillis(0.95));
+        assertEquals(2910, timeout.timeoutMillis(500, 10000));
+        assertEquals(2000, timeout.timeoutMillis(500, 2000));
+        assertEquals(5000, timeout.timeoutMillis(5000, 10000));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the source sharing requests among identical queries.
+ */
+public class CoalescingNewsSourceTest {
+
+    private static final String WORLD_QUERY = "https://content.guardianapis.com/search?q=&section=world&page=1";
+
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(4);
+
+    @After
+    public void shutDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchNews_sharesOneRequestAmongConcurrentCallers() throws Exception {
+        FakeNewsSource upstream = new FakeNewsSource(executor).respond(WORLD_QUERY, 200, news("a"), news("b"));
+        CoalescingNewsSource source = new CoalescingNewsSource(upstream, 0);
+
+        Future<List<News>> first = source.fetchNews(WORLD_QUERY);
+        Future<List<News>> second = source.fetchNews(WORLD_QUERY);
+        List<News> firstNews = first.get(1, TimeUnit.SECONDS);
+        List<News> secondNews = second.get(1, TimeUnit.SECONDS);
+
+        // One request, but each caller gets a list of its own
+        assertEquals(1, upstream.getFetchCount());
+        assertEquals(Arrays.asList("a", "b"), urls(secondNews));
+        assertNotSame(firstNews, secondNews);
+    }
+
+    @Test
+    public void fetchNews_identifiesQueriesByNormalizedUrl() throws Exception {
+        FakeNewsSource upstream = new FakeNewsSource(executor).respond(WORLD_QUERY, 200, news("a"));
+        CoalescingNewsSource source = new CoalescingNewsSource(upstream, 0);
+
+        Future<List<News>> first = source.fetchNews(WORLD_QUERY);
+        Future<List<News>> second = source.fetchNews("https://content.guardianapis.com/search?page=1&section=world&q=&api-key=test");
+
+        assertEquals(urls(first.get(1, TimeUnit.SECONDS)), urls(second.get(1, TimeUnit.SECONDS)));
+        assertEquals(1, upstream.getFetchCount());
+    }
+
+    @Test
+    public void cancel_abortsRequestOnceEveryCallerCancelled() throws Exception {
+        FakeNewsSource upstream = new FakeNewsSource(executor).respond(WORLD_QUERY, 5000, news("a"));
+        CoalescingNewsSource source = new CoalescingNewsSource(upstream, 0);
+
+        Future<List<News>> first = source.fetchNews(WORLD_QUERY);
+        Future<List<News>> second = source.fetchNews(WORLD_QUERY);
+        Thread.sleep(100);
+
+        // The other caller still waits, so the request goes on
+        assertTrue(first.cancel(true));
+        Thread.sleep(100);
+        assertTrue(upstream.getAbortedQueries().isEmpty());
+        assertFalse(second.isDone());
+
+        // Nobody waits anymore: the request is aborted
+        assertTrue(second.cancel(true));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton(WORLD_QUERY), upstream.getAbortedQueries());
+    }
+
+    @Test
+    public void fetchNews_reusesNewsOnlyWhileRemembered() throws Exception {
+        FakeNewsSource upstream = new FakeNewsSource(executor).respond(WORLD_QUERY, 0, news("a"));
+        CoalescingNewsSource source = new CoalescingNewsSource(upstream, 300);
+
+        source.fetchNews(WORLD_QUERY).get(1, TimeUnit.SECONDS);
+        Future<List<News>> remembered = source.fetchNews(WORLD_QUERY);
+        assertTrue(remembered.isDone());
+        assertEquals(Collections.singletonList("a"), urls(remembered.get()));
+        assertEquals(1, upstream.getFetchCount());
+
+        // Once expired, the query is fetched again
+        Thread.sleep(400);
+        source.fetchNews(WORLD_QUERY).get(1, TimeUnit.SECONDS);
+        assertEquals(2, upstream.getFetchCount());
+    }
+
+    private static News news(String url) {
+        return new News(url, "Title " + url, "World news", "2018-11-20T10:00:00Z", new ArrayList<String>());
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.android.newsfeed;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * News source answering each query with canned news after a delay, without any network. Unknown
+ * queries fail.
+ * <p>
+ * Cancelled queries stop waiting right away, and are recorded so tests can check what was aborted.
+ */
+class FakeNewsSource implements NewsSource {
+
+    private final ExecutorService executor;
+    private final Map<String, List<News>> responses = new HashMap<>();
+    private final Map<String, Long> delaysMillis = new HashMap<>();
+    private final Set<String> abortedQueries = Collections.synchronizedSet(new HashSet<String>());
+    private final AtomicInteger fetchCount = new AtomicInteger();
+
+    /**
+     * Instantiate a source answering on the given executor.
+     *
+     * @param executor Executor on which queries wait for their delay.
+     */
+    FakeNewsSource(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Answer a query with the given news after a delay.
+     *
+     * @param queryUrl    Query to answer.
+     * @param delayMillis Delay before answering, in milliseconds.
+     * @param news        News to answer with.
+     * @return This source, to chain calls.
+     */
+    FakeNewsSource respond(String queryUrl, long delayMillis, News... news) {
+        responses.put(queryUrl, Arrays.asList(news));
+        delaysMillis.put(queryUrl, delayMillis);
+        return this;
+    }
+
+    /**
+     * @return Queries that were cancelled while waiting for their delay.
+     */
+    Set<String> getAbortedQueries() {
+        return abortedQueries;
+    }
+
+    /**
+     * @return Number of queries fetched so far.
+     */
+    int getFetchCount() {
+        return fetchCount.get();
+    }
+
+    /**
+     * Answer a query without batches: canned news come all at once.
+     */
+    @Override
+    public Future<List<News>> fetchNews(String queryUrl, NewsBatcher.Listener batchListener) {
+        return fetchNews(queryUrl);
+    }
+
+    @Override
+    public Future<List<News>> fetchNews(final String queryUrl) {
+        fetchCount.incrementAndGet();
+        return executor.submit(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                if (!responses.containsKey(queryUrl)) {
+                    return null;
+                }
+                try {
+                    Thread.sleep(delaysMillis.get(queryUrl));
+                } catch (InterruptedException exception) {
+                    abortedQueries.add(queryUrl);
+                    return null;
+                }
+                return responses.get(queryUrl);
+            }
+        });
+    }
+}
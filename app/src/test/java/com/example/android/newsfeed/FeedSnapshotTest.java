@@ -0,0 +1,76 @@
+package com.example.android.newsfeed;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the snapshot of the last feed shown.
+ */
+public class FeedSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void read_returnsNewsWrittenForSameQuery() throws IOException {
+        FeedSnapshot snapshot = new FeedSnapshot(new File(temporaryFolder.getRoot(), "snapshot.bin"));
+        List<News> news = recordedNews();
+
+        snapshot.write("key", news);
+        List<News> snapshotNews = new FeedSnapshot(new File(temporaryFolder.getRoot(), "snapshot.bin")).read("key");
+
+        assertEquals(news.size(), snapshotNews.size());
+        assertEquals(news.get(9).toString(), snapshotNews.get(9).toString());
+        assertNull(snapshot.read("other key"));
+    }
+
+    @Test
+    public void read_ignoresMissingAndCorruptedSnapshots() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "snapshot.bin");
+        FeedSnapshot snapshot = new FeedSnapshot(file);
+        assertNull(snapshot.read("key"));
+
+        snapshot.write("key", recordedNews());
+        FileOutputStream output = new FileOutputStream(file, true);
+        output.getChannel().truncate(file.length() / 2);
+        output.close();
+
+        assertNull(snapshot.read("key"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void read_dropsSnapshotWithCorruptedCount() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "snapshot.bin");
+        FeedSnapshot snapshot = new FeedSnapshot(file);
+
+        for (int count : new int[]{-1, Integer.MAX_VALUE}) {
+            snapshot.write("key", recordedNews());
+
+            // Overwrite the news count, which follows the magic number, the key and the format version
+            RandomAccessFile output = new RandomAccessFile(file, "rw");
+            output.seek(4 + 2 + "key".length() + 4);
+            output.writeInt(count);
+            output.close();
+
+            assertNull(snapshot.read("key"));
+            assertFalse(file.exists());
+        }
+    }
+
+    private static List<News> recordedNews() throws IOException {
+        return NewsJsonParser.parseNews(new ByteArrayInputStream(GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE)));
+    }
+}
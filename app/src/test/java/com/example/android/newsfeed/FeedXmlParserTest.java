@@ -0,0 +1,85 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the streaming RSS and Atom parser, run against recorded feeds.
+ */
+public class FeedXmlParserTest {
+
+    static final String RSS_FEED = "rss_feed.xml";
+    static final String ATOM_FEED = "atom_feed.xml";
+
+    @Test
+    public void parseNews_readsRssItems() throws Exception {
+        List<News> news = FeedXmlParser.parseNews(new ByteArrayInputStream(GuardianFixtures.load(RSS_FEED)), 20);
+
+        // The item without a link is dropped
+        assertEquals(3, news.size());
+
+        // Items without category get the feed's title as section
+        News first = news.get(0);
+        assertEquals("https://www.bbc.co.uk/news/world-europe-46345797", first.getUrl());
+        assertEquals("Ukraine imposes martial law in border areas", first.getTitle());
+        assertEquals("BBC News - World", first.getSection());
+        assertEquals("2018-11-27T19:15:12Z", first.getDate());
+        assertEquals(Collections.<String>emptyList(), first.getAuthors());
+        assertEquals("https://ichef.bbci.co.uk/news/976/cpsprodpb/martial-law.jpg", first.getThumbnailUrl());
+
+        // Media titles don't replace the item's, and dates with an offset are converted to UTC
+        News second = news.get(1);
+        assertEquals("Migrant caravan: Mexico to deport 500 who tried to cross border", second.getTitle());
+        assertEquals("Latin America", second.getSection());
+        assertEquals("2018-11-27T19:15:12Z", second.getDate());
+        assertEquals(Collections.singletonList("Will Grant"), second.getAuthors());
+        assertEquals("https://ichef.bbci.co.uk/news/976/cpsprodpb/caravan.jpg", second.getThumbnailUrl());
+
+        // Enclosures that aren't images aren't thumbnails
+        News third = news.get(2);
+        assertEquals(Collections.singletonList("world@bbc.co.uk (BBC World Desk)"), third.getAuthors());
+        assertNull(third.getThumbnailUrl());
+    }
+
+    @Test
+    public void parseNews_readsAtomEntries() throws Exception {
+        List<News> news = FeedXmlParser.parseNews(new ByteArrayInputStream(GuardianFixtures.load(ATOM_FEED)), 20);
+
+        assertEquals(2, news.size());
+
+        // The entry's page is its alternate link, and its section its category
+        News first = news.get(0);
+        assertEquals("https://www.theverge.com/2018/11/27/insight-mars-photos", first.getUrl());
+        assertEquals("Science", first.getSection());
+        assertEquals("2018-11-27T19:52:24Z", first.getDate());
+        assertEquals(Collections.singletonList("Loren Grush"), first.getAuthors());
+        assertEquals("https://cdn.vox-cdn.com/thumbor/insight.jpg", first.getThumbnailUrl());
+
+        // Entries without publication date are dated by their update
+        News second = news.get(1);
+        assertEquals("https://www.theverge.com/2018/11/27/pixel-3-camera-fix", second.getUrl());
+        assertEquals("The Verge -  All Posts", second.getSection());
+        assertEquals("2018-11-27T18:30:00Z", second.getDate());
+        assertEquals(Arrays.asList("Chaim Gartenberg", "Dieter Bohn"), second.getAuthors());
+    }
+
+    @Test
+    public void parseNews_stopsOnceEnoughNewsAreRead() throws Exception {
+        List<News> news = FeedXmlParser.parseNews(new ByteArrayInputStream(GuardianFixtures.load(RSS_FEED)), 1);
+
+        assertEquals(1, news.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void parseNews_rejectsMalformedFeeds() throws Exception {
+        FeedXmlParser.parseNews(new ByteArrayInputStream("<rss><channel><item>".getBytes("UTF-8")), 20);
+    }
+}
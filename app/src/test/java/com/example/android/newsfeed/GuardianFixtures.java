@@ -0,0 +1,113 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Helper giving tests access to recorded responses of The Guardian's search API.
+ */
+final class GuardianFixtures {
+
+    /**
+     * Recorded response to a search for 'Google' with contributor tags, holding 10 results.
+     */
+    static final String SEARCH_RESPONSE = "guardian_search_response.json";
+
+    private GuardianFixtures() {
+    }
+
+    /**
+     * Read a fixture from the test resources.
+     *
+     * @param name File name of the fixture.
+     * @return Raw bytes of the fixture.
+     */
+    static byte[] load(String name) throws IOException {
+        InputStream inputStream = GuardianFixtures.class.getClassLoader().getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture: " + name);
+        }
+
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Build a response holding the given number of results by cycling through the recorded ones.
+     * <p>
+     * Each copy gets a distinct URL so results stay unique.
+     *
+     * @param resultCount Number of results the response should hold.
+     * @return Raw bytes of the response, encoded in UTF-8.
+     */
+    static byte[] searchResponse(int resultCount) throws IOException {
+        Charset utf8 = Charset.forName("UTF-8");
+        JsonObject recorded = new JsonParser().parse(new String(load(SEARCH_RESPONSE), utf8)).getAsJsonObject();
+        JsonObject response = recorded.getAsJsonObject("response");
+        JsonArray recordedResults = response.getAsJsonArray("results");
+
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < resultCount; i++) {
+            JsonElement copy = recordedResults.get(i % recordedResults.size()).deepCopy();
+            JsonObject result = copy.getAsJsonObject();
+            result.addProperty("webUrl", result.get("webUrl").getAsString() + "?copy=" + i);
+            results.add(result);
+        }
+
+        response.add("results", results);
+        response.addProperty("pageSize", resultCount);
+        return recorded.toString().getBytes(utf8);
+    }
+
+    /**
+     * Build the response the feed's projection gets for the same results: each result has its
+     * byline instead of contributor tags, as returned for 'show-fields=byline'.
+     * <p>
+     * Bylines are built from the recorded contributors the way The Guardian writes them -- for
+     * example 'Julia Carrie Wong, Olivia Solon and Kari Paul'.
+     *
+     * @param resultCount Number of results the response should hold.
+     * @return Raw bytes of the response, encoded in UTF-8.
+     */
+    static byte[] projectedSearchResponse(int resultCount) throws IOException {
+        Charset utf8 = Charset.forName("UTF-8");
+        JsonObject full = new JsonParser().parse(new String(searchResponse(resultCount), utf8)).getAsJsonObject();
+
+        for (JsonElement element : full.getAsJsonObject("response").getAsJsonArray("results")) {
+            JsonObject result = element.getAsJsonObject();
+            JsonArray tags = result.remove("tags").getAsJsonArray();
+
+            StringBuilder byline = new StringBuilder();
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) {
+                    byline.append(i == tags.size() - 1 ? " and " : ", ");
+                }
+                byline.append(tags.get(i).getAsJsonObject().get("webTitle").getAsString());
+            }
+
+            // Articles without contributors have no byline field
+            JsonObject fields = new JsonObject();
+            if (byline.length() > 0) {
+                fields.addProperty("byline", byline.toString());
+            }
+            result.add("fields", fields);
+        }
+        return full.toString().getBytes(utf8);
+    }
+}
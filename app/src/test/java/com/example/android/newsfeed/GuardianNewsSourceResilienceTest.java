@@ -0,0 +1,216 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the Guardian news source's retries, circuit breaker and adaptive timeouts, against a
+ * local stand-in for The Guardian's API that fails on demand.
+ * <p>
+ * Each request takes the next fault of the queue: an error status, optionally with a Retry-After
+ * header, or a stall before the response. Once the queue is empty, requests succeed.
+ */
+public class GuardianNewsSourceResilienceTest {
+
+    private static final String ETAG = "\"feed-v1\"";
+
+    private HttpServer server;
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(1);
+    private final Deque<Fault> faults = new ArrayDeque<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final CountDownLatch releaseStalls = new CountDownLatch(1);
+
+    /**
+     * Failure of a single request.
+     */
+    private static final class Fault {
+
+        final int statusCode;
+        final String retryAfter;
+        final long stallMillis;
+
+        Fault(int statusCode, String retryAfter, long stallMillis) {
+            this.statusCode = statusCode;
+            this.retryAfter = retryAfter;
+            this.stallMillis = stallMillis;
+        }
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        NewsQuery.httpValidatorCache.clear();
+        final byte[] response = GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                Fault fault;
+                synchronized (faults) {
+                    fault = faults.poll();
+                }
+
+                if (fault != null && fault.stallMillis > 0) {
+                    try {
+                        releaseStalls.await(fault.stallMillis, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if (fault != null) {
+                    if (fault.retryAfter != null) {
+                        exchange.getResponseHeaders().set("Retry-After", fault.retryAfter);
+                    }
+                    exchange.sendResponseHeaders(fault.statusCode, -1);
+                    exchange.close();
+                    return;
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        releaseStalls.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchNews_retriesServerErrors() throws Exception {
+        fail(503, null, 2);
+
+        List<News> news = newSource(3, new CircuitBreaker(10, 1000)).fetchNews(queryUrl()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, news.size());
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void fetchNews_givesUpAfterLastAttempt() throws Exception {
+        fail(500, null, 5);
+
+        assertNull(newSource(3, new CircuitBreaker(10, 1000)).fetchNews(queryUrl()).get(5, TimeUnit.SECONDS));
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void fetchNews_doesNotRetryClientErrors() throws Exception {
+        fail(404, null, 1);
+
+        assertNull(newSource(3, new CircuitBreaker(10, 1000)).fetchNews(queryUrl()).get(5, TimeUnit.SECONDS));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void fetchNews_waitsAsLongAsRetryAfterSays() throws Exception {
+        fail(429, "1", 1);
+
+        long start = System.nanoTime();
+        List<News> news = newSource(3, new CircuitBreaker(10, 1000)).fetchNews(queryUrl()).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The backoff alone would have retried within 100 ms
+        assertEquals(10, news.size());
+        assertEquals(2, requestCount.get());
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis >= 1000);
+    }
+
+    @Test
+    public void fetchNews_servesLastValidatedNewsWhileCircuitIsOpen() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 300);
+        GuardianNewsSource source = newSource(3, circuitBreaker);
+        assertEquals(10, source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS).size());
+
+        // Two failures open the circuit, and the third attempt is answered from memory
+        fail(503, null, 100);
+        assertEquals(10, source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS).size());
+        assertEquals(3, requestCount.get());
+        assertTrue(circuitBreaker.isOpen());
+
+        // While open, nothing reaches the server
+        assertEquals(10, source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS).size());
+        assertEquals(3, requestCount.get());
+
+        // Once the server recovers, a trial request closes the circuit
+        synchronized (faults) {
+            faults.clear();
+        }
+        Thread.sleep(400);
+        assertEquals(10, source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS).size());
+        assertEquals(4, requestCount.get());
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void fetchNews_timesOutAfterObservedLatency() throws Exception {
+        GuardianNewsSource source = newSource(3, new CircuitBreaker(10, 1000));
+        for (int i = 0; i < 10; i++) {
+            source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS);
+        }
+
+        // Requests answer within milliseconds, so a stalled one is retried long before the
+        // default 10 s timeout
+        synchronized (faults) {
+            faults.add(new Fault(200, null, 5000));
+        }
+        long start = System.nanoTime();
+        List<News> news = source.fetchNews(queryUrl()).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(10, news.size());
+        assertEquals(12, requestCount.get());
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    /**
+     * Create a source retrying quickly, whose timeouts may go down to 200 ms.
+     */
+    private GuardianNewsSource newSource(int maxAttempts, CircuitBreaker circuitBreaker) {
+        RetryPolicy retryPolicy = new RetryPolicy(maxAttempts, 20, 100, 2000, new Random(42));
+        return new GuardianNewsSource(executor, null, retryPolicy, circuitBreaker, 200);
+    }
+
+    private void fail(int statusCode, String retryAfter, int times) {
+        synchronized (faults) {
+            for (int i = 0; i < times; i++) {
+                faults.add(new Fault(statusCode, retryAfter, 0));
+            }
+        }
+    }
+
+    private String queryUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=google";
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the Guardian news source against a local stand-in for The Guardian's API, which stalls
+ * halfway through slow responses.
+ */
+public class GuardianNewsSourceTest {
+
+    private HttpServer server;
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(1);
+    private final CountDownLatch halfBodySent = new CountDownLatch(1);
+    private final CountDownLatch releaseServer = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws IOException {
+        NewsQuery.httpValidatorCache.clear();
+        final byte[] response = GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // Slow responses stall after half their body. They aren't kept alive, or the JVM's
+                // HttpURLConnection would try to drain them on disconnect rather than close them.
+                boolean slow = exchange.getRequestURI().getQuery().contains("slow");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                if (slow) {
+                    exchange.getResponseHeaders().set("Connection", "close");
+                }
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream body = exchange.getResponseBody();
+
+                body.write(response, 0, slow ? response.length / 2 : response.length);
+                body.flush();
+
+                if (slow) {
+                    halfBodySent.countDown();
+                    try {
+                        releaseServer.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        releaseServer.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchNews_returnsParsedNews() throws Exception {
+        GuardianNewsSource source = new GuardianNewsSource(executor, null);
+
+        List<News> news = source.fetchNews(queryUrl("fast")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, news.size());
+    }
+
+    @Test
+    public void cancel_abortsDownloadInProgress() throws Exception {
+        GuardianNewsSource source = new GuardianNewsSource(executor, null);
+
+        Future<List<News>> pendingNews = source.fetchNews(queryUrl("slow"));
+        assertTrue(halfBodySent.await(5, TimeUnit.SECONDS));
+
+        // Cancelling returns while the server still stalls: the disconnect happens in the
+        // background. The JVM's HttpURLConnection only tears the connection down once the blocked
+        // read returns, where Android's fails the read right away.
+        long start = System.nanoTime();
+        pendingNews.cancel(true);
+        long cancelMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Cancelling took " + cancelMillis + " ms", cancelMillis < 1000);
+        assertTrue(pendingNews.isCancelled());
+
+        // The aborted fetch gives up rather than retrying, which frees its thread
+        releaseServer.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private String queryUrl(String query) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=" + query;
+    }
+}
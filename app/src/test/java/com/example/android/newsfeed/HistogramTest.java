@@ -0,0 +1,114 @@
+package com.example.android.newsfeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the histogram behind the latency metrics, and their JSON snapshots.
+ */
+public class HistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueWithinSixPercent() {
+        for (int index = 0; index < Histogram.BUCKET_COUNT - 1; index++) {
+            long lowerBound = Histogram.bucketLowerBound(index);
+            long upperBound = Histogram.bucketUpperBound(index);
+
+            // Buckets follow each other with no gap, and both bounds map back to the bucket
+            assertEquals(upperBound + 1, Histogram.bucketLowerBound(index + 1));
+            assertEquals(index, Histogram.bucketIndex(lowerBound));
+            assertEquals(index, Histogram.bucketIndex(upperBound));
+            assertTrue(upperBound - lowerBound <= lowerBound / 16);
+        }
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void getValueAtPercentile_isWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertWithin(5000, histogram.getValueAtPercentile(50));
+        assertWithin(9000, histogram.getValueAtPercentile(90));
+        assertWithin(9900, histogram.getValueAtPercentile(99));
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void record_countsEveryValueFromConcurrentThreads() throws InterruptedException {
+        final Histogram histogram = new Histogram();
+        final int threadCount = 4;
+        final int valuesPerThread = 50000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    for (int value = 0; value < valuesPerThread; value++) {
+                        histogram.record(value);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long bucketTotal = 0;
+        for (int index = 0; index < Histogram.BUCKET_COUNT; index++) {
+            bucketTotal += histogram.getCountInBucket(index);
+        }
+        assertEquals(threadCount * valuesPerThread, histogram.getCount());
+        assertEquals(threadCount * valuesPerThread, bucketTotal);
+        assertEquals(valuesPerThread - 1, histogram.getMax());
+    }
+
+    @Test
+    public void toJson_listsLabelsStagesAndBuckets() throws Exception {
+        NewsMetrics metrics = new NewsMetrics();
+        metrics.recordStage(NewsMetrics.Stage.PARSE, 2000000);
+        metrics.recordStage(NewsMetrics.Stage.PARSE, 3000000);
+        metrics.recordResponseBytes(512);
+
+        JSONObject snapshot = new JSONObject(metrics.toJson(Collections.singletonMap("network", "WIFI")));
+
+        assertEquals("WIFI", snapshot.getJSONObject("labels").getString("network"));
+        JSONObject parse = snapshot.getJSONObject("stages").getJSONObject("parse");
+        assertEquals("us", parse.getString("unit"));
+        assertEquals(2, parse.getLong("count"));
+        assertEquals(3000, parse.getLong("max"));
+        JSONArray buckets = parse.getJSONArray("buckets");
+        assertEquals(2, buckets.length());
+        assertEquals(1, buckets.getJSONArray(0).getLong(1));
+        assertEquals(0, snapshot.getJSONObject("stages").getJSONObject("bind").getLong("count"));
+        assertEquals(512, snapshot.getJSONObject("responseBytes").getLong("max"));
+    }
+
+    /**
+     * Assert a value is an upper estimate of another, within the precision of the buckets.
+     */
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but got " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the near-duplicate story detector.
+ */
+public class NearDuplicateDetectorTest {
+
+    private static final int SYNTHETIC_TITLE_COUNT = 20000;
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final int WORDS_PER_TITLE = 8;
+
+    @Test
+    public void add_rejectsRewordedTitles() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(10);
+
+        assertTrue(detector.add("Ukraine imposes martial law in border areas after Russian navy seizes ships"));
+        assertTrue(detector.add("Migrant caravan: Mexico to deport 500 who tried to cross border"));
+
+        // Same terms up to case, punctuation and a word or two
+        assertFalse(detector.add("Ukraine imposes martial law in border regions after Russian navy seizes ships"));
+        assertFalse(detector.add("UKRAINE IMPOSES MARTIAL LAW IN BORDER AREAS, AFTER RUSSIAN NAVY SEIZES SHIPS"));
+        assertFalse(detector.add("Migrant caravan: Mexico to deport 500 people who tried to cross the border"));
+        assertEquals(2, detector.size());
+    }
+
+    @Test
+    public void add_keepsDistinctAndShortTitles() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(10);
+
+        assertTrue(detector.add("Ukraine imposes martial law in border areas"));
+        assertTrue(detector.add("Russia reinforces Crimea after clash with Ukraine navy"));
+        assertTrue(detector.add("Nasa's InSight lander touches down on Mars"));
+
+        // Too few terms to tell, so never collapsed
+        assertTrue(detector.add("Live updates"));
+        assertTrue(detector.add("Live updates"));
+        assertEquals(3, detector.size());
+    }
+
+    @Test
+    public void add_keepsTitlesDifferingByAKeyTerm() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(10);
+
+        assertTrue(detector.add("Google unveils new Pixel phone"));
+        assertTrue(detector.add("Google unveils new Pixel watch"));
+        assertTrue(detector.add("Apple unveils new iPhone at September event"));
+        assertTrue(detector.add("Apple unveils new iPad at September event"));
+        assertEquals(4, detector.size());
+    }
+
+    @Test
+    public void add_scalesToTensOfThousandsOfTitles() {
+        Random random = new Random(42);
+        String[] titles = new String[SYNTHETIC_TITLE_COUNT];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = syntheticTitle(random);
+        }
+
+        // The index grows from its smallest size
+        NearDuplicateDetector detector = new NearDuplicateDetector(0);
+        int keptTitles = 0;
+        for (String title : titles) {
+            if (detector.add(title)) {
+                keptTitles++;
+            }
+        }
+
+        // Titles made of random words are hardly ever mistaken for one another...
+        assertTrue("Kept " + keptTitles, keptTitles > SYNTHETIC_TITLE_COUNT * 99 / 100);
+
+        // ...while the same titles with one word dropped are almost all recognized
+        int recognizedTitles = 0;
+        for (String title : titles) {
+            if (!detector.add(title.substring(title.indexOf(' ') + 1))) {
+                recognizedTitles++;
+            }
+        }
+        assertTrue("Recognized " + recognizedTitles, recognizedTitles > SYNTHETIC_TITLE_COUNT * 90 / 100);
+    }
+
+    private static String syntheticTitle(Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < WORDS_PER_TITLE; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append('w').append(random.nextInt(VOCABULARY_SIZE));
+        }
+        return title.toString();
+    }
+}
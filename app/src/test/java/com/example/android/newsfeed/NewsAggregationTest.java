@@ -0,0 +1,160 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the aggregation of several providers, each answering in its own format, against local
+ * stand-ins for The Guardian's API, an RSS feed and a slow Atom feed.
+ */
+public class NewsAggregationTest {
+
+    /**
+     * Time the Atom feed takes to answer, in milliseconds.
+     */
+    private static final long SLOW_FEED_DELAY_MILLIS = 1500;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(3);
+
+    private String guardianUrl;
+    private String rssFeedUrl;
+    private String atomFeedUrl;
+
+    @Before
+    public void startServers() throws IOException {
+        NewsQuery.httpValidatorCache.clear();
+        guardianUrl = startServer("/search", "application/json", GuardianFixtures.SEARCH_RESPONSE, 0) + "/search";
+        rssFeedUrl = startServer("/rss.xml", "application/rss+xml", FeedXmlParserTest.RSS_FEED, 0) + "/rss.xml";
+        atomFeedUrl = startServer("/atom.xml", "application/atom+xml", FeedXmlParserTest.ATOM_FEED, SLOW_FEED_DELAY_MILLIS) + "/atom.xml";
+    }
+
+    @After
+    public void stopServers() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchAll_mergesNewsOfEveryProvider() {
+        NewsFanOut fanOut = newFanOut();
+
+        List<News> news = fanOut.fetchAll(Arrays.asList(guardianUrl + "?q=", rssFeedUrl, atomFeedUrl));
+
+        // 10 Guardian results, 3 RSS items and 2 Atom entries, newest first
+        assertEquals(15, news.size());
+        assertTrue(containsUrl(news, "https://www.bbc.co.uk/news/world-europe-46345797"));
+        assertTrue(containsUrl(news, "https://www.theverge.com/2018/11/27/insight-mars-photos"));
+        for (int i = 1; i < news.size(); i++) {
+            assertTrue(news.get(i - 1).getPublicationTimeMillis() >= news.get(i).getPublicationTimeMillis());
+        }
+    }
+
+    @Test
+    public void fetchAllAsync_publishesNewsOfFastProvidersFirst() throws Exception {
+        NewsFanOut fanOut = newFanOut();
+        final List<List<News>> partialNews = Collections.synchronizedList(new ArrayList<List<News>>());
+        final List<Long> partialNewsTimes = Collections.synchronizedList(new ArrayList<Long>());
+        final long start = System.nanoTime();
+
+        List<News> news = fanOut.fetchAllAsync(Arrays.asList(guardianUrl + "?q=", rssFeedUrl, atomFeedUrl),
+                new NewsFanOut.ProgressListener() {
+                    @Override
+                    public void onPartialNews(List<News> mergedNews) {
+                        partialNews.add(mergedNews);
+                        partialNewsTimes.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                }).get();
+
+        // The first rows came with the fastest providers, well before the slow feed answered
+        assertFalse(partialNews.isEmpty());
+        long firstPartialMillis = partialNewsTimes.get(0);
+        assertTrue("First news after " + firstPartialMillis + " ms", firstPartialMillis < SLOW_FEED_DELAY_MILLIS / 2);
+        List<News> lastPartialNews = partialNews.get(partialNews.size() - 1);
+        assertEquals(13, lastPartialNews.size());
+        assertFalse(containsUrl(lastPartialNews, "https://www.theverge.com/2018/11/27/insight-mars-photos"));
+
+        // The slow feed's news are in the final feed
+        assertEquals(15, news.size());
+        assertTrue(containsUrl(news, "https://www.theverge.com/2018/11/27/insight-mars-photos"));
+    }
+
+    @Test
+    public void fetchAll_buildsFeedFromProvidersThatAnswered() {
+        NewsFanOut fanOut = newFanOut();
+
+        List<News> news = fanOut.fetchAll(Arrays.asList(rssFeedUrl, rssFeedUrl.replace("rss.xml", "missing.xml")));
+
+        assertEquals(3, news.size());
+    }
+
+    private NewsFanOut newFanOut() {
+        NewsSource newsSource = new AggregatingNewsSource(guardianUrl, new GuardianNewsSource(executor, null),
+                new FeedNewsSource(executor, NewsQueryUrls.PAGE_SIZE));
+        return new NewsFanOut(newsSource, 5000);
+    }
+
+    /**
+     * Start a server answering a path with a fixture, after a delay.
+     *
+     * @return Base URL of the server.
+     */
+    private String startServer(String path, final String contentType, String fixture, final long delayMillis) throws IOException {
+        final byte[] response = GuardianFixtures.load(fixture);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(response);
+                exchange.close();
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static boolean containsUrl(List<News> news, String url) {
+        Set<String> urls = new HashSet<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls.contains(url);
+    }
+}
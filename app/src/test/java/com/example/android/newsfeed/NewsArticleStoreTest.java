@@ -0,0 +1,99 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the columnar news store.
+ */
+public class NewsArticleStoreTest {
+
+    @Test
+    public void add_keepsEveryField() {
+        NewsArticleStore store = new NewsArticleStore(4);
+
+        News news = store.add("https://www.theguardian.com/a", "Title", "Technology", "2018-11-27T19:15:12Z",
+                Arrays.asList("Julia Carrie Wong", "Olivia Solon"));
+
+        assertEquals("https://www.theguardian.com/a", news.getUrl());
+        assertEquals("Title", news.getTitle());
+        assertEquals("Technology", news.getSection());
+        assertEquals("2018-11-27T19:15:12Z", news.getDate());
+        assertEquals(Arrays.asList("Julia Carrie Wong", "Olivia Solon"), news.getAuthors());
+        assertEquals("Julia Carrie Wong, Olivia Solon", news.getAuthorsLine());
+        assertEquals(NewsDates.formatDateLine(news.getPublicationTimeMillis()), news.getDateLine());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void add_keepsMissingDatesAndAuthorsEmpty() {
+        News news = new NewsArticleStore(1).add("url", "Title", "World news", "", Collections.<String>emptyList());
+
+        assertEquals("", news.getDate());
+        assertEquals(NewsDates.UNKNOWN_DATE, news.getPublicationTimeMillis());
+        assertTrue(news.getAuthors().isEmpty());
+        assertEquals("", news.getAuthorsLine());
+    }
+
+    @Test
+    public void append_sharesNamesAcrossStores() {
+        NewsArticleStore.Appender appender = new NewsArticleStore.Appender(1);
+
+        // Parsing creates new strings for every news
+        News first = appender.append("a", "A", new String("Technology"), "", authors(new String("Alex Hern")));
+        News second = appender.append("b", "B", new String("Technology"), "", authors(new String("Alex Hern")));
+
+        assertNotSame(first.getStore(), second.getStore());
+        assertSame(first.getSection(), second.getSection());
+        assertSame(first.getAuthor(0), second.getAuthor(0));
+        assertSame(first.getAuthorsLine(), second.getAuthorsLine());
+    }
+
+    @Test
+    public void add_keepsNamesOfSeparateStoresApart() {
+        NewsArticleStore firstStore = new NewsArticleStore(1);
+        NewsArticleStore secondStore = new NewsArticleStore(1);
+        firstStore.add("a", "A", "Technology", "", authors("Alex Hern"));
+        secondStore.add("b", "B", "Technology", "", authors("Alex Hern"));
+
+        // Names die with the news of a feed, rather than piling up for the lifetime of the process
+        assertNotSame(firstStore.getDictionaries(), secondStore.getDictionaries());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_failsWhenStoreIsFull() {
+        NewsArticleStore store = new NewsArticleStore(2, 1);
+        store.add("a", "A", "Technology", "", authors("Alex Hern"));
+
+        // A row is left, but no room for another author
+        assertFalse(store.hasRoomFor(1));
+        store.add("b", "B", "Technology", "", authors("Julia Carrie Wong"));
+    }
+
+    @Test
+    public void append_startsNewStoresAsNeeded() {
+        NewsArticleStore.Appender appender = new NewsArticleStore.Appender(2);
+
+        News first = appender.append("a", "A", "Technology", "", authors("Alex Hern"));
+        News second = appender.append("b", "B", "Business", "", authors("Julia Carrie Wong"));
+        News third = appender.append("c", "C", "Science", "", Arrays.asList("A", "B", "C", "D", "E", "F"));
+
+        assertEquals("Alex Hern", first.getAuthorsLine());
+        assertEquals("Business", second.getSection());
+        assertEquals(6, third.getAuthorCount());
+        assertEquals("F", third.getAuthor(5));
+    }
+
+    private static List<String> authors(String author) {
+        return Collections.singletonList(author);
+    }
+}
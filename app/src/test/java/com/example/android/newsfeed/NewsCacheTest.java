@@ -0,0 +1,147 @@
+package com.example.android.newsfeed;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the disk cache of parsed news.
+ */
+public class NewsCacheTest {
+
+    private static final long ONE_HOUR_MILLIS = 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredNews() throws IOException {
+        NewsCache cache = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS);
+        List<News> news = recordedNews();
+
+        cache.put("https://content.guardianapis.com/search?q=Google", news);
+        NewsCache.Entry entry = cache.get("https://content.guardianapis.com/search?q=Google");
+
+        assertNotNull(entry);
+        assertTrue(entry.isFresh());
+        assertEquals(news.size(), entry.getNews().size());
+        assertEquals(news.get(9).toString(), entry.getNews().get(9).toString());
+    }
+
+    @Test
+    public void get_keepsThumbnailUrls() throws IOException {
+        NewsCache cache = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS);
+        List<News> news = Arrays.asList(
+                new News("a", "A", "Technology", "", Collections.<String>emptyList(), "https://media.guim.co.uk/a/500.jpg"),
+                new News("b", "B", "Technology", "", Collections.<String>emptyList()));
+
+        cache.put("key", news);
+        List<News> cachedNews = cache.get("key").getNews();
+
+        assertEquals("https://media.guim.co.uk/a/500.jpg", cachedNews.get(0).getThumbnailUrl());
+        assertNull(cachedNews.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void get_survivesNewInstance() throws IOException {
+        new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS).put("key", recordedNews());
+
+        NewsCache.Entry entry = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS).get("key");
+
+        assertNotNull(entry);
+        assertEquals(10, entry.getNews().size());
+    }
+
+    @Test
+    public void get_flagsEntriesPastTimeToLiveAsStale() throws IOException {
+        NewsCache cache = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, 0);
+
+        cache.put("key", recordedNews());
+
+        assertFalse(cache.get("key").isFresh());
+    }
+
+    @Test
+    public void get_dropsCorruptedEntries() throws IOException {
+        NewsCache cache = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS);
+        cache.put("key", recordedNews());
+
+        File[] files = temporaryFolder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].delete() && files[0].createNewFile());
+
+        assertNull(cache.get("key"));
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void get_dropsEntriesWithCorruptedCount() throws IOException {
+        NewsCache cache = new NewsCache(temporaryFolder.getRoot(), 1024 * 1024, ONE_HOUR_MILLIS);
+
+        for (int count : new int[]{-1, Integer.MAX_VALUE}) {
+            cache.put("key", recordedNews());
+            File[] files = temporaryFolder.getRoot().listFiles();
+            assertEquals(1, files.length);
+
+            // Valid header, then a news count the data can't hold
+            DataOutputStream output = new DataOutputStream(new FileOutputStream(files[0]));
+            output.writeUTF("key");
+            output.writeLong(System.currentTimeMillis());
+            output.writeInt(NewsCodec.FORMAT_VERSION);
+            output.writeInt(count);
+            output.close();
+
+            assertNull(cache.get("key"));
+            assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+        }
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedEntries() throws IOException {
+        List<News> news = recordedNews();
+
+        // Measure one entry, then size the cache to hold two of them
+        NewsCache probe = new NewsCache(temporaryFolder.newFolder(), Long.MAX_VALUE, ONE_HOUR_MILLIS);
+        probe.put("probe", news);
+        NewsCache cache = new NewsCache(temporaryFolder.newFolder(), probe.size() * 2 + 64, ONE_HOUR_MILLIS);
+
+        cache.put("first", news);
+        cache.put("second", news);
+
+        // Use the first entry, so the second one becomes the eldest
+        assertNotNull(cache.get("first"));
+        cache.put("third", news);
+
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertTrue(cache.size() <= probe.size() * 2 + 64);
+    }
+
+    @Test
+    public void normalizeQueryUrl_sortsParametersAndDropsApiKey() {
+        assertEquals("https://content.guardianapis.com/search?order-by=newest&q=Google&show-tags=contributor",
+                NewsQuery.normalizeQueryUrl("https://content.guardianapis.com/search?api-key=secret&q=Google&show-tags=contributor&order-by=newest"));
+        assertEquals("https://content.guardianapis.com/search",
+                NewsQuery.normalizeQueryUrl("https://content.guardianapis.com/search"));
+    }
+
+    private static List<News> recordedNews() throws IOException {
+        return NewsJsonParser.parseNews(new ByteArrayInputStream(GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE)));
+    }
+}
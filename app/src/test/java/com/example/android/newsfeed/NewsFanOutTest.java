@@ -0,0 +1,123 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the concurrent multi-query fetcher.
+ */
+public class NewsFanOutTest {
+
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(4);
+
+    @After
+    public void shutDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchAll_mergesByDateAndRemovesDuplicates() {
+        FakeNewsSource source = new FakeNewsSource(executor)
+                .respond("world", 0, news("a", "2018-11-20T10:00:00Z"), news("shared", "2018-11-25T10:00:00Z"))
+                .respond("technology", 0, news("b", "2018-11-27T10:00:00Z"), news("shared", "2018-11-25T10:00:00Z"), news("c", ""));
+
+        List<News> merged = new NewsFanOut(source, 1000).fetchAll(Arrays.asList("world", "technology"));
+
+        assertEquals(Arrays.asList("b", "shared", "a", "c"), urls(merged));
+    }
+
+    @Test
+    public void fetchAll_removesNearDuplicateTitles() {
+        FakeNewsSource source = new FakeNewsSource(executor)
+                .respond("world", 0, news("bbc", "Ukraine imposes martial law in border areas after Russian navy seizes ships", "2018-11-27T19:00:00Z"))
+                .respond("technology", 0, news("guardian", "Ukraine imposes martial law in its border regions after Russian navy seizes ships", "2018-11-27T18:00:00Z"),
+                        news("verge", "Nasa's InSight lander touches down on Mars", "2018-11-27T17:00:00Z"));
+
+        List<News> merged = new NewsFanOut(source, 1000).fetchAll(Arrays.asList("world", "technology"));
+
+        assertEquals(Arrays.asList("bbc", "verge"), urls(merged));
+    }
+
+    @Test
+    public void fetchAll_runsQueriesConcurrently() {
+        FakeNewsSource source = new FakeNewsSource(executor)
+                .respond("world", 300)
+                .respond("technology", 300)
+                .respond("business", 300)
+                .respond("science", 300);
+
+        long start = System.nanoTime();
+        new NewsFanOut(source, 5000).fetchAll(Arrays.asList("world", "technology", "business", "science"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Latency tracks the slowest query, not the 1200 ms sum
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 900);
+    }
+
+    @Test
+    public void fetchAll_dropsQueriesPastTimeout() {
+        FakeNewsSource source = new FakeNewsSource(executor)
+                .respond("world", 0, news("fast", "2018-11-20T10:00:00Z"))
+                .respond("technology", 5000, news("slow", "2018-11-27T10:00:00Z"));
+
+        long start = System.nanoTime();
+        List<News> merged = new NewsFanOut(source, 200).fetchAll(Arrays.asList("world", "technology"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(Collections.singletonList("fast"), urls(merged));
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 1000);
+    }
+
+    @Test
+    public void fetchAll_returnsNullWhenEveryQueryFails() {
+        FakeNewsSource source = new FakeNewsSource(executor);
+
+        assertNull(new NewsFanOut(source, 1000).fetchAll(Arrays.asList("world", "technology")));
+    }
+
+    @Test
+    public void fetchAllAsync_cancelAbortsEveryQuery() throws Exception {
+        FakeNewsSource source = new FakeNewsSource(executor)
+                .respond("world", 5000, news("a", "2018-11-20T10:00:00Z"))
+                .respond("technology", 5000, news("b", "2018-11-27T10:00:00Z"));
+
+        Future<List<News>> pendingNews = new NewsFanOut(source, 10000).fetchAllAsync(Arrays.asList("world", "technology"));
+        Thread.sleep(100);
+        pendingNews.cancel(true);
+
+        // Both queries stop waiting, freeing the executor for the next fetch
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(new HashSet<>(Arrays.asList("world", "technology")), source.getAbortedQueries());
+        assertTrue(pendingNews.isCancelled());
+    }
+
+    private static News news(String url, String date) {
+        return new News(url, "Title " + url, "Section", date, new ArrayList<String>());
+    }
+
+    private static News news(String url, String title, String date) {
+        return new News(url, title, "Section", date, new ArrayList<String>());
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the heap retained by 10k and 100k synthetic articles held in article stores with the
+ * heap they would take as one object per article with its own strings -- the layout news had
+ * before.
+ * <p>
+ * Both sides are sized from their object graphs with the same model, rather than from heap deltas,
+ * which depend on whatever else the test JVM has allocated. Like parsed news, every article comes
+ * with new strings for its section, date and authors, drawn from 40 sections and 500 contributors.
+ */
+public class NewsFootprintTest {
+
+    private static final int SECTION_COUNT = 40;
+    private static final int CONTRIBUTOR_COUNT = 500;
+
+    /**
+     * Largest share of the per-object heap the stores may take.
+     */
+    private static final double MAX_FOOTPRINT_RATIO = 0.7;
+
+    /**
+     * Heap taken by an article object: header, seven references and a long.
+     */
+    private static final int PER_OBJECT_NEWS_BYTES = 48;
+
+    /**
+     * Heap taken by an author list holding one author: the ArrayList and its default array of ten.
+     */
+    private static final int AUTHOR_LIST_BYTES = 24 + 56;
+
+    @Test
+    public void storeFootprint_10kArticles() {
+        assertStoresAreSmaller(10000);
+    }
+
+    @Test
+    public void storeFootprint_100kArticles() {
+        assertStoresAreSmaller(100000);
+    }
+
+    @Test
+    public void estimate_countsSharedDictionariesOnce() {
+        List<News> news = buildStoredNews(10000);
+
+        Map<NewsArticleStore.Dictionaries, Boolean> dictionaries = new IdentityHashMap<>();
+        for (News currentNews : news) {
+            dictionaries.put(currentNews.getStore().getDictionaries(), Boolean.TRUE);
+        }
+        assertEquals(1, dictionaries.size());
+    }
+
+    @Test
+    public void stringBytes_compactsAsciiStrings() {
+        // String object, then array header and characters rounded up to 8 bytes
+        assertEquals(24 + 32, NewsArticleStore.stringBytes("Technology"));
+        assertEquals(24 + 56, NewsArticleStore.stringBytes("Économie et société"));
+        assertEquals(0, NewsArticleStore.stringBytes(null));
+    }
+
+    private static void assertStoresAreSmaller(int articleCount) {
+        long perObjectBytes = estimatePerObjectHeapBytes(articleCount);
+        List<News> storedNews = buildStoredNews(articleCount);
+        assertEquals(articleCount, storedNews.size());
+        long storedBytes = estimateStoredHeapBytes(storedNews);
+
+        assertTrue("Stores take " + storedBytes + " bytes, per object " + perObjectBytes,
+                storedBytes < perObjectBytes * MAX_FOOTPRINT_RATIO);
+    }
+
+    private static long estimatePerObjectHeapBytes(int articleCount) {
+        Random random = new Random(42);
+        long bytes = 0;
+        for (int i = 0; i < articleCount; i++) {
+            String contributor = contributor(random);
+            String section = section(random);
+            String date = date(random);
+            String dateLine = NewsDates.formatDateLine(NewsDates.parsePublicationDate(date));
+
+            // The authors line is the single author, so it isn't counted twice
+            bytes += PER_OBJECT_NEWS_BYTES + AUTHOR_LIST_BYTES
+                    + NewsArticleStore.stringBytes(url(i)) + NewsArticleStore.stringBytes(title(i))
+                    + NewsArticleStore.stringBytes(section) + NewsArticleStore.stringBytes(date)
+                    + NewsArticleStore.stringBytes(dateLine) + NewsArticleStore.stringBytes(contributor);
+        }
+        return bytes;
+    }
+
+    private static long estimateStoredHeapBytes(List<News> news) {
+        Map<NewsArticleStore, Boolean> stores = new IdentityHashMap<>();
+        Map<NewsArticleStore.Dictionaries, Boolean> dictionaries = new IdentityHashMap<>();
+        long bytes = 0;
+        for (News currentNews : news) {
+            NewsArticleStore store = currentNews.getStore();
+            if (stores.put(store, Boolean.TRUE) == null) {
+                bytes += store.estimateHeapBytes();
+            }
+            if (dictionaries.put(store.getDictionaries(), Boolean.TRUE) == null) {
+                bytes += store.getDictionaries().estimateHeapBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static List<News> buildStoredNews(int articleCount) {
+        Random random = new Random(42);
+        NewsArticleStore.Appender appender = new NewsArticleStore.Appender(articleCount);
+        List<News> news = new ArrayList<>(articleCount);
+        for (int i = 0; i < articleCount; i++) {
+            ArrayList<String> authors = new ArrayList<>();
+            authors.add(contributor(random));
+            news.add(appender.append(url(i), title(i), section(random), date(random), authors));
+        }
+        return news;
+    }
+
+    private static String url(int id) {
+        return "https://www.theguardian.com/synthetic/2018/nov/27/article-" + id;
+    }
+
+    private static String title(int id) {
+        return "Synthetic headline number " + id + " about the news of the day";
+    }
+
+    private static String section(Random random) {
+        return "Section " + random.nextInt(SECTION_COUNT);
+    }
+
+    private static String contributor(Random random) {
+        return "Contributor " + random.nextInt(CONTRIBUTOR_COUNT);
+    }
+
+    private static String date(Random random) {
+        return String.format("2018-%02d-%02dT%02d:00:00Z", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24));
+    }
+}
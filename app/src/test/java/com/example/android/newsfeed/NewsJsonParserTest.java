@@ -0,0 +1,137 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the streaming parser of The Guardian's search responses.
+ */
+public class NewsJsonParserTest {
+
+    @Test
+    public void parseNews_readsRecordedResponse() throws IOException {
+        List<News> news = parse(GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE));
+
+        assertEquals(10, news.size());
+
+        News first = news.get(0);
+        assertEquals("https://www.theguardian.com/technology/2018/nov/27/google-employees-letter-censored-search-engine-china-dragonfly", first.getUrl());
+        assertEquals("Google employees sign letter against censored search engine for China", first.getTitle());
+        assertEquals("Technology", first.getSection());
+        assertEquals("2018-11-27T19:15:12Z", first.getDate());
+        assertEquals(Arrays.asList("Julia Carrie Wong"), first.getAuthors());
+
+        // Articles without contributors, and with several of them
+        assertTrue(news.get(2).getAuthors().isEmpty());
+        assertEquals(Arrays.asList("Julia Carrie Wong", "Olivia Solon", "Kari Paul"), news.get(9).getAuthors());
+    }
+
+    @Test
+    public void parseNews_readsBylineOfProjectedResponse() throws IOException {
+        List<News> news = NewsJsonParser.parseNews(
+                new ByteArrayInputStream(GuardianFixtures.projectedSearchResponse(10)), NewsProjection.FEED);
+
+        assertEquals(10, news.size());
+        assertEquals("2018-11-27T19:15:12Z", news.get(0).getDate());
+        assertEquals(Arrays.asList("Julia Carrie Wong"), news.get(0).getAuthors());
+        assertTrue(news.get(2).getAuthors().isEmpty());
+        assertEquals(Arrays.asList("Julia Carrie Wong", "Olivia Solon", "Kari Paul"), news.get(9).getAuthors());
+        assertEquals("Julia Carrie Wong, Olivia Solon, Kari Paul", news.get(9).getAuthorsLine());
+    }
+
+    @Test
+    public void splitByline_listsEachName() {
+        List<String> authors = new ArrayList<>();
+
+        NewsJsonParser.splitByline("Alex Hern", authors);
+        NewsJsonParser.splitByline("Sandra Laville and Andrew Sparrow", authors);
+        NewsJsonParser.splitByline(" Julia Carrie Wong, Olivia Solon and Kari Paul ", authors);
+        NewsJsonParser.splitByline("", authors);
+
+        assertEquals(Arrays.asList("Alex Hern", "Sandra Laville", "Andrew Sparrow",
+                "Julia Carrie Wong", "Olivia Solon", "Kari Paul"), authors);
+    }
+
+    @Test
+    public void parseNews_readsThumbnail() throws IOException {
+        String json = "{\"response\":{\"status\":\"ok\",\"results\":["
+                + "{\"webUrl\":\"https://example.com/a\",\"webTitle\":\"A\",\"sectionName\":\"World\","
+                + "\"fields\":{\"thumbnail\":\"https://media.guim.co.uk/a/500.jpg\",\"byline\":\"Alex Hern\"}},"
+                + "{\"webUrl\":\"https://example.com/b\",\"webTitle\":\"B\",\"sectionName\":\"World\",\"fields\":null}"
+                + "]}}";
+
+        List<News> news = parse(json.getBytes(Charset.forName("UTF-8")));
+
+        assertEquals("https://media.guim.co.uk/a/500.jpg", news.get(0).getThumbnailUrl());
+        assertEquals("Alex Hern", news.get(0).getAuthorsLine());
+        assertEquals(null, news.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void parseNews_skipsFieldsOutsideProjection() throws IOException {
+        byte[] response = GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE);
+
+        List<News> news = NewsJsonParser.parseNews(new ByteArrayInputStream(response), NewsProjection.of());
+
+        assertEquals(10, news.size());
+        assertEquals("Technology", news.get(0).getSection());
+        assertEquals("", news.get(0).getDate());
+        assertTrue(news.get(9).getAuthors().isEmpty());
+    }
+
+    @Test
+    public void parseNews_emitsNewsInResponseOrder() throws IOException {
+        final List<String> urls = new ArrayList<>();
+
+        NewsJsonParser.parseNews(new ByteArrayInputStream(GuardianFixtures.searchResponse(50)), new NewsJsonParser.NewsCallback() {
+            @Override
+            public void onNews(News news) {
+                urls.add(news.getUrl());
+            }
+        });
+
+        assertEquals(50, urls.size());
+        assertTrue(urls.get(49).endsWith("?copy=49"));
+    }
+
+    @Test
+    public void parseNews_dropsEntriesMissingRequiredFields() throws IOException {
+        String json = "{\"response\":{\"status\":\"ok\",\"results\":["
+                + "{\"webUrl\":\"https://example.com/a\",\"webTitle\":\"A\",\"sectionName\":\"World\",\"tags\":null},"
+                + "{\"webUrl\":\"https://example.com/b\",\"sectionName\":\"World\",\"tags\":[]}"
+                + "]}}";
+
+        List<News> news = parse(json.getBytes(Charset.forName("UTF-8")));
+
+        assertEquals(1, news.size());
+        assertEquals("", news.get(0).getDate());
+        assertTrue(news.get(0).getAuthors().isEmpty());
+    }
+
+    @Test
+    public void parseNews_returnsEmptyListWithoutResults() throws IOException {
+        List<News> news = parse("{\"response\":{\"status\":\"ok\",\"results\":[]}}".getBytes(Charset.forName("UTF-8")));
+
+        assertTrue(news.isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void parseNews_failsOnTruncatedResponse() throws IOException {
+        byte[] response = GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE);
+
+        parse(Arrays.copyOf(response, response.length / 2));
+    }
+
+    private static List<News> parse(byte[] json) throws IOException {
+        return NewsJsonParser.parseNews(new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the window of pages shown in the feed, with pages fetched on the calling thread.
+ */
+public class NewsPagerTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PAGES_IN_WINDOW = 3;
+    private static final int PREFETCH_DISTANCE = 2;
+    private static final long RETRY_DELAY_MILLIS = 50;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    /**
+     * News of each page the fake source answers, and number of times each page was fetched.
+     */
+    private final Map<Integer, List<News>> pageNews = new HashMap<>();
+    private final Map<Integer, Integer> fetchCounts = new HashMap<>();
+
+    /**
+     * Items shown, mirroring the window as the activity does.
+     */
+    private final List<News> shownNews = new ArrayList<>();
+
+    @Test
+    public void onScroll_appendsNextPageNearEnd() {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 3);
+
+        // Far from the end: nothing to fetch yet
+        pager.onScroll(0, 5, shownNews.size());
+        assertEquals(0, fetchCount(2));
+
+        pager.onScroll(3, 5, shownNews.size());
+        assertEquals(1, fetchCount(2));
+        assertEquals(20, shownNews.size());
+        assertEquals(url(2, 0), shownNews.get(10).getUrl());
+    }
+
+    @Test
+    public void onScroll_dropsPageAtOppositeEnd() {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 5);
+
+        scrollToEnd(pager);
+        scrollToEnd(pager);
+        scrollToEnd(pager);
+
+        // Page 4 pushed page 1 out of the window
+        assertEquals(2, pager.getFirstPage());
+        assertEquals(MAX_PAGES_IN_WINDOW * PAGE_SIZE, shownNews.size());
+        assertEquals(url(2, 0), shownNews.get(0).getUrl());
+        assertEquals(url(4, PAGE_SIZE - 1), shownNews.get(shownNews.size() - 1).getUrl());
+
+        // Scrolling back brings page 1 back, and drops page 4
+        pager.onScroll(0, 5, shownNews.size());
+        assertEquals(1, pager.getFirstPage());
+        assertEquals(url(1, 0), shownNews.get(0).getUrl());
+        assertEquals(url(3, PAGE_SIZE - 1), shownNews.get(shownNews.size() - 1).getUrl());
+
+        // Page 4 is fetched again once the end is near
+        scrollToEnd(pager);
+        assertEquals(2, fetchCount(4));
+    }
+
+    @Test
+    public void onScroll_stopsAfterShortPage() {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 2);
+        pageNews.put(2, page(2, PAGE_SIZE / 2));
+
+        scrollToEnd(pager);
+        scrollToEnd(pager);
+
+        assertEquals(PAGE_SIZE + PAGE_SIZE / 2, shownNews.size());
+        assertEquals(0, fetchCount(3));
+    }
+
+    @Test
+    public void onScroll_leavesOutNewsAlreadyInWindow() {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 2);
+
+        // A story of page 1 slipped to page 2, as stories were published meanwhile
+        List<News> secondPage = page(2, PAGE_SIZE);
+        secondPage.set(0, news(1, 9));
+        pageNews.put(2, secondPage);
+
+        scrollToEnd(pager);
+
+        assertEquals(2 * PAGE_SIZE - 1, shownNews.size());
+        assertEquals(url(2, 1), shownNews.get(PAGE_SIZE).getUrl());
+    }
+
+    @Test
+    public void reset_ignoresFetchInFlight() {
+        final List<Runnable> pendingFetches = new ArrayList<>();
+        NewsPager pager = newPager(new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                pendingFetches.add(task);
+            }
+        }, 2);
+
+        scrollToEnd(pager);
+        showFirstPage(pager, page(1, PAGE_SIZE), true);
+        pendingFetches.get(0).run();
+
+        assertEquals(PAGE_SIZE, shownNews.size());
+        assertEquals(1, fetchCount(2));
+    }
+
+    @Test
+    public void reset_withoutNextPages_doesNotFetch() {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 2);
+        showFirstPage(pager, page(1, PAGE_SIZE), false);
+
+        scrollToEnd(pager);
+
+        assertEquals(0, fetchCount(2));
+    }
+
+    @Test
+    public void onScroll_waitsBeforeRetryingFailedPage() throws InterruptedException {
+        NewsPager pager = newPager(DIRECT_EXECUTOR, 2);
+        pageNews.put(2, null);
+
+        // A fling past the end fires scroll events in quick succession: only the first one fetches
+        for (int i = 0; i < 20; i++) {
+            scrollToEnd(pager);
+        }
+        assertEquals(1, fetchCount(2));
+
+        // Once the delay has passed, the next scroll retries
+        Thread.sleep(RETRY_DELAY_MILLIS * 2);
+        scrollToEnd(pager);
+        assertEquals(2, fetchCount(2));
+
+        // After a second failure in a row, the delay doubles
+        Thread.sleep(RETRY_DELAY_MILLIS + RETRY_DELAY_MILLIS / 2);
+        scrollToEnd(pager);
+        assertEquals(2, fetchCount(2));
+
+        pageNews.put(2, page(2, PAGE_SIZE));
+        Thread.sleep(RETRY_DELAY_MILLIS);
+        scrollToEnd(pager);
+        assertEquals(3, fetchCount(2));
+        assertEquals(2 * PAGE_SIZE, shownNews.size());
+    }
+
+    /**
+     * Create a pager over pages 1 to lastPage, all full, showing page 1.
+     */
+    private NewsPager newPager(Executor backgroundExecutor, int lastPage) {
+        for (int page = 1; page <= lastPage; page++) {
+            pageNews.put(page, page(page, PAGE_SIZE));
+        }
+
+        NewsPager pager = new NewsPager(new NewsPager.PageSource() {
+            @Override
+            public List<News> fetchPage(int page) {
+                fetchCounts.put(page, fetchCount(page) + 1);
+                return pageNews.get(page);
+            }
+        }, backgroundExecutor, DIRECT_EXECUTOR, new NewsPager.Listener() {
+            @Override
+            public void onPageAppended(List<News> news) {
+                shownNews.addAll(news);
+            }
+
+            @Override
+            public void onPagePrepended(List<News> news) {
+                shownNews.addAll(0, news);
+            }
+
+            @Override
+            public void onPageDropped(int itemCount, boolean fromStart) {
+                if (fromStart) {
+                    shownNews.subList(0, itemCount).clear();
+                } else {
+                    shownNews.subList(shownNews.size() - itemCount, shownNews.size()).clear();
+                }
+            }
+        }, PAGE_SIZE, MAX_PAGES_IN_WINDOW, PREFETCH_DISTANCE, RETRY_DELAY_MILLIS);
+
+        showFirstPage(pager, pageNews.get(1), true);
+        return pager;
+    }
+
+    private void showFirstPage(NewsPager pager, List<News> news, boolean hasNextPages) {
+        shownNews.clear();
+        shownNews.addAll(news);
+        pager.reset(news, hasNextPages);
+    }
+
+    private void scrollToEnd(NewsPager pager) {
+        pager.onScroll(Math.max(0, shownNews.size() - 5), 5, shownNews.size());
+    }
+
+    private int fetchCount(int page) {
+        Integer fetchCount = fetchCounts.get(page);
+        return fetchCount == null ? 0 : fetchCount;
+    }
+
+    private static List<News> page(int page, int newsCount) {
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < newsCount; i++) {
+            news.add(news(page, i));
+        }
+        return news;
+    }
+
+    /**
+     * Create a news whose title is too short to be taken for a near-duplicate of another.
+     */
+    private static News news(int page, int position) {
+        return new News(url(page, position), "Story" + page + "x" + position, "World news",
+                "2018-11-28T10:00:00Z", new ArrayList<String>());
+    }
+
+    private static String url(int page, int position) {
+        return "https://www.theguardian.com/world/" + page + "/" + position;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the mapping of news fields to query parameters, and for what the feed's projection
+ * reads of a response.
+ */
+public class NewsProjectionTest {
+
+    @Test
+    public void getQueryParameters_asksOnlyForFieldsNotAlwaysReturned() {
+        assertEquals(Collections.singletonMap("show-fields", "byline,thumbnail"), NewsProjection.FEED.getQueryParameters());
+        assertTrue(NewsProjection.of(NewsProjection.Field.PUBLICATION_DATE).getQueryParameters().isEmpty());
+        assertEquals("contributor", NewsProjection.ALL.getQueryParameters().get("show-tags"));
+    }
+
+    @Test
+    public void of_alwaysIncludesRequiredFields() {
+        NewsProjection projection = NewsProjection.of();
+
+        assertTrue(projection.includes(NewsProjection.Field.URL));
+        assertTrue(projection.includes(NewsProjection.Field.TITLE));
+        assertTrue(projection.includes(NewsProjection.Field.SECTION));
+        assertEquals(false, projection.includes(NewsProjection.Field.CONTRIBUTORS));
+    }
+
+    @Test
+    public void feed_readsWhatTheFeedDisplaysFromLessThanHalfThePayload() throws IOException {
+        for (int resultCount : new int[]{NewsQueryUrls.PAGE_SIZE, 200}) {
+            byte[] fullResponse = GuardianFixtures.searchResponse(resultCount);
+            byte[] projectedResponse = GuardianFixtures.projectedSearchResponse(resultCount);
+
+            List<News> fullNews = NewsJsonParser.parseNews(new ByteArrayInputStream(fullResponse));
+            List<News> projectedNews = NewsJsonParser.parseNews(new ByteArrayInputStream(projectedResponse), NewsProjection.FEED);
+
+            assertEquals(describe(fullNews), describe(projectedNews));
+            assertTrue(projectedResponse.length * 2 < fullResponse.length);
+        }
+    }
+
+    /**
+     * Describe what the feed displays of each news: URL, date and authors.
+     */
+    private static List<String> describe(List<News> news) {
+        List<String> descriptions = new ArrayList<>();
+        for (News item : news) {
+            descriptions.add(item.getUrl() + " " + item.getDate() + " " + item.getAuthors());
+        }
+        return descriptions;
+    }
+}
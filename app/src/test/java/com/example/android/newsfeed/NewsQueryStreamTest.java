@@ -0,0 +1,102 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the debounced stream of feed queries.
+ */
+public class NewsQueryStreamTest {
+
+    private static final String QUERY_URL = "https://content.guardianapis.com/search?q=%s&order-by=%s&page=1";
+
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Keys of the queries emitted, in order.
+     */
+    private final List<String> emittedKeys = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void shutDownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void submit_emitsOnlyTheLastQueryOfABurst() throws Exception {
+        NewsQueryStream stream = newStream(query("", "newest"));
+
+        stream.submit(query("brexit", "newest"));
+        stream.submit(query("brexit", "relevance"));
+        stream.submit(query("climate", "relevance"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+
+        assertEquals(Collections.singletonList(keyOf(query("climate", "relevance"))), emittedKeys);
+    }
+
+    @Test
+    public void submit_emitsQueriesSeparatedByTheDebounceDelay() throws Exception {
+        NewsQueryStream stream = newStream(query("", "newest"));
+
+        stream.submit(query("brexit", "newest"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+        stream.submit(query("", "newest"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+
+        // Going back to the first query is a change too
+        assertEquals(2, emittedKeys.size());
+        assertEquals(keyOf(query("", "newest")), emittedKeys.get(1));
+    }
+
+    @Test
+    public void submit_skipsQueriesEqualToTheLastOneEmitted() throws Exception {
+        NewsQueryStream stream = newStream(query("", "newest"));
+
+        // A change undone within the delay, then a change that doesn't affect the query
+        stream.submit(query("brexit", "newest"));
+        stream.submit(query("", "newest"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+        stream.submit(query("", "newest"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+
+        assertTrue(emittedKeys.isEmpty());
+    }
+
+    private NewsQueryStream newStream(List<String> initialQueryUrls) {
+        Executor directExecutor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+
+        return new NewsQueryStream(initialQueryUrls, scheduler, directExecutor, DEBOUNCE_MILLIS,
+                new NewsQueryStream.Listener() {
+                    @Override
+                    public void onQueryChanged(List<String> queryUrls, String key) {
+                        emittedKeys.add(key);
+                    }
+                });
+    }
+
+    private static List<String> query(String keywords, String orderBy) {
+        return Collections.singletonList(String.format(QUERY_URL, keywords, orderBy));
+    }
+
+    private static String keyOf(List<String> queryUrls) {
+        return NewsCache.keyFor(queryUrls);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of NewsQuery's transport against a local stand-in for The Guardian's API.
+ */
+public class NewsQueryTest {
+
+    private static final String ETAG = "\"feed-v1\"";
+    private static final String LAST_MODIFIED = "Tue, 27 Nov 2018 19:15:12 GMT";
+
+    private HttpServer server;
+    private final List<String> ifNoneMatchHeaders = new ArrayList<>();
+    private final List<String> acceptEncodingHeaders = new ArrayList<>();
+    private final List<Integer> clientPorts = new ArrayList<>();
+    private final List<Long> bodyBytesSent = new ArrayList<>();
+    private int statusCode = 200;
+
+    @Before
+    public void startServer() throws IOException {
+        NewsQuery.httpValidatorCache.clear();
+
+        final byte[] gzippedResponse = gzip(GuardianFixtures.load(GuardianFixtures.SEARCH_RESPONSE));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // Bookkeeping happens before responding, so the test sees it once the response arrives
+                synchronized (NewsQueryTest.this) {
+                    String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                    ifNoneMatchHeaders.add(ifNoneMatch);
+                    acceptEncodingHeaders.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                    clientPorts.add(exchange.getRemoteAddress().getPort());
+
+                    if (statusCode != 200) {
+                        bodyBytesSent.add(0L);
+                        exchange.sendResponseHeaders(statusCode, -1);
+                    } else if (ETAG.equals(ifNoneMatch)) {
+                        exchange.getResponseHeaders().set("ETag", ETAG);
+                        bodyBytesSent.add(0L);
+                        exchange.sendResponseHeaders(304, -1);
+                    } else {
+                        exchange.getResponseHeaders().set("Content-Type", "application/json");
+                        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                        exchange.getResponseHeaders().set("ETag", ETAG);
+                        exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                        bodyBytesSent.add((long) gzippedResponse.length);
+                        exchange.sendResponseHeaders(200, gzippedResponse.length);
+                        OutputStream body = exchange.getResponseBody();
+                        body.write(gzippedResponse);
+                    }
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void fetchNews_decompressesGzipBody() {
+        List<News> news = NewsQuery.fetchNews(searchUrl());
+
+        assertEquals(10, news.size());
+        assertEquals("gzip", acceptEncodingHeaders.get(0));
+    }
+
+    @Test
+    public void fetchNews_reusesParsedNewsWhenNotModified() {
+        List<News> first = NewsQuery.fetchNews(searchUrl());
+        List<News> second = NewsQuery.fetchNews(searchUrl());
+
+        // Second request is conditional, and answered without a body
+        assertNull(ifNoneMatchHeaders.get(0));
+        assertEquals(ETAG, ifNoneMatchHeaders.get(1));
+        assertTrue(bodyBytesSent.get(0) > 0);
+        assertEquals(0L, (long) bodyBytesSent.get(1));
+
+        assertEquals(first.size(), second.size());
+        assertEquals(first.get(0).getUrl(), second.get(0).getUrl());
+    }
+
+    @Test
+    public void fetchNews_reusesConnection() {
+        NewsQuery.fetchNews(searchUrl());
+        NewsQuery.httpValidatorCache.clear();
+        NewsQuery.fetchNews(searchUrl());
+
+        // Same client port means the same keep-alive connection
+        assertEquals(2, clientPorts.size());
+        assertEquals(clientPorts.get(0), clientPorts.get(1));
+    }
+
+    @Test
+    public void fetchNews_returnsNullOnServerError() {
+        statusCode = 503;
+
+        assertNull(NewsQuery.fetchNews(searchUrl()));
+    }
+
+    private String searchUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=Google&show-tags=contributor";
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+        gzipOutputStream.write(bytes);
+        gzipOutputStream.close();
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the on-device news ranking.
+ */
+public class NewsRankerTest {
+
+    /**
+     * Time the feeds are ranked at: 2018-11-27T20:00:00Z.
+     */
+    private static final long NOW_MILLIS = 1543348800000L;
+
+    private static final Map<String, Integer> NO_READS = Collections.emptyMap();
+
+    @Test
+    public void top_ranksRecentNewsFirstWithoutReads() {
+        NewsRanker ranker = new NewsRanker(NO_READS, NO_READS);
+        ranker.setNews(Arrays.asList(
+                news("old", "Science", "2018-11-25T20:00:00Z", "Jane Doe"),
+                news("undated", "Science", "", "Jane Doe"),
+                news("new", "Science", "2018-11-27T19:00:00Z", "Jane Doe"),
+                news("older", "Science", "2018-11-20T20:00:00Z", "Jane Doe")), null, NOW_MILLIS);
+
+        assertEquals(Arrays.asList("new", "old", "older", "undated"), urls(ranker.top(10)));
+
+        // Only the best are kept, best first
+        assertEquals(Arrays.asList("new", "old"), urls(ranker.top(2)));
+    }
+
+    @Test
+    public void recordRead_raisesNewsOfReadSectionsAndAuthors() {
+        NewsRanker ranker = new NewsRanker(NO_READS, NO_READS);
+        ranker.setNews(Arrays.asList(
+                news("world", "World news", "2018-11-27T19:00:00Z", "Jane Doe"),
+                news("science", "Science", "2018-11-27T12:00:00Z", "John Roe"),
+                news("other-science", "Science", "2018-11-27T14:00:00Z", "Jane Doe")), null, NOW_MILLIS);
+        assertEquals(Arrays.asList("world", "other-science", "science"), urls(ranker.top(3)));
+
+        // Reads of a news outside the feed count as well
+        News readNews = news("elsewhere", "Science", "2018-11-26T08:00:00Z", "John Roe");
+        for (int i = 0; i < 3; i++) {
+            ranker.recordRead(readNews);
+        }
+
+        // Section and author both read come first, then the section read
+        assertEquals(Arrays.asList("science", "other-science", "world"), urls(ranker.top(3)));
+    }
+
+    @Test
+    public void setNews_startsFromPreviousReads() {
+        Map<String, Integer> authorReads = new HashMap<>();
+        authorReads.put("John Roe", 10);
+        NewsRanker ranker = new NewsRanker(NO_READS, authorReads);
+
+        ranker.setNews(Arrays.asList(
+                news("jane", "Science", "2018-11-27T19:00:00Z", "Jane Doe"),
+                news("john", "Science", "2018-11-27T14:00:00Z", "John Roe")), null, NOW_MILLIS);
+
+        assertEquals(Arrays.asList("john", "jane"), urls(ranker.top(2)));
+    }
+
+    @Test
+    public void setNews_scoresKeywordMatches() {
+        NewsRanker ranker = new NewsRanker(NO_READS, NO_READS);
+        ranker.setNews(Arrays.asList(
+                news("none", "Technology", "2018-11-27T19:00:00Z", "Jane Doe"),
+                news("title", "Technology", "2018-11-27T10:00:00Z", "Jane Doe", "Google unveils new phone"),
+                news("section", "Google", "2018-11-27T12:00:00Z", "Jane Doe")), "google", NOW_MILLIS);
+
+        assertEquals(Arrays.asList("title", "section", "none"), urls(ranker.top(3)));
+        assertEquals(1f, NewsRanker.keywordMatch(ranker.getNews().get(1), NewsSearchIndex.tokenize("GOOGLE")), 0f);
+        assertTrue(NewsRanker.keywordMatch(ranker.getNews().get(2), NewsSearchIndex.tokenize("google phone")) < 0.5f);
+    }
+
+    @Test
+    public void recency_halvesEveryHalfLife() {
+        assertEquals(1f, NewsRanker.recency(NOW_MILLIS, NOW_MILLIS), 1e-6f);
+        assertEquals(0.5f, NewsRanker.recency(NOW_MILLIS - NewsRanker.RECENCY_HALF_LIFE_MILLIS, NOW_MILLIS), 1e-6f);
+        assertEquals(0f, NewsRanker.recency(NewsDates.UNKNOWN_DATE, NOW_MILLIS), 0f);
+    }
+
+    private static News news(String url, String section, String date, String author) {
+        return news(url, section, date, author, "Story " + url);
+    }
+
+    private static News news(String url, String section, String date, String author, String title) {
+        return new News(url, title, section, date, new ArrayList<>(Collections.singletonList(author)));
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the local keyword search index.
+ */
+public class NewsSearchIndexTest {
+
+    @Test
+    public void search_matchesAllTermsAcrossFields() {
+        NewsSearchIndex index = new NewsSearchIndex(100);
+        index.addAll(Arrays.asList(
+                news("a", "Google unveils new phone", "Technology", "2018-11-20T10:00:00Z", "Alex Hern"),
+                news("b", "Phone makers struggle", "Business", "2018-11-21T10:00:00Z", "Jane Doe"),
+                news("c", "Markets rally", "Business", "2018-11-22T10:00:00Z", "Alex Hern")));
+
+        assertEquals(Collections.singletonList("a"), urls(index.search("google PHONE", 10)));
+        assertEquals(Collections.singletonList("c"), urls(index.search("hern business", 10)));
+        assertTrue(index.search("google markets", 10).isEmpty());
+        assertTrue(index.search("  ,, ", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ranksTitleMatchesFirstThenNewest() {
+        NewsSearchIndex index = new NewsSearchIndex(100);
+        index.addAll(Arrays.asList(
+                news("section", "Weekly roundup", "Technology", "2018-11-25T10:00:00Z", "Jane Doe"),
+                news("older-title", "Technology and us", "World news", "2018-11-20T10:00:00Z", "Jane Doe"),
+                news("newer-title", "Technology giants", "World news", "2018-11-21T10:00:00Z", "Jane Doe")));
+
+        assertEquals(Arrays.asList("newer-title", "older-title", "section"), urls(index.search("technology", 10)));
+        assertEquals(Arrays.asList("newer-title", "older-title"), urls(index.search("technology", 2)));
+    }
+
+    @Test
+    public void addAll_isIncrementalAndSkipsKnownUrls() {
+        NewsSearchIndex index = new NewsSearchIndex(100);
+        index.addAll(Collections.singletonList(news("a", "Brexit talks", "Politics", "2018-11-20T10:00:00Z")));
+        index.addAll(Arrays.asList(
+                news("a", "Brexit talks", "Politics", "2018-11-20T10:00:00Z"),
+                news("b", "Brexit deal", "Politics", "2018-11-21T10:00:00Z")));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("b", "a"), urls(index.search("brexit", 10)));
+    }
+
+    @Test
+    public void addAll_dropsOldestHalfOnceFull() {
+        NewsSearchIndex index = new NewsSearchIndex(4);
+        for (int i = 0; i < 5; i++) {
+            index.addAll(Collections.singletonList(news("news-" + i, "Story " + i, "World news", "2018-11-2" + i + "T10:00:00Z")));
+        }
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("news-4", "news-3"), urls(index.search("story", 10)));
+        assertTrue(index.search("0", 10).isEmpty());
+    }
+
+    private static News news(String url, String title, String section, String date, String... authors) {
+        return new News(url, title, section, date, new ArrayList<>(Arrays.asList(authors)));
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the delta merge done by the background sync.
+ */
+public class NewsSyncServiceTest {
+
+    @Test
+    public void newestPublicationDate_ignoresNewsWithoutDate() {
+        List<News> stored = Arrays.asList(
+                news("a", "2018-11-20T10:00:00Z"),
+                news("b", ""),
+                news("c", "2018-11-27T10:00:00Z"));
+
+        assertEquals("2018-11-27T10:00:00Z", NewsSyncService.newestPublicationDate(stored));
+        assertNull(NewsSyncService.newestPublicationDate(Collections.singletonList(news("b", ""))));
+        assertNull(NewsSyncService.newestPublicationDate(Collections.<News>emptyList()));
+    }
+
+    @Test
+    public void mergeDelta_putsOnlyNewNewsOnTop() {
+        List<News> stored = Arrays.asList(
+                news("c", "2018-11-27T10:00:00Z"),
+                news("a", "2018-11-20T10:00:00Z"));
+
+        // The API returns the newest stored news again, since from-date is inclusive
+        List<News> fetched = Arrays.asList(
+                news("d", "2018-11-28T10:00:00Z"),
+                news("c", "2018-11-27T10:00:00Z"),
+                news("e", "2018-11-29T10:00:00Z"));
+
+        List<News> merged = NewsSyncService.mergeDelta(stored, fetched, 10);
+
+        assertEquals(Arrays.asList("e", "d", "c", "a"), urls(merged));
+    }
+
+    @Test
+    public void mergeDelta_dropsOldestBeyondCapacity() {
+        List<News> stored = Arrays.asList(
+                news("b", "2018-11-21T10:00:00Z"),
+                news("a", "2018-11-20T10:00:00Z"));
+        List<News> fetched = Collections.singletonList(news("c", "2018-11-22T10:00:00Z"));
+
+        List<News> merged = NewsSyncService.mergeDelta(stored, fetched, 2);
+
+        assertEquals(Arrays.asList("c", "b"), urls(merged));
+    }
+
+    private static News news(String url, String date) {
+        return new News(url, "Title " + url, "Section", date, new ArrayList<String>());
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
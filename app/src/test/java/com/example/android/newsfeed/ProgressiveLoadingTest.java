@@ -0,0 +1,200 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the progressive delivery of news while responses download, against a local stand-in
+ * for The Guardian's API that trickles its responses out over a slow link.
+ */
+public class ProgressiveLoadingTest {
+
+    /**
+     * Number of pieces throttled responses are sent in, and time between two of them.
+     */
+    private static final int CHUNK_COUNT = 20;
+    private static final long CHUNK_DELAY_MILLIS = 75;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final ExecutorService executor = GuardianNewsSource.newBoundedExecutor(2);
+
+    private String guardianUrl;
+
+    @Before
+    public void startServers() throws IOException {
+        NewsQuery.httpValidatorCache.clear();
+        guardianUrl = startThrottledServer(GuardianFixtures.projectedSearchResponse(20)) + "/search";
+    }
+
+    @After
+    public void stopServers() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetchNews_publishesBatchesWhileBodyStreams() throws Exception {
+        final List<List<News>> batches = Collections.synchronizedList(new ArrayList<List<News>>());
+        final List<Long> batchNanos = Collections.synchronizedList(new ArrayList<Long>());
+
+        List<News> news = new GuardianNewsSource(executor, null).fetchNews(guardianUrl + "?q=",
+                new NewsBatcher.Listener() {
+                    @Override
+                    public void onNewsBatch(List<News> parsedNews) {
+                        batches.add(parsedNews);
+                        batchNanos.add(System.nanoTime());
+                    }
+                }).get();
+        long doneNanos = System.nanoTime();
+
+        assertEquals(20, news.size());
+
+        // Batches of the default size, each holding the previous ones, in response order
+        assertEquals(Arrays.asList(6, 12, 18), sizes(batches));
+        for (List<News> batch : batches) {
+            assertEquals(news.subList(0, batch.size()), batch);
+        }
+
+        // The first screen was ready well before the body was
+        long firstBatchLeadMillis = TimeUnit.NANOSECONDS.toMillis(doneNanos - batchNanos.get(0));
+        assertTrue("First batch " + firstBatchLeadMillis + " ms before the end of the body",
+                firstBatchLeadMillis > CHUNK_COUNT * CHUNK_DELAY_MILLIS / 3);
+    }
+
+    @Test
+    public void fetchAllAsync_deliversSingleQueryInBatches() throws Exception {
+        NewsSource newsSource = new CoalescingNewsSource(new GuardianNewsSource(executor, null), 0);
+        final List<List<News>> partialNews = Collections.synchronizedList(new ArrayList<List<News>>());
+
+        List<News> news = new NewsFanOut(newsSource, 5000).fetchAllAsync(Collections.singletonList(guardianUrl + "?q="),
+                new NewsFanOut.ProgressListener() {
+                    @Override
+                    public void onPartialNews(List<News> mergedNews) {
+                        partialNews.add(mergedNews);
+                    }
+                }).get();
+
+        // Nothing to merge: batches keep the server's order
+        assertEquals(20, news.size());
+        assertFalse(partialNews.isEmpty());
+        assertEquals(news.subList(0, 6), partialNews.get(0));
+    }
+
+    @Test
+    public void fetchAllAsync_mergesBatchesOfPendingQueries() throws Exception {
+        String rssFeedUrl = startServer("/rss.xml", GuardianFixtures.load(FeedXmlParserTest.RSS_FEED)) + "/rss.xml";
+        NewsSource newsSource = new AggregatingNewsSource(guardianUrl, new GuardianNewsSource(executor, null),
+                new FeedNewsSource(executor, NewsQueryUrls.PAGE_SIZE));
+        final List<List<News>> partialNews = Collections.synchronizedList(new ArrayList<List<News>>());
+        final List<Long> partialNanos = Collections.synchronizedList(new ArrayList<Long>());
+
+        List<News> news = new NewsFanOut(newsSource, 5000).fetchAllAsync(Arrays.asList(guardianUrl + "?q=", rssFeedUrl),
+                new NewsFanOut.ProgressListener() {
+                    @Override
+                    public void onPartialNews(List<News> mergedNews) {
+                        partialNews.add(mergedNews);
+                        partialNanos.add(System.nanoTime());
+                    }
+                }).get();
+        long doneNanos = System.nanoTime();
+
+        // Results repeat every 10 titles, so the API's near-duplicates are collapsed
+        assertEquals(3 + 10, news.size());
+
+        // The feed answered first, then the API's batches joined it well before its body was complete
+        assertEquals(3, partialNews.get(0).size());
+        int firstCompletePartial = sizes(partialNews).indexOf(3 + 10);
+        assertTrue(firstCompletePartial > 0);
+        long leadMillis = TimeUnit.NANOSECONDS.toMillis(doneNanos - partialNanos.get(firstCompletePartial));
+        assertTrue("Complete feed " + leadMillis + " ms before the end of the body",
+                leadMillis > CHUNK_COUNT * CHUNK_DELAY_MILLIS / 4);
+    }
+
+    /**
+     * Start a server answering '/search' with a response sent in pieces, as over a slow link.
+     *
+     * @return Base URL of the server.
+     */
+    private String startThrottledServer(final byte[] response) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream body = exchange.getResponseBody();
+
+                int chunkLength = (response.length + CHUNK_COUNT - 1) / CHUNK_COUNT;
+                for (int offset = 0; offset < response.length; offset += chunkLength) {
+                    body.write(response, offset, Math.min(chunkLength, response.length - offset));
+                    body.flush();
+                    try {
+                        Thread.sleep(CHUNK_DELAY_MILLIS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Start a server answering a path with a response right away.
+     *
+     * @return Base URL of the server.
+     */
+    private String startServer(String path, final byte[] response) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(response);
+                exchange.close();
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static List<Integer> sizes(List<List<News>> batches) {
+        List<Integer> sizes = new ArrayList<>();
+        for (List<News> batch : batches) {
+            sizes.add(batch.size());
+        }
+        return sizes;
+    }
+}
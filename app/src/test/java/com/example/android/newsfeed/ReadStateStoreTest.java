@@ -0,0 +1,130 @@
+package com.example.android.newsfeed;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the store of the news already read.
+ */
+public class ReadStateStoreTest {
+
+    private static final String FIRST_URL = "https://www.theguardian.com/world/2018/nov/28/first";
+    private static final String SECOND_URL = "https://www.theguardian.com/world/2018/nov/28/second";
+    private static final String THIRD_URL = "https://www.theguardian.com/world/2018/nov/28/third";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void markRead_isKeptAcrossLaunches() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "read_state.bin");
+        ReadStateStore store = new ReadStateStore(file);
+        assertFalse(store.isRead(FIRST_URL));
+
+        store.markRead(FIRST_URL);
+        store.markRead(SECOND_URL);
+        store.markRead(FIRST_URL);
+        assertTrue(store.isRead(FIRST_URL));
+        assertFalse(store.isRead(THIRD_URL));
+        store.awaitWrites();
+
+        // Reading a news twice only records it once
+        ReadStateStore reloadedStore = new ReadStateStore(file);
+        assertEquals(2, reloadedStore.size());
+        assertTrue(reloadedStore.isRead(FIRST_URL));
+        assertTrue(reloadedStore.isRead(SECOND_URL));
+        assertFalse(reloadedStore.isRead(THIRD_URL));
+        assertEquals(4 + 2 * 8, file.length());
+    }
+
+    @Test
+    public void load_skipsEntryCutShort() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "read_state.bin");
+        ReadStateStore store = new ReadStateStore(file);
+        store.markRead(FIRST_URL);
+        store.awaitWrites();
+
+        // An append interrupted half way
+        FileOutputStream output = new FileOutputStream(file, true);
+        output.write(new byte[]{1, 2, 3});
+        output.close();
+
+        ReadStateStore reloadedStore = new ReadStateStore(file);
+        assertEquals(1, reloadedStore.size());
+        assertTrue(reloadedStore.isRead(FIRST_URL));
+
+        // The next read goes after the last complete entry
+        reloadedStore.markRead(SECOND_URL);
+        reloadedStore.awaitWrites();
+        ReadStateStore lastStore = new ReadStateStore(file);
+        assertEquals(2, lastStore.size());
+        assertTrue(lastStore.isRead(SECOND_URL));
+    }
+
+    @Test
+    public void markRead_forgetsOldestHalfPastLimit() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "read_state.bin");
+        ReadStateStore store = new ReadStateStore(file);
+        long[] hashes = new long[ReadStateStore.MAX_READ_NEWS];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = ReadStateStore.hashUrl("https://example.com/" + i);
+        }
+        store.rewrite(hashes);
+
+        ReadStateStore fullStore = new ReadStateStore(file);
+        assertEquals(ReadStateStore.MAX_READ_NEWS, fullStore.size());
+        fullStore.markRead(FIRST_URL);
+        fullStore.awaitWrites();
+
+        int keptCount = (ReadStateStore.MAX_READ_NEWS + 1) / 2;
+        ReadStateStore reloadedStore = new ReadStateStore(file);
+        assertEquals(keptCount, reloadedStore.size());
+        assertTrue(reloadedStore.isRead(FIRST_URL));
+        assertTrue(reloadedStore.isRead("https://example.com/" + (ReadStateStore.MAX_READ_NEWS - 1)));
+        assertFalse(reloadedStore.isRead("https://example.com/0"));
+    }
+
+    @Test
+    public void load_readsEveryHashOfLargeStore() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "read_state.bin");
+        long[] hashes = new long[100000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = ReadStateStore.hashUrl("https://example.com/" + i);
+        }
+        new ReadStateStore(file).rewrite(hashes);
+
+        ReadStateStore reloadedStore = new ReadStateStore(file);
+        assertEquals(hashes.length, reloadedStore.size());
+        assertTrue(reloadedStore.isRead("https://example.com/0"));
+        assertTrue(reloadedStore.isRead("https://example.com/99999"));
+        assertFalse(reloadedStore.isRead("https://example.com/100000"));
+    }
+
+    @Test
+    public void removeRead_keepsUnreadNewsInOrder() {
+        ReadStateStore store = new ReadStateStore(new File(temporaryFolder.getRoot(), "read_state.bin"));
+        store.markRead(SECOND_URL);
+
+        List<News> news = Arrays.asList(news(FIRST_URL), news(SECOND_URL), news(THIRD_URL));
+        List<News> unreadNews = store.removeRead(news);
+
+        assertEquals(2, unreadNews.size());
+        assertEquals(FIRST_URL, unreadNews.get(0).getUrl());
+        assertEquals(THIRD_URL, unreadNews.get(1).getUrl());
+    }
+
+    private static News news(String url) {
+        return new News(url, "Title of " + url, "World news", "2018-11-28T10:00:00Z", new ArrayList<String>());
+    }
+}
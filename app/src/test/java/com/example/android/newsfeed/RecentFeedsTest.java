@@ -0,0 +1,49 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the in-memory feeds of recent queries.
+ */
+public class RecentFeedsTest {
+
+    @Test
+    public void put_dropsLeastRecentlyUsedFeedBeyondMaximum() {
+        RecentFeeds recentFeeds = new RecentFeeds(2);
+        recentFeeds.put("newest", Arrays.asList(news("a")));
+        recentFeeds.put("relevance", Arrays.asList(news("b")));
+
+        // Using the oldest feed makes the other one the least recently used
+        assertNotNull(recentFeeds.get("newest"));
+        recentFeeds.put("oldest", Arrays.asList(news("c")));
+
+        assertNull(recentFeeds.get("relevance"));
+        assertEquals("a", recentFeeds.get("newest").get(0).getUrl());
+        assertEquals("c", recentFeeds.get("oldest").get(0).getUrl());
+    }
+
+    @Test
+    public void get_returnsCopyOfTheNewsPut() {
+        RecentFeeds recentFeeds = new RecentFeeds(2);
+        List<News> news = new ArrayList<>(Arrays.asList(news("a"), news("b")));
+        recentFeeds.put("newest", news);
+
+        // Neither the caller's list nor a previous copy can alter the feed
+        news.clear();
+        recentFeeds.get("newest").clear();
+
+        assertEquals(2, recentFeeds.get("newest").size());
+    }
+
+    private static News news(String url) {
+        return new News(url, "Title " + url, "World news", "2018-11-20T10:00:00Z", new ArrayList<String>());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the retry policy and the parsing of Retry-After headers.
+ */
+public class RetryPolicyTest {
+
+    private final RetryPolicy retryPolicy = new RetryPolicy(4, 100, 300, 5000, new Random(42));
+
+    @Test
+    public void retryDelayMillis_backsOffWithJitterUpToMaxDelay() {
+        for (int i = 0; i < 100; i++) {
+            long firstDelay = retryPolicy.retryDelayMillis(1, new SocketTimeoutException());
+            long thirdDelay = retryPolicy.retryDelayMillis(3, new IOException());
+            assertTrue(firstDelay >= 0 && firstDelay < 100);
+            assertTrue(thirdDelay >= 0 && thirdDelay < 300);
+        }
+    }
+
+    @Test
+    public void retryDelayMillis_givesUpAfterMaxAttempts() {
+        assertEquals(-1, retryPolicy.retryDelayMillis(4, new IOException()));
+    }
+
+    @Test
+    public void retryDelayMillis_honorsRetryAfterWithinLimit() {
+        assertEquals(2000, retryPolicy.retryDelayMillis(1, new NewsQuery.HttpStatusException(429, 2000)));
+        assertEquals(-1, retryPolicy.retryDelayMillis(1, new NewsQuery.HttpStatusException(503, 60000)));
+    }
+
+    @Test
+    public void retryDelayMillis_givesUpOnPermanentFailures() {
+        assertEquals(-1, retryPolicy.retryDelayMillis(1, new NewsQuery.HttpStatusException(404, -1)));
+        assertEquals(-1, retryPolicy.retryDelayMillis(1, new InterruptedIOException("Request aborted")));
+    }
+
+    @Test
+    public void parseRetryAfterMillis_readsSecondsAndDates() {
+        long now = 1543346112000L; // Tue, 27 Nov 2018 19:15:12 GMT
+
+        assertEquals(120000, NewsQuery.parseRetryAfterMillis("120", now));
+        assertEquals(30000, NewsQuery.parseRetryAfterMillis("Tue, 27 Nov 2018 19:15:42 GMT", now));
+        assertEquals(0, NewsQuery.parseRetryAfterMillis("Tue, 27 Nov 2018 19:00:00 GMT", now));
+        assertEquals(-1, NewsQuery.parseRetryAfterMillis("soon", now));
+        assertEquals(-1, NewsQuery.parseRetryAfterMillis(null, now));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.android.newsfeed;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the disk cache of thumbnails, and the downsampling of thumbnails.
+ */
+public class ThumbnailDiskCacheTest {
+
+    private static final int IMAGE_BYTES = 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredImage() throws IOException {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(temporaryFolder.getRoot(), 1024 * 1024);
+
+        cache.put("https://media.guim.co.uk/a/500.jpg", image(), IMAGE_BYTES);
+        File file = cache.get("https://media.guim.co.uk/a/500.jpg");
+
+        assertNotNull(file);
+        assertEquals(IMAGE_BYTES, file.length());
+        assertNull(cache.get("https://media.guim.co.uk/b/500.jpg"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedImages() throws IOException {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(temporaryFolder.getRoot(), IMAGE_BYTES * 2);
+
+        cache.put("first", image(), IMAGE_BYTES);
+        cache.put("second", image(), IMAGE_BYTES);
+
+        // Use the first image, so the second one becomes the eldest
+        assertNotNull(cache.get("first"));
+        cache.put("third", image(), IMAGE_BYTES);
+
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertEquals(IMAGE_BYTES * 2, cache.size());
+    }
+
+    @Test
+    public void put_rejectsOversizedImagesWithoutLeavingFiles() throws IOException {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(temporaryFolder.getRoot(), 1024 * 1024);
+
+        try {
+            cache.put("huge", image(), IMAGE_BYTES - 1);
+            fail("Oversized image was stored");
+        } catch (IOException expected) {
+            // Rejected
+        }
+
+        assertNull(cache.get("huge"));
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void get_survivesNewInstanceAndClearsLeftovers() throws IOException {
+        new ThumbnailDiskCache(temporaryFolder.getRoot(), 1024 * 1024).put("image", image(), IMAGE_BYTES);
+        assertTrue(new File(temporaryFolder.getRoot(), "thumbnail123.tmp").createNewFile());
+
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(temporaryFolder.getRoot(), 1024 * 1024);
+
+        assertNotNull(cache.get("image"));
+        assertEquals(1, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsTargetCovered() {
+        // A 500x300 Guardian thumbnail into rows of 80x48 dp
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(500, 300, 80, 48));
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(500, 300, 240, 144));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 320, 192));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 0, 0));
+    }
+
+    private static ByteArrayInputStream image() {
+        return new ByteArrayInputStream(new byte[IMAGE_BYTES]);
+    }
+}
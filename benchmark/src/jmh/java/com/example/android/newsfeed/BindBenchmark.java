@@ -0,0 +1,79 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preparing news for display.
+ * <p>
+ * Formatting dates and joining authors used to happen in NewsAdapter on every bind. It now happens
+ * once, when a News is built, and binding only reads the precomputed strings. Both parts are
+ * measured over every news of a response, as if each of them was bound once.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+    /**
+     * Build news from parsed fields, which formats their date and joins their authors.
+     */
+    @Benchmark
+    public void buildNews(GuardianResponses responses, Blackhole blackhole) {
+        for (News news : responses.news) {
+            blackhole.consume(new News(news.getUrl(), news.getTitle(), news.getSection(), news.getDate(),
+                    new ArrayList<>(news.getAuthors())));
+        }
+    }
+
+    /**
+     * Replay what NewsAdapter.onBindViewHolder used to do on a row: create two SimpleDateFormat,
+     * parse and format the date, and join the authors.
+     */
+    @Benchmark
+    public void formatOnBind(GuardianResponses responses, Blackhole blackhole) throws ParseException {
+        for (News news : responses.news) {
+            blackhole.consume(news.getTitle());
+            blackhole.consume(news.getSection());
+
+            Date date = new SimpleDateFormat("yyyy-MM-dd").parse(news.getDate());
+            blackhole.consume(new SimpleDateFormat("  \u2022  MMM dd, ''yy").format(date));
+
+            StringBuilder authors = new StringBuilder();
+            for (String author : news.getAuthors()) {
+                if (authors.length() > 0) {
+                    authors.append(", ");
+                }
+                authors.append(author);
+            }
+            blackhole.consume(authors.toString());
+        }
+    }
+
+    /**
+     * Read what NewsAdapter.onBindViewHolder sets on a row.
+     */
+    @Benchmark
+    public void bindNews(GuardianResponses responses, Blackhole blackhole) {
+        for (News news : responses.news) {
+            blackhole.consume(news.getTitle());
+            blackhole.consume(news.getSection());
+            blackhole.consume(news.getDateLine());
+            blackhole.consume(news.getAuthorsLine());
+        }
+    }
+}
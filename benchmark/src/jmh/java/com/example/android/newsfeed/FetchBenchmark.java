@@ -0,0 +1,55 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Cost of reading a response body the way NewsQuery does, once its bytes have been received.
+ * <p>
+ * The network itself is left out: bodies are read from memory, so the numbers only reflect the
+ * work done on the device, with and without gzip compression.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FetchBenchmark {
+
+    @Benchmark
+    public long readIdentityBody(GuardianResponses responses) throws IOException {
+        return drain(new ByteArrayInputStream(responses.json));
+    }
+
+    @Benchmark
+    public long readGzippedBody(GuardianResponses responses) throws IOException {
+        return drain(new GZIPInputStream(new ByteArrayInputStream(responses.gzippedJson)));
+    }
+
+    /**
+     * Read a stream until its end, with the same buffer size as NewsQuery.
+     *
+     * @param inputStream Stream to read.
+     * @return Number of bytes read.
+     */
+    private static long drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Guardian search responses the benchmarks run on, built from the recorded response by the app's
+ * unit test fixtures.
+ * <p>
+ * The recorded response holds 10 results. Larger responses cycle through them, giving each copy a
+ * distinct URL so results stay unique.
+ */
+@State(Scope.Benchmark)
+public class GuardianResponses {
+
+    /**
+     * Number of results in the response.
+     */
+    @Param({"10", "50", "200", "1000"})
+    public int resultCount;
+
+    /**
+     * Response body, as sent without compression.
+     */
+    byte[] json;
+
+    /**
+     * Response body for the feed's projection, with bylines instead of contributor tags.
+     */
+    byte[] projectedJson;
+
+    /**
+     * Response body, as sent with gzip compression.
+     */
+    byte[] gzippedJson;
+
+    /**
+     * News parsed from the response.
+     */
+    List<News> news;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = GuardianFixtures.searchResponse(resultCount);
+        projectedJson = GuardianFixtures.projectedSearchResponse(resultCount);
+        gzippedJson = gzip(json);
+        news = NewsJsonParser.parseNews(new ByteArrayInputStream(json));
+    }
+
+    /**
+     * Compress bytes the way the server does when asked for gzip.
+     *
+     * @param bytes Bytes to compress.
+     * @return Compressed bytes.
+     */
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(bytes);
+        gzipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point running the news pipeline benchmarks on the JVM, without device nor network.
+ * <p>
+ * Without arguments, every benchmark runs with the allocation profiler, and reports throughput,
+ * latency percentiles and allocation rate for each response size. Arguments are passed to the JMH
+ * command line instead, for instance to run a single benchmark or response size.
+ */
+public final class NewsBenchmarks {
+
+    private NewsBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+                .include(NewsBenchmarks.class.getPackage().getName() + "\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Cost of turning a response body into news, as done by NewsQuery.extractFeaturesFromJson.
+ * <p>
+ * Parsing also builds the News objects, and with them their display strings. The former approach
+ * -- reading the body into a String, then building an org.json tree -- is measured alongside.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Benchmark
+    public List<News> parseIdentityBody(GuardianResponses responses) throws IOException {
+        return NewsJsonParser.parseNews(new ByteArrayInputStream(responses.json));
+    }
+
+    /**
+     * Parse the body asked for by the feed's projection, which holds bylines instead of contributor
+     * tags, reading only the fields the feed uses.
+     */
+    @Benchmark
+    public List<News> parseProjectedBody(GuardianResponses responses) throws IOException {
+        return NewsJsonParser.parseNews(new ByteArrayInputStream(responses.projectedJson), NewsProjection.FEED);
+    }
+
+    /**
+     * Parse the body the way NewsQuery used to: read it into a String, then build a JSON tree.
+     */
+    @Benchmark
+    public List<News> parseWithDom(GuardianResponses responses) throws IOException, JSONException {
+        BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(responses.json), Charset.forName("UTF-8")));
+        StringBuilder stringBuilder = new StringBuilder();
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            stringBuilder.append(line);
+            line = bufferedReader.readLine();
+        }
+
+        JSONArray newsArray = new JSONObject(stringBuilder.toString()).getJSONObject("response").getJSONArray("results");
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < newsArray.length(); i++) {
+            JSONObject newsProperties = newsArray.getJSONObject(i);
+            JSONArray authorsArray = newsProperties.getJSONArray("tags");
+            ArrayList<String> authors = new ArrayList<>();
+            for (int j = 0; j < authorsArray.length(); j++) {
+                authors.add(authorsArray.getJSONObject(j).getString("webTitle"));
+            }
+            news.add(new News(newsProperties.getString("webUrl"), newsProperties.getString("webTitle"),
+                    newsProperties.getString("sectionName"), newsProperties.optString("webPublicationDate"), authors));
+        }
+        return news;
+    }
+
+    /**
+     * Parse a compressed body while it's being decompressed, which is what happens on a 200 response.
+     */
+    @Benchmark
+    public List<News> parseGzippedBody(GuardianResponses responses) throws IOException {
+        return NewsJsonParser.parseNews(new GZIPInputStream(new ByteArrayInputStream(responses.gzippedJson)));
+    }
+}
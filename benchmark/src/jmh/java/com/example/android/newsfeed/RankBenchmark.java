@@ -0,0 +1,85 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the on-device ranking over a synthetic 5k-news feed: computing the features of the feed,
+ * then recording a read and picking the best news again, as done after each click.
+ * <p>
+ * A click should take well under a frame -- 16 ms at 60 frames per second -- leaving room for
+ * slower devices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankBenchmark {
+
+    private static final int NEWS_COUNT = 5000;
+    private static final int AUTHOR_COUNT = 500;
+    private static final int RESULT_LIMIT = 100;
+
+    private static final String[] SECTIONS = {"World news", "Technology", "Business", "Science", "Culture", "Sport"};
+
+    private List<News> feed;
+    private NewsRanker ranker;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        feed = new ArrayList<>(NEWS_COUNT);
+        for (int i = 0; i < NEWS_COUNT; i++) {
+            feed.add(syntheticNews(random, i));
+        }
+
+        ranker = new NewsRanker(Collections.<String, Integer>emptyMap(), Collections.<String, Integer>emptyMap());
+        ranker.setNews(feed, "w1 w2", System.currentTimeMillis());
+    }
+
+    /**
+     * Compute the features of every news of the feed, as done when a feed is delivered.
+     */
+    @Benchmark
+    public NewsRanker setNews() {
+        NewsRanker feedRanker = new NewsRanker(Collections.<String, Integer>emptyMap(), Collections.<String, Integer>emptyMap());
+        feedRanker.setNews(feed, "w1 w2", System.currentTimeMillis());
+        return feedRanker;
+    }
+
+    /**
+     * Record a read and pick the best news again, as done after each click.
+     */
+    @Benchmark
+    public List<News> readAndTop() {
+        ranker.recordRead(feed.get(position++ % NEWS_COUNT));
+        return ranker.top(RESULT_LIMIT);
+    }
+
+    private static News syntheticNews(Random random, int id) {
+        ArrayList<String> authors = new ArrayList<>();
+        authors.add("Author " + random.nextInt(AUTHOR_COUNT));
+
+        String date = String.format("2018-11-%02dT%02d:00:00Z", 1 + random.nextInt(28), random.nextInt(24));
+        return new News("https://www.theguardian.com/synthetic/" + id, "Story w" + random.nextInt(50) + " w" + random.nextInt(50),
+                SECTIONS[random.nextInt(SECTIONS.length)], date, authors);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the store of read news at 100k entries: loading it on launch, and the lookup done for
+ * each row bound.
+ * <p>
+ * Loading should fit in a few frames, and a lookup should be a tiny part of binding a row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadStateBenchmark {
+
+    private static final int READ_NEWS_COUNT = 100000;
+
+    private File file;
+    private ReadStateStore store;
+
+    /**
+     * URLs looked up, half of them read and half not.
+     */
+    private String[] urls;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Only reserve the name: the store writes the file itself
+        file = File.createTempFile("read_state", ".bin");
+        file.delete();
+        long[] hashes = new long[READ_NEWS_COUNT];
+        for (int i = 0; i < READ_NEWS_COUNT; i++) {
+            hashes[i] = ReadStateStore.hashUrl(url(i));
+        }
+        new ReadStateStore(file).rewrite(hashes);
+
+        store = new ReadStateStore(file);
+        urls = new String[1024];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = url(i % 2 == 0 ? i * 97 : READ_NEWS_COUNT + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Load the store, as done on launch.
+     */
+    @Benchmark
+    public ReadStateStore load() {
+        return new ReadStateStore(file);
+    }
+
+    /**
+     * Check whether a news was read, as done for each row bound.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isRead() {
+        return store.isRead(urls[position++ & (urls.length - 1)]);
+    }
+
+    private static String url(int id) {
+        return "https://www.theguardian.com/world/2018/nov/28/story-" + id;
+    }
+}
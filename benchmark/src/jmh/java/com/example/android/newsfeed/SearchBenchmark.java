@@ -0,0 +1,108 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the local search index over 100k synthetic articles: building the index, then one- and
+ * two-keyword queries.
+ * <p>
+ * Words are drawn with a skewed distribution, so some are common and most are rare, as in real
+ * titles. Frequent words make for long postings, rare ones for short postings, and queries cycle
+ * through both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int ARTICLE_COUNT = 100000;
+    private static final int VOCABULARY_SIZE = 20000;
+    private static final int WORDS_PER_TITLE = 8;
+    private static final int RESULT_LIMIT = 20;
+
+    private static final String[] SECTIONS = {"World news", "Technology", "Business", "Science", "Culture", "Sport"};
+
+    private static final String[] SINGLE_KEYWORD_QUERIES = {word(0), word(10), word(100), word(1000)};
+    private static final String[] TWO_KEYWORD_QUERIES = {word(0) + " " + word(1), word(5) + " " + word(50), word(20) + " technology"};
+
+    private List<News> articles;
+    private NewsSearchIndex index;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        articles = new ArrayList<>(ARTICLE_COUNT);
+        for (int i = 0; i < ARTICLE_COUNT; i++) {
+            articles.add(syntheticArticle(random, i));
+        }
+
+        index = new NewsSearchIndex(ARTICLE_COUNT);
+        index.addAll(articles);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NewsSearchIndex buildIndex() {
+        NewsSearchIndex builtIndex = new NewsSearchIndex(ARTICLE_COUNT);
+        builtIndex.addAll(articles);
+        return builtIndex;
+    }
+
+    @Benchmark
+    public List<News> searchOneKeyword() {
+        return index.search(SINGLE_KEYWORD_QUERIES[position++ % SINGLE_KEYWORD_QUERIES.length], RESULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<News> searchTwoKeywords() {
+        return index.search(TWO_KEYWORD_QUERIES[position++ % TWO_KEYWORD_QUERIES.length], RESULT_LIMIT);
+    }
+
+    private static News syntheticArticle(Random random, int id) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < WORDS_PER_TITLE; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(word(skewedIndex(random)));
+        }
+
+        ArrayList<String> authors = new ArrayList<>();
+        authors.add("Author " + word(random.nextInt(2000)));
+
+        String date = String.format("2018-%02d-%02dT%02d:00:00Z", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24));
+        return new News("https://www.theguardian.com/synthetic/" + id, title.toString(),
+                SECTIONS[random.nextInt(SECTIONS.length)], date, authors);
+    }
+
+    /**
+     * Draw a vocabulary index, small indices being much more likely than large ones.
+     */
+    private static int skewedIndex(Random random) {
+        double uniform = random.nextDouble();
+        return (int) (VOCABULARY_SIZE * uniform * uniform * uniform);
+    }
+
+    private static String word(int index) {
+        return "w" + Integer.toString(index, 36);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the cold start path: reading back the snapshot of the feed last shown, which is what
+ * the feed displays before any response is parsed. Compare with ParseBenchmark for the same
+ * number of results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final String KEY = "https://content.guardianapis.com/search?q=google";
+
+    private File file;
+    private FeedSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp(GuardianResponses responses) throws IOException {
+        file = File.createTempFile("snapshot", ".bin");
+        snapshot = new FeedSnapshot(file);
+        snapshot.write(KEY, responses.news);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<News> readSnapshot() {
+        return snapshot.read(KEY);
+    }
+}